@@ -0,0 +1,160 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.benchmark;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.eclipsecs.core.builder.CheckerFactory;
+import net.sf.eclipsecs.core.config.ICheckConfiguration;
+
+import org.eclipse.core.resources.IProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the creation of checkers by the {@link CheckerFactory}, both when the checker has to
+ * be created from the configuration file (cold) and when a cached checker is reused (warm).
+ *
+ * @author Lars Ködderitzsch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class CheckerFactoryBenchmark {
+
+  /** The project the checkers are created for. */
+  private IProject mProject;
+
+  /** The configuration whose checker is cached. */
+  private ICheckConfiguration mWarmConfig;
+
+  /**
+   * Sets up the headless environment and populates the checker cache.
+   *
+   * @throws Exception
+   *           the setup failed
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    HeadlessEnvironment.initialize();
+    mProject = HeadlessEnvironment.createProject("benchmark"); //$NON-NLS-1$
+    mWarmConfig = HeadlessEnvironment.createCheckConfiguration("warm"); //$NON-NLS-1$
+    CheckerFactory.releaseChecker(CheckerFactory.createChecker(mWarmConfig, mProject));
+  }
+
+  /**
+   * Creates a checker from scratch, for a configuration whose content the factory hasn't seen yet.
+   *
+   * @param state
+   *          the state of the cold invocations
+   * @return the checker
+   * @throws Exception
+   *           the checker could not be created
+   */
+  @Benchmark
+  public Checker createCheckerCold(ColdState state) throws Exception {
+    state.mChecker = CheckerFactory.createChecker(state.mConfig, mProject);
+    return state.mChecker;
+  }
+
+  /**
+   * Reuses the cached checker.
+   *
+   * @return the checker
+   * @throws Exception
+   *           the checker could not be created
+   */
+  @Benchmark
+  public Checker createCheckerWarm() throws Exception {
+    Checker checker = CheckerFactory.createChecker(mWarmConfig, mProject);
+    CheckerFactory.releaseChecker(checker);
+    return checker;
+  }
+
+  /**
+   * State of the cold invocations. Each invocation gets a configuration file with distinct
+   * content, so its checker is neither cached as checker nor as resolved configuration file, and
+   * the checker of the previous invocation is released so the pool doesn't grow.
+   */
+  @State(Scope.Thread)
+  public static class ColdState {
+
+    /** The configuration used by the next invocation. */
+    private ICheckConfiguration mConfig;
+
+    /** The configuration file of the next invocation. */
+    private File mConfigFile;
+
+    /** The checker created by the last invocation. */
+    private Checker mChecker;
+
+    /** Counter for distinct configurations of the invocations. */
+    private int mCount;
+
+    /**
+     * Releases the checker of the last invocation and prepares a new configuration.
+     *
+     * @throws IOException
+     *           the configuration file could not be written
+     */
+    @Setup(Level.Invocation)
+    public void prepare() throws IOException {
+      tearDown();
+
+      String variant = "cold-" + mCount++; //$NON-NLS-1$
+      mConfigFile = File.createTempFile("benchmark_" + variant, ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+      mConfig = HeadlessEnvironment.createCheckConfiguration(variant, variant, mConfigFile);
+    }
+
+    /**
+     * Releases the checker and removes the configuration file of the last invocation.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (mChecker != null) {
+        CheckerFactory.releaseChecker(mChecker);
+        mChecker = null;
+      }
+      if (mConfigFile != null) {
+        mConfigFile.delete();
+        mConfigFile = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.eclipsecs.core.config.ConfigurationReader;
+import net.sf.eclipsecs.core.config.ConfigurationReader.AdditionalConfigData;
+import net.sf.eclipsecs.core.config.Module;
+import net.sf.eclipsecs.core.config.meta.MetadataFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+
+/**
+ * Benchmarks the parsing of Checkstyle configuration files into the plugin's module model.
+ *
+ * @author Lars Ködderitzsch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class ConfigurationReaderBenchmark {
+
+  /** The content of the configuration file. */
+  private byte[] mConfigBytes;
+
+  /**
+   * Sets up the headless environment and initializes the metadata.
+   *
+   * @throws Exception
+   *           the setup failed
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    HeadlessEnvironment.initialize();
+    mConfigBytes = HeadlessEnvironment.getConfigBytes();
+
+    // metadata is loaded once per session, don't measure it here
+    MetadataFactory.getRuleGroupMetadata();
+  }
+
+  /**
+   * Reads the modules of the configuration.
+   *
+   * @return the modules
+   * @throws Exception
+   *           the configuration could not be read
+   */
+  @Benchmark
+  public List<Module> read() throws Exception {
+    return ConfigurationReader.read(new InputSource(new ByteArrayInputStream(mConfigBytes)));
+  }
+
+  /**
+   * Reads the additional data of the configuration.
+   *
+   * @return the additional data
+   * @throws Exception
+   *           the configuration could not be read
+   */
+  @Benchmark
+  public AdditionalConfigData getAdditionalConfigData() throws Exception {
+    return ConfigurationReader
+            .getAdditionalConfigData(new InputSource(new ByteArrayInputStream(mConfigBytes)));
+  }
+}
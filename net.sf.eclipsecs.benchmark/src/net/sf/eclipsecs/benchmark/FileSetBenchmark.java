@@ -0,0 +1,153 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.eclipsecs.core.projectconfig.FileMatchPattern;
+import net.sf.eclipsecs.core.projectconfig.FileSet;
+import net.sf.eclipsecs.core.projectconfig.FileSetMatcher;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the matching of files against file sets with a growing number of patterns, as done
+ * for every changed file during a build.
+ *
+ * @author Lars Ködderitzsch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class FileSetBenchmark {
+
+  /** The number of files matched per invocation. */
+  private static final int FILE_COUNT = 1000;
+
+  /** The number of packages the files are spread across. */
+  private static final int PACKAGE_COUNT = 50;
+
+  /** The number of patterns of the file set. */
+  @Param({ "1", "10", "50" })
+  public int mPatternCount;
+
+  /** The file set. */
+  private FileSet mFileSet;
+
+  /** The files to match. */
+  private List<IFile> mFiles;
+
+  /**
+   * Builds the file set and the files. Paths and patterns are generated deterministically, so
+   * that results of different runs are comparable.
+   *
+   * @throws Exception
+   *           the setup failed
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+
+    List<FileMatchPattern> patterns = new ArrayList<>();
+    patterns.add(new FileMatchPattern(".java$")); //$NON-NLS-1$
+    for (int i = 1; i < mPatternCount; i++) {
+
+      // alternate between excluded packages and included generated sources
+      FileMatchPattern pattern = null;
+      if (i % 2 == 1) {
+        pattern = new FileMatchPattern("^src/pkg" + (i % PACKAGE_COUNT) + "/internal/.*"); //$NON-NLS-1$ //$NON-NLS-2$
+        pattern.setIsIncludePattern(false);
+      } else {
+        pattern = new FileMatchPattern("^gen/pkg" + (i % PACKAGE_COUNT) + "/.*\\.java$"); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      patterns.add(pattern);
+    }
+
+    mFileSet = new FileSet("benchmark", null); //$NON-NLS-1$
+    mFileSet.setFileMatchPatterns(patterns);
+
+    IProject project = HeadlessEnvironment.createProject("benchmark"); //$NON-NLS-1$
+    mFiles = new ArrayList<>(FILE_COUNT);
+    for (int i = 0; i < FILE_COUNT; i++) {
+
+      String folder = (i % 3 == 0 ? "gen" : "src") + "/pkg" + (i % PACKAGE_COUNT); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      if (i % 5 == 0) {
+        folder = folder + "/internal"; //$NON-NLS-1$
+      }
+      String extension = i % 10 == 0 ? ".properties" : ".java"; //$NON-NLS-1$ //$NON-NLS-2$
+      mFiles.add(HeadlessEnvironment.createFile(project, folder + "/File" + i + extension)); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Matches all files against the file set.
+   *
+   * @return the number of included files
+   */
+  @Benchmark
+  public int includesFile() {
+
+    int included = 0;
+    for (IFile file : mFiles) {
+      if (mFileSet.includesFile(file)) {
+        included++;
+      }
+    }
+    return included;
+  }
+
+  /**
+   * Matches all files against the file set with a folder memo, as done during a build.
+   *
+   * @return the number of included files
+   */
+  @Benchmark
+  public int includesFileWithFolderMemo() {
+
+    FileSetMatcher.FolderMemo matcher = mFileSet.getMatcher().newFolderMemo();
+
+    int included = 0;
+    for (IFile file : mFiles) {
+      if (matcher.matches(file.getProjectRelativePath().toString())) {
+        included++;
+      }
+    }
+    return included;
+  }
+}
@@ -0,0 +1,283 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.benchmark;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import net.sf.eclipsecs.core.CheckstylePlugin;
+import net.sf.eclipsecs.core.config.CheckConfiguration;
+import net.sf.eclipsecs.core.config.ICheckConfiguration;
+import net.sf.eclipsecs.core.config.configtypes.ConfigurationType;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Sets up the core plugin for use outside of a running Eclipse platform. The addon extension
+ * classloader is replaced by the classloader of the benchmarks, which sees Checkstyle and the
+ * metadata of the checkstyle plugin. Projects and files are simulated by dynamic proxies which
+ * answer the few methods used by the benchmarked code.
+ *
+ * @author Lars Ködderitzsch
+ */
+final class HeadlessEnvironment {
+
+  /** Classpath location of the check configuration used by the benchmarks. */
+  static final String CONFIG_RESOURCE = "net/sf/eclipsecs/benchmark/benchmark_checks.xml"; //$NON-NLS-1$
+
+  /** The local copy of the check configuration, like an external configuration file. */
+  private static File sConfigFile;
+
+  /**
+   * Hidden utility class constructor.
+   */
+  private HeadlessEnvironment() {
+    // noop
+  }
+
+  /**
+   * Installs the headless plugin instance, if not done before.
+   *
+   * @throws IOException
+   *           the check configuration could not be copied to a local file
+   */
+  static synchronized void initialize() throws IOException {
+
+    if (CheckstylePlugin.getDefault() == null) {
+      new HeadlessPlugin();
+    }
+
+    if (sConfigFile == null) {
+      File configFile = File.createTempFile("benchmark_checks", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+      configFile.deleteOnExit();
+      try (InputStream in = getConfigStream()) {
+        Files.copy(in, configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      sConfigFile = configFile;
+    }
+  }
+
+  /**
+   * Returns the content of the benchmark check configuration.
+   *
+   * @return the configuration file content
+   * @throws IOException
+   *           the configuration could not be read
+   */
+  static byte[] getConfigBytes() throws IOException {
+    try (InputStream in = getConfigStream()) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+
+  /**
+   * Creates a global check configuration for the benchmark configuration file.
+   *
+   * @param name
+   *          the name of the check configuration, distinct names are cached separately
+   * @return the check configuration
+   */
+  static ICheckConfiguration createCheckConfiguration(String name) {
+    return createCheckConfiguration(name, sConfigFile);
+  }
+
+  /**
+   * Creates a global check configuration for a copy of the benchmark configuration file. The copy
+   * differs by a message of the variant, so that checkers cached for other variants don't match.
+   *
+   * @param name
+   *          the name of the check configuration
+   * @param variant
+   *          the variant of the configuration content
+   * @param configFile
+   *          the file receiving the copy
+   * @return the check configuration
+   * @throws IOException
+   *           the copy could not be written
+   */
+  static ICheckConfiguration createCheckConfiguration(String name, String variant,
+          File configFile) throws IOException {
+
+    String checker = "<module name=\"Checker\">"; //$NON-NLS-1$
+    String message = "\n    <message key=\"benchmark.variant\" value=\"" //$NON-NLS-1$
+            + variant + "\"/>"; //$NON-NLS-1$
+    String content = new String(getConfigBytes(), StandardCharsets.UTF_8).replace(checker,
+            checker + message);
+    Files.write(configFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return createCheckConfiguration(name, configFile);
+  }
+
+  private static ICheckConfiguration createCheckConfiguration(String name, File configFile) {
+
+    LocalFileConfigurationType type = new LocalFileConfigurationType();
+    type.initialize("Benchmark", "benchmark", CheckstylePlugin.PLUGIN_ID, false, false, false); //$NON-NLS-1$ //$NON-NLS-2$
+    return new CheckConfiguration(name, configFile.getAbsolutePath(), null, type, true, null,
+            null);
+  }
+
+  /**
+   * Creates a simulated project.
+   *
+   * @param name
+   *          the project name
+   * @return the project
+   */
+  static IProject createProject(final String name) {
+
+    return createProxy(IProject.class, new InvocationHandler() {
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+
+        switch (method.getName()) {
+          case "getName": //$NON-NLS-1$
+            return name;
+          case "getDefaultCharset": //$NON-NLS-1$
+            return StandardCharsets.UTF_8.name();
+          case "getType": //$NON-NLS-1$
+            return Integer.valueOf(IResource.PROJECT);
+          case "getFullPath": //$NON-NLS-1$
+            return Path.ROOT.append(name);
+          case "toString": //$NON-NLS-1$
+            return "P/" + name; //$NON-NLS-1$
+          default:
+            return handleDefault(proxy, method, args);
+        }
+      }
+    });
+  }
+
+  /**
+   * Creates a simulated file.
+   *
+   * @param project
+   *          the project containing the file
+   * @param projectRelativePath
+   *          the project relative path of the file
+   * @return the file
+   */
+  static IFile createFile(final IProject project, String projectRelativePath) {
+
+    final IPath path = new Path(projectRelativePath);
+    return createProxy(IFile.class, new InvocationHandler() {
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+
+        switch (method.getName()) {
+          case "getName": //$NON-NLS-1$
+            return path.lastSegment();
+          case "getProject": //$NON-NLS-1$
+            return project;
+          case "getProjectRelativePath": //$NON-NLS-1$
+            return path;
+          case "getFullPath": //$NON-NLS-1$
+            return project.getFullPath().append(path);
+          case "getFileExtension": //$NON-NLS-1$
+            return path.getFileExtension();
+          case "getType": //$NON-NLS-1$
+            return Integer.valueOf(IResource.FILE);
+          case "toString": //$NON-NLS-1$
+            return "L" + project.getFullPath().append(path); //$NON-NLS-1$
+          default:
+            return handleDefault(proxy, method, args);
+        }
+      }
+    });
+  }
+
+  private static InputStream getConfigStream() throws IOException {
+
+    URL url = HeadlessEnvironment.class.getClassLoader().getResource(CONFIG_RESOURCE);
+    if (url == null) {
+      throw new IOException("Missing " + CONFIG_RESOURCE); //$NON-NLS-1$
+    }
+    return url.openStream();
+  }
+
+  private static <T> T createProxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(HeadlessEnvironment.class.getClassLoader(),
+            new Class<?>[] { type }, handler));
+  }
+
+  /**
+   * Answers the methods of <code>Object</code> by identity and all others with default values.
+   */
+  private static Object handleDefault(Object proxy, Method method, Object[] args) {
+
+    switch (method.getName()) {
+      case "equals": //$NON-NLS-1$
+        return Boolean.valueOf(proxy == args[0]);
+      case "hashCode": //$NON-NLS-1$
+        return Integer.valueOf(System.identityHashCode(proxy));
+      default:
+        break;
+    }
+
+    Class<?> returnType = method.getReturnType();
+    if (returnType == boolean.class) {
+      return Boolean.FALSE;
+    } else if (returnType == int.class) {
+      return Integer.valueOf(0);
+    } else if (returnType == long.class) {
+      return Long.valueOf(0);
+    }
+    return null;
+  }
+
+  /**
+   * Plugin instance used instead of the one activated by OSGi.
+   */
+  private static class HeadlessPlugin extends CheckstylePlugin {
+
+    @Override
+    public ClassLoader getAddonExtensionClassLoader() {
+      return HeadlessEnvironment.class.getClassLoader();
+    }
+  }
+
+  /**
+   * Configuration type for configuration files in the local file system, without the variable
+   * substitution of the external configuration type.
+   */
+  private static class LocalFileConfigurationType extends ConfigurationType {
+
+    @Override
+    protected URL resolveLocation(ICheckConfiguration checkConfiguration) throws IOException {
+      return new File(checkConfiguration.getLocation()).toURI().toURL();
+    }
+  }
+}
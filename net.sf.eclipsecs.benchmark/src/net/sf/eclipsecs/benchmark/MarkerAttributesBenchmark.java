@@ -0,0 +1,145 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.benchmark;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.checks.coding.MagicNumberCheck;
+import com.puppycrawl.tools.checkstyle.checks.javadoc.JavadocMethodCheck;
+import com.puppycrawl.tools.checkstyle.checks.naming.MemberNameCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck;
+import com.puppycrawl.tools.checkstyle.checks.whitespace.WhitespaceAroundCheck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.eclipsecs.core.builder.MarkerAttributeTable;
+import net.sf.eclipsecs.core.config.meta.MetadataFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the construction of marker attributes from audit events, using the same
+ * {@link MarkerAttributeTable} as the audit listener of the <code>Auditor</code>.
+ *
+ * @author Lars Ködderitzsch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MarkerAttributesBenchmark {
+
+  /** The number of events per invocation. */
+  private static final int EVENT_COUNT = 500;
+
+  /** The audit events. */
+  private List<AuditEvent> mEvents;
+
+  /**
+   * Creates the audit events of a few commonly reported checks.
+   *
+   * @throws Exception
+   *           the setup failed
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    HeadlessEnvironment.initialize();
+    MetadataFactory.getRuleGroupMetadata();
+
+    mEvents = new ArrayList<>(EVENT_COUNT);
+    for (int i = 0; i < EVENT_COUNT; i++) {
+
+      LocalizedMessage message = null;
+      switch (i % 5) {
+        case 0:
+          message = createMessage(i, LineLengthCheck.class, "maxLineLen", 100, 120); //$NON-NLS-1$
+          break;
+        case 1:
+          message = createMessage(i, MemberNameCheck.class, "name.invalidPattern", "field", //$NON-NLS-1$ //$NON-NLS-2$
+                  "^m[A-Z][a-zA-Z0-9]*$"); //$NON-NLS-1$
+          break;
+        case 2:
+          message = createMessage(i, MagicNumberCheck.class, "magic.number", "42"); //$NON-NLS-1$ //$NON-NLS-2$
+          break;
+        case 3:
+          message = createMessage(i, WhitespaceAroundCheck.class, "ws.notPreceded", "="); //$NON-NLS-1$ //$NON-NLS-2$
+          break;
+        default:
+          message = createMessage(i, JavadocMethodCheck.class, "javadoc.missing"); //$NON-NLS-1$
+          break;
+      }
+      mEvents.add(new AuditEvent(this, "File" + (i / 10) + ".java", message)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
+
+  /**
+   * Creates the marker attributes of all events, with a fresh table as used by each audit.
+   *
+   * @param blackhole
+   *          consumes the attributes
+   */
+  @Benchmark
+  public void createMarkerAttributes(Blackhole blackhole) {
+
+    MarkerAttributeTable table = new MarkerAttributeTable(false, false);
+    for (AuditEvent error : mEvents) {
+      blackhole.consume(table.createAttributes(error));
+    }
+  }
+
+  /**
+   * Creates the marker attributes of all events, with rule names prepended to the messages.
+   *
+   * @param blackhole
+   *          consumes the attributes
+   */
+  @Benchmark
+  public void createMarkerAttributesWithRuleNames(Blackhole blackhole) {
+
+    MarkerAttributeTable table = new MarkerAttributeTable(true, false);
+    for (AuditEvent error : mEvents) {
+      blackhole.consume(table.createAttributes(error));
+    }
+  }
+
+  private static LocalizedMessage createMessage(int line, Class<?> sourceClass, String key,
+          Object... args) {
+    return new LocalizedMessage(line, 1, sourceClass.getPackage().getName() + ".messages", key, //$NON-NLS-1$
+            args, SeverityLevel.WARNING, null, sourceClass, null);
+  }
+}
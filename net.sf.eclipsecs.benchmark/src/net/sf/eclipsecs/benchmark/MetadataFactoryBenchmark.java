@@ -0,0 +1,125 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.eclipsecs.core.config.meta.MetadataFactory;
+import net.sf.eclipsecs.core.config.meta.RuleGroupMetadata;
+import net.sf.eclipsecs.core.config.meta.RuleMetadata;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the metadata lookups done for every configured module and every reported event, as
+ * well as the initial loading of the metadata.
+ *
+ * @author Lars Ködderitzsch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MetadataFactoryBenchmark {
+
+  /** The internal names of all known modules. */
+  private List<String> mInternalNames;
+
+  /** The alternative names (e.g. the class names) of all known modules. */
+  private List<String> mAlternativeNames;
+
+  /**
+   * Loads the metadata and collects the names to look up.
+   *
+   * @throws Exception
+   *           the setup failed
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    HeadlessEnvironment.initialize();
+
+    mInternalNames = new ArrayList<>();
+    mAlternativeNames = new ArrayList<>();
+    for (RuleGroupMetadata group : MetadataFactory.getRuleGroupMetadata()) {
+      for (RuleMetadata rule : group.getRuleMetadata()) {
+        mInternalNames.add(rule.getInternalName());
+        mAlternativeNames.addAll(rule.getAlternativeNames());
+      }
+    }
+  }
+
+  /**
+   * Looks up all modules by internal name.
+   *
+   * @param blackhole
+   *          consumes the metadata
+   */
+  @Benchmark
+  public void getRuleMetadataByInternalName(Blackhole blackhole) {
+    for (String name : mInternalNames) {
+      blackhole.consume(MetadataFactory.getRuleMetadata(name));
+    }
+  }
+
+  /**
+   * Looks up all modules by alternative name, like the source names of audit events.
+   *
+   * @param blackhole
+   *          consumes the metadata
+   */
+  @Benchmark
+  public void getRuleMetadataByAlternativeName(Blackhole blackhole) {
+    for (String name : mAlternativeNames) {
+      blackhole.consume(MetadataFactory.getRuleMetadata(name));
+    }
+  }
+
+  /**
+   * Loads all metadata from the metadata files.
+   *
+   * @return the rule groups
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 20)
+  public List<RuleGroupMetadata> refresh() {
+    MetadataFactory.refresh();
+    return MetadataFactory.getRuleGroupMetadata();
+  }
+}
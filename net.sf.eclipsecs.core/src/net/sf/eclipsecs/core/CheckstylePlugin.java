@@ -48,7 +48,7 @@ public class CheckstylePlugin extends Plugin {
   /** The shared instance. */
   private static CheckstylePlugin sPlugin;
 
-  private ClassLoader mAddonExtensionClassLoader;
+  private ExtensionClassLoader mAddonExtensionClassLoader;
 
   /**
    * The constructor.
@@ -79,6 +79,15 @@ public class CheckstylePlugin extends Plugin {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void stop(BundleContext context) throws Exception {
+    mAddonExtensionClassLoader.dispose();
+    super.stop(context);
+  }
+
   /**
    * Returns the shared instance.
    *
@@ -104,6 +113,11 @@ public class CheckstylePlugin extends Plugin {
    */
   public static Locale getPlatformLocale() {
 
+    // headless use outside of a running platform, e.g. benchmarks
+    if (!Platform.isRunning()) {
+      return Locale.getDefault();
+    }
+
     String nl = Platform.getNL();
     String[] parts = nl.split("_"); //$NON-NLS-1$
 
@@ -63,9 +63,30 @@ public class CheckstylePluginPrefs extends AbstractPreferenceInitializer {
    */
   public static final String PREF_BACKGROUND_FULL_BUILD = "background.full.build"; //$NON-NLS-1$
 
+  /**
+   * Preference name for the preference that stores the number of threads used to audit the files
+   * of a check configuration in parallel.
+   */
+  public static final String PREF_AUDIT_THREADS = "audit.threads"; //$NON-NLS-1$
+
+  /**
+   * Preference name indicating if audit results of unchanged files are restored from the
+   * persistent audit result cache.
+   */
+  public static final String PREF_AUDIT_RESULT_CACHE = "audit.result.cache"; //$NON-NLS-1$
+
+  /**
+   * Preference name indicating if audits record timing metrics per module and file, see
+   * <code>net.sf.eclipsecs.core.builder.AuditInstrumentation</code>.
+   */
+  public static final String PREF_AUDIT_INSTRUMENTATION = "audit.instrumentation"; //$NON-NLS-1$
+
   /** Default value for the marker limitation. */
   public static final int MARKER_LIMIT = 100;
 
+  /** Default value for the number of audit threads (sequential audit). */
+  public static final int AUDIT_THREADS = 1;
+
   /**
    * {@inheritDoc}
    */
@@ -78,6 +99,9 @@ public class CheckstylePluginPrefs extends AbstractPreferenceInitializer {
     prefs.putBoolean(PREF_LIMIT_MARKERS_PER_RESOURCE, false);
     prefs.putInt(PREF_MARKER_AMOUNT_LIMIT, MARKER_LIMIT);
     prefs.putBoolean(PREF_BACKGROUND_FULL_BUILD, false);
+    prefs.putInt(PREF_AUDIT_THREADS, AUDIT_THREADS);
+    prefs.putBoolean(PREF_AUDIT_RESULT_CACHE, false);
+    prefs.putBoolean(PREF_AUDIT_INSTRUMENTATION, false);
 
     try {
       prefs.flush();
@@ -48,7 +48,7 @@ public final class Messages extends NLS {
 
   public static String Auditor_msgMsgCheckstyleInternalError;
 
-  public static String AuditorJob_msgBuildProject;
+  public static String ApplyModuleChangesJob_msgApplyChanges;
 
   public static String BuildProjectJob_msgBuildAllProjects;
 
@@ -64,6 +64,8 @@ public final class Messages extends NLS {
 
   public static String SimpleFileSetsEditor_nameAllFileset;
 
+  public static String WarmUpCheckersJob_title;
+
   public static String ProjectConfigurationType_msgFileNotFound;
 
   public static String errorEmptyPattern;
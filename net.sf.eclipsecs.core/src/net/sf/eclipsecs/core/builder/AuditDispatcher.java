@@ -0,0 +1,153 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.eclipsecs.core.Messages;
+import net.sf.eclipsecs.core.config.ICheckConfiguration;
+import net.sf.eclipsecs.core.projectconfig.FileSet;
+import net.sf.eclipsecs.core.projectconfig.FileSetMatcher;
+import net.sf.eclipsecs.core.projectconfig.IProjectConfiguration;
+import net.sf.eclipsecs.core.util.CheckstylePluginException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Assigns the files of a build to the auditors of the file sets of a project configuration. File
+ * sets that share the same check configuration merge into one auditor. Each file is matched once
+ * and only against file sets whose auditor has not already taken it.
+ *
+ * @author Lars Ködderitzsch
+ */
+final class AuditDispatcher {
+
+  /** The auditors by check configuration. */
+  private final Map<ICheckConfiguration, Auditor> mAudits = new HashMap<>();
+
+  /** The matchers of the enabled file sets. */
+  private final List<FileSetMatcher.FolderMemo> mFileSetMatchers = new ArrayList<>();
+
+  /** The auditors of the enabled file sets, parallel to the matchers. */
+  private final List<Auditor> mFileSetAudits = new ArrayList<>();
+
+  /** The auditors the current file has been assigned to. */
+  private final Set<Auditor> mFileAudits = new HashSet<>();
+
+  /** The files assigned to at least one auditor. */
+  private final List<IFile> mAuditedFiles = new ArrayList<>();
+
+  /**
+   * Creates the dispatcher for a project configuration.
+   *
+   * @param configuration
+   *          the project configuration
+   * @param project
+   *          the project
+   * @param moduleNames
+   *          the modules to restrict the audits to, or <code>null</code> for all modules
+   * @throws CheckstylePluginException
+   *           an enabled file set has no check configuration
+   */
+  AuditDispatcher(IProjectConfiguration configuration, IProject project, Set<String> moduleNames)
+          throws CheckstylePluginException {
+
+    for (FileSet fileSet : configuration.getFileSets()) {
+
+      // skip not enabled filesets
+      if (!fileSet.isEnabled()) {
+        continue;
+      }
+
+      ICheckConfiguration checkConfig = fileSet.getCheckConfig();
+      if (checkConfig == null) {
+        throw new CheckstylePluginException(
+                NLS.bind(Messages.errorNoCheckConfig, project.getName()));
+      }
+
+      // create the audit with the file sets check configuration
+      Auditor audit = mAudits.get(checkConfig);
+      if (audit == null) {
+        audit = new Auditor(checkConfig);
+        if (moduleNames != null) {
+          audit.setModuleFilter(moduleNames);
+        }
+        mAudits.put(checkConfig, audit);
+      }
+
+      mFileSetMatchers.add(fileSet.getMatcher().newFolderMemo());
+      mFileSetAudits.add(audit);
+    }
+  }
+
+  /**
+   * Adds a file to the auditors of all file sets including it.
+   *
+   * @param file
+   *          the file
+   */
+  void dispatch(IFile file) {
+
+    String filePath = file.getProjectRelativePath().toString();
+    mFileAudits.clear();
+
+    for (int i = 0, size = mFileSetMatchers.size(); i < size; i++) {
+      Auditor audit = mFileSetAudits.get(i);
+
+      // skip file sets whose audit already contains the file
+      if (!mFileAudits.contains(audit) && mFileSetMatchers.get(i).matches(filePath)) {
+        audit.addFile(file);
+        mFileAudits.add(audit);
+      }
+    }
+
+    if (!mFileAudits.isEmpty()) {
+      mAuditedFiles.add(file);
+    }
+  }
+
+  /**
+   * Returns the auditors.
+   *
+   * @return the auditors
+   */
+  Collection<Auditor> getAuditors() {
+    return mAudits.values();
+  }
+
+  /**
+   * Returns the files assigned to at least one auditor.
+   *
+   * @return the files
+   */
+  List<IFile> getAuditedFiles() {
+    return mAuditedFiles;
+  }
+}
@@ -0,0 +1,221 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.eclipsecs.core.CheckstylePlugin;
+import net.sf.eclipsecs.core.CheckstylePluginPrefs;
+import net.sf.eclipsecs.core.config.meta.MetadataFactory;
+import net.sf.eclipsecs.core.config.meta.RuleMetadata;
+import net.sf.eclipsecs.core.util.CheckstyleLog;
+
+/**
+ * Entry point to the audit instrumentation. If enabled by the preference
+ * {@link CheckstylePluginPrefs#PREF_AUDIT_INSTRUMENTATION}, each audit records {@link AuditMetrics}
+ * which are kept in memory for the most recent audits and written as JSON report to the
+ * <code>audit-metrics</code> folder in the plugin state location, one file per project and check
+ * configuration.
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class AuditInstrumentation {
+
+  /** Name of the folder in the state location containing the metric reports. */
+  private static final String METRICS_FOLDER = "audit-metrics"; //$NON-NLS-1$
+
+  /** The number of recent audits whose metrics are kept in memory. */
+  private static final int MAX_RECENT_METRICS = 20;
+
+  /** The names of the modules by the names of their implementing classes. */
+  private static final Map<String, String> sModuleClasses = new ConcurrentHashMap<>();
+
+  /** The names of the modules by the names of the super classes their classes inherit from. */
+  private static final Map<String, Set<String>> sInheritingModules = new ConcurrentHashMap<>();
+
+  /** The metrics of the recent audits, most recent first. */
+  private static final Deque<AuditMetrics> sRecentMetrics = new ArrayDeque<>();
+
+  /**
+   * Hidden utility class constructor.
+   */
+  private AuditInstrumentation() {
+    // noop
+  }
+
+  /**
+   * Returns if audits should record metrics.
+   *
+   * @return <code>true</code> if the instrumentation is enabled
+   */
+  public static boolean isEnabled() {
+    return CheckstylePluginPrefs.getBoolean(CheckstylePluginPrefs.PREF_AUDIT_INSTRUMENTATION);
+  }
+
+  /**
+   * Returns the metrics of the most recent audits.
+   *
+   * @return the metrics, most recent first
+   */
+  public static List<AuditMetrics> getRecentMetrics() {
+    synchronized (sRecentMetrics) {
+      return new ArrayList<>(sRecentMetrics);
+    }
+  }
+
+  /**
+   * Returns the folder the metric reports are written to.
+   *
+   * @return the report folder
+   */
+  public static File getReportFolder() {
+    return CheckstylePlugin.getDefault().getStateLocation().append(METRICS_FOLDER).toFile();
+  }
+
+  /**
+   * Removes the recorded metrics and the written reports.
+   */
+  public static void clear() {
+    synchronized (sRecentMetrics) {
+      sRecentMetrics.clear();
+    }
+
+    File[] reports = getReportFolder().listFiles();
+    if (reports != null) {
+      for (File report : reports) {
+        report.delete();
+      }
+    }
+  }
+
+  /**
+   * Registers the class of a configured module instance, so sampled stack frames can be
+   * attributed to the module. Frames of methods inherited from a super class carry the name of the
+   * super class, therefore the module is registered for its super classes as well.
+   *
+   * @param moduleClass
+   *          the class of the module instance
+   * @param moduleName
+   *          the name of the module as used in the configuration
+   */
+  static void registerModuleClass(Class<?> moduleClass, String moduleName) {
+    if (sModuleClasses.containsKey(moduleClass.getName())) {
+      return;
+    }
+
+    String internalName = getInternalName(moduleName);
+    for (Class<?> superClass = moduleClass.getSuperclass(); superClass != null
+            && superClass != Object.class; superClass = superClass.getSuperclass()) {
+      Set<String> modules = sInheritingModules.get(superClass.getName());
+      if (modules == null) {
+        modules = ConcurrentHashMap.newKeySet();
+        Set<String> existing = sInheritingModules.putIfAbsent(superClass.getName(), modules);
+        modules = existing != null ? existing : modules;
+      }
+      modules.add(internalName);
+    }
+    sModuleClasses.put(moduleClass.getName(), internalName);
+  }
+
+  /**
+   * Returns the name of the module implemented by a class.
+   *
+   * @param className
+   *          the name of the class
+   * @return the module name or <code>null</code> if the class does not implement a known module
+   */
+  static String getModuleForClass(String className) {
+    return sModuleClasses.get(className);
+  }
+
+  /**
+   * Returns the names of the modules whose classes inherit from a class.
+   *
+   * @param className
+   *          the name of the class
+   * @return the module names, empty if no module inherits from the class
+   */
+  static Set<String> getModulesInheriting(String className) {
+    Set<String> modules = sInheritingModules.get(className);
+    return modules != null ? modules : Collections.<String> emptySet();
+  }
+
+  /**
+   * Returns the name of the module that reported an audit event, consistent with the module names
+   * recorded in the markers.
+   *
+   * @param sourceName
+   *          the source name of the audit event
+   * @return the module name
+   */
+  static String getModuleForSource(String sourceName) {
+    String moduleName = sModuleClasses.get(sourceName);
+    return moduleName != null ? moduleName : getInternalName(sourceName);
+  }
+
+  /**
+   * Publishes the metrics of a finished audit.
+   *
+   * @param metrics
+   *          the audit metrics
+   */
+  static void publish(AuditMetrics metrics) {
+
+    synchronized (sRecentMetrics) {
+      sRecentMetrics.addFirst(metrics);
+      while (sRecentMetrics.size() > MAX_RECENT_METRICS) {
+        sRecentMetrics.removeLast();
+      }
+    }
+
+    File folder = getReportFolder();
+    folder.mkdirs();
+    File report = new File(folder, toFileName(metrics.getProjectName()) + "_" //$NON-NLS-1$
+            + toFileName(metrics.getCheckConfigurationName()) + ".json"); //$NON-NLS-1$
+    try {
+      Files.write(metrics.toJson().getBytes(StandardCharsets.UTF_8), report);
+    } catch (IOException e) {
+      CheckstyleLog.log(e);
+    }
+  }
+
+  private static String getInternalName(String moduleName) {
+    RuleMetadata metadata = MetadataFactory.getRuleMetadata(moduleName);
+    return metadata != null ? metadata.getInternalName() : moduleName;
+  }
+
+  private static String toFileName(String name) {
+    return String.valueOf(name).replaceAll("[^A-Za-z0-9._-]", "_"); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+}
@@ -0,0 +1,429 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import com.google.common.cache.CacheStats;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics recorded during one audit of a project's files with a check configuration. All times
+ * are in nanoseconds. Times of modules and file parsing are estimated by sampling the audit
+ * threads, the other times are measured. The estimates are only recorded for the whole audit,
+ * since the few samples falling on a single file don't allow for a meaningful breakdown.
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class AuditMetrics {
+
+  /** The name of the audited project. */
+  private final String mProjectName;
+
+  /** The name of the check configuration. */
+  private final String mCheckConfigurationName;
+
+  /** The time the audit started, in milliseconds since the epoch. */
+  private final long mTimestamp;
+
+  /** The time taken to create (or fetch) the checker. */
+  private long mCheckerCreationTime;
+
+  /** The time taken to initialize the project classloader. */
+  private long mClassLoaderInitTime;
+
+  /** The wall time of processing the files. */
+  private long mAuditTime;
+
+  /** The statistics of the checker cache at the time of the audit. */
+  private CacheStats mCheckerCacheStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+  /** The estimated time of parsing the files. */
+  private long mParseTime;
+
+  /** The metrics of the audited files, by file name. */
+  private final Map<String, FileMetrics> mFiles = new LinkedHashMap<>();
+
+  /** The metrics of the modules, by module name. */
+  private final Map<String, ModuleMetrics> mModules = new TreeMap<>();
+
+  /**
+   * Creates the metrics of an audit.
+   *
+   * @param projectName
+   *          the name of the audited project
+   * @param checkConfigurationName
+   *          the name of the check configuration
+   */
+  AuditMetrics(String projectName, String checkConfigurationName) {
+    mProjectName = projectName;
+    mCheckConfigurationName = checkConfigurationName;
+    mTimestamp = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the name of the audited project.
+   *
+   * @return the project name
+   */
+  public String getProjectName() {
+    return mProjectName;
+  }
+
+  /**
+   * Returns the name of the check configuration used for the audit.
+   *
+   * @return the check configuration name
+   */
+  public String getCheckConfigurationName() {
+    return mCheckConfigurationName;
+  }
+
+  /**
+   * Returns the time the audit started.
+   *
+   * @return the start time in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return mTimestamp;
+  }
+
+  /**
+   * Returns the time taken to create the checker, or to fetch it from the cache.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getCheckerCreationTime() {
+    return mCheckerCreationTime;
+  }
+
+  /**
+   * Returns the time taken to initialize the classloader of the project.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getClassLoaderInitTime() {
+    return mClassLoaderInitTime;
+  }
+
+  /**
+   * Returns the wall time of processing the files.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getAuditTime() {
+    return mAuditTime;
+  }
+
+  /**
+   * Returns the statistics of the checker cache at the time of the audit, summed up since the
+   * start of the plugin.
+   *
+   * @return the cache statistics
+   */
+  public CacheStats getCheckerCacheStats() {
+    return mCheckerCacheStats;
+  }
+
+  /**
+   * Returns the estimated time of parsing the files into syntax trees.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getParseTime() {
+    return mParseTime;
+  }
+
+  /**
+   * Returns the metrics of the audited files.
+   *
+   * @return the file metrics
+   */
+  public Collection<FileMetrics> getFiles() {
+    return Collections.unmodifiableCollection(mFiles.values());
+  }
+
+  /**
+   * Returns the metrics of the modules, summed up over all files.
+   *
+   * @return the module metrics by module name
+   */
+  public Map<String, ModuleMetrics> getModules() {
+    return Collections.unmodifiableMap(mModules);
+  }
+
+  void setCheckerCreationTime(long time) {
+    mCheckerCreationTime = time;
+  }
+
+  void setClassLoaderInitTime(long time) {
+    mClassLoaderInitTime = time;
+  }
+
+  void setAuditTime(long time) {
+    mAuditTime = time;
+  }
+
+  void setCheckerCacheStats(CacheStats stats) {
+    mCheckerCacheStats = stats;
+  }
+
+  void addParseTime(long time) {
+    mParseTime += time;
+  }
+
+  ModuleMetrics getModule(String moduleName) {
+    ModuleMetrics module = mModules.get(moduleName);
+    if (module == null) {
+      module = new ModuleMetrics(moduleName);
+      mModules.put(moduleName, module);
+    }
+    return module;
+  }
+
+  FileMetrics getFile(String fileName) {
+    FileMetrics file = mFiles.get(fileName);
+    if (file == null) {
+      file = new FileMetrics(fileName);
+      mFiles.put(fileName, file);
+    }
+    return file;
+  }
+
+  /**
+   * Writes the metrics as JSON document. Times are written in milliseconds, the estimated times of
+   * parsing and of the modules are marked by the prefix <code>estimated</code>.
+   *
+   * @return the JSON document
+   */
+  public String toJson() {
+
+    StringBuilder buf = new StringBuilder();
+    buf.append("{\n"); //$NON-NLS-1$
+    appendField(buf, 1, "project", mProjectName).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendField(buf, 1, "checkConfiguration", mCheckConfigurationName).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendField(buf, 1, "timestamp", mTimestamp).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendTime(buf, 1, "checkerCreationMs", mCheckerCreationTime).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendTime(buf, 1, "classLoaderInitMs", mClassLoaderInitTime).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendTime(buf, 1, "auditMs", mAuditTime).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendField(buf, 1, "checkerCacheHits", mCheckerCacheStats.hitCount()).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendField(buf, 1, "checkerCacheMisses", mCheckerCacheStats.missCount()).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    appendField(buf, 1, "checkerCacheEvictions", mCheckerCacheStats.evictionCount()) //$NON-NLS-1$
+            .append(",\n"); //$NON-NLS-1$
+
+    appendTime(buf, 1, "estimatedParseMs", mParseTime).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    indent(buf, 1).append("\"modules\": "); //$NON-NLS-1$
+    appendModules(buf, 1, mModules.values()).append(",\n"); //$NON-NLS-1$
+
+    indent(buf, 1).append("\"files\": ["); //$NON-NLS-1$
+    boolean first = true;
+    for (FileMetrics file : mFiles.values()) {
+      buf.append(first ? "\n" : ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+      first = false;
+
+      indent(buf, 2).append("{\n"); //$NON-NLS-1$
+      appendField(buf, 3, "file", file.mFileName).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+      appendTime(buf, 3, "timeMs", file.mTime).append(",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+      appendField(buf, 3, "violations", file.mViolationCount).append('\n'); //$NON-NLS-1$
+      indent(buf, 2).append('}');
+    }
+    buf.append(first ? "]\n" : "\n  ]\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    buf.append("}\n"); //$NON-NLS-1$
+    return buf.toString();
+  }
+
+  private static StringBuilder appendModules(StringBuilder buf, int level,
+          Collection<ModuleMetrics> modules) {
+
+    buf.append('[');
+    boolean first = true;
+    for (ModuleMetrics module : modules) {
+      buf.append(first ? "\n" : ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+      first = false;
+
+      indent(buf, level + 1).append("{ "); //$NON-NLS-1$
+      appendField(buf, 0, "module", module.mModuleName).append(", "); //$NON-NLS-1$ //$NON-NLS-2$
+      appendTime(buf, 0, "estimatedTimeMs", module.mTime).append(", "); //$NON-NLS-1$ //$NON-NLS-2$
+      appendField(buf, 0, "violations", module.mViolationCount).append(" }"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    if (!first) {
+      buf.append('\n');
+      indent(buf, level);
+    }
+    return buf.append(']');
+  }
+
+  private static StringBuilder appendField(StringBuilder buf, int level, String name,
+          String value) {
+
+    indent(buf, level).append('"').append(name).append("\": "); //$NON-NLS-1$
+    if (value == null) {
+      return buf.append("null"); //$NON-NLS-1$
+    }
+
+    buf.append('"');
+    for (int i = 0, length = value.length(); i < length; i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        buf.append('\\').append(c);
+      } else if (c < ' ') {
+        buf.append(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+      } else {
+        buf.append(c);
+      }
+    }
+    return buf.append('"');
+  }
+
+  private static StringBuilder appendField(StringBuilder buf, int level, String name,
+          long value) {
+    return indent(buf, level).append('"').append(name).append("\": ").append(value); //$NON-NLS-1$
+  }
+
+  private static StringBuilder appendTime(StringBuilder buf, int level, String name,
+          long nanos) {
+    double millis = (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    return indent(buf, level).append('"').append(name).append("\": ") //$NON-NLS-1$
+            .append(String.format(Locale.ENGLISH, "%.3f", millis)); //$NON-NLS-1$
+  }
+
+  private static StringBuilder indent(StringBuilder buf, int level) {
+    for (int i = 0; i < level; i++) {
+      buf.append("  "); //$NON-NLS-1$
+    }
+    return buf;
+  }
+
+  /**
+   * Metrics of one audited file.
+   */
+  public static final class FileMetrics {
+
+    /** The name of the file. */
+    private final String mFileName;
+
+    /** The wall time of processing the file. */
+    private long mTime;
+
+    /** The number of violations reported for the file. */
+    private int mViolationCount;
+
+    FileMetrics(String fileName) {
+      mFileName = fileName;
+    }
+
+    /**
+     * Returns the name of the file.
+     *
+     * @return the file name
+     */
+    public String getFileName() {
+      return mFileName;
+    }
+
+    /**
+     * Returns the wall time of processing the file.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getTime() {
+      return mTime;
+    }
+
+    /**
+     * Returns the number of violations reported for the file.
+     *
+     * @return the violation count
+     */
+    public int getViolationCount() {
+      return mViolationCount;
+    }
+
+    void addTime(long time) {
+      mTime += time;
+    }
+
+    void addViolation() {
+      mViolationCount++;
+    }
+  }
+
+  /**
+   * Metrics of one module, summed up over all files.
+   */
+  public static final class ModuleMetrics {
+
+    /** The name of the module. */
+    private final String mModuleName;
+
+    /** The estimated time spent in the module. */
+    private long mTime;
+
+    /** The number of violations reported by the module. */
+    private int mViolationCount;
+
+    ModuleMetrics(String moduleName) {
+      mModuleName = moduleName;
+    }
+
+    /**
+     * Returns the name of the module, the internal name of its metadata if known.
+     *
+     * @return the module name
+     */
+    public String getModuleName() {
+      return mModuleName;
+    }
+
+    /**
+     * Returns the estimated time spent in the module.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getTime() {
+      return mTime;
+    }
+
+    /**
+     * Returns the number of violations reported by the module.
+     *
+     * @return the violation count
+     */
+    public int getViolationCount() {
+      return mViolationCount;
+    }
+
+    void addTime(long time) {
+      mTime += time;
+    }
+
+    void addViolation() {
+      mViolationCount++;
+    }
+  }
+}
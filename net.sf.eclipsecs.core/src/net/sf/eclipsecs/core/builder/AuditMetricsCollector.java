@@ -0,0 +1,284 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Audit listener recording the {@link AuditMetrics} of an audit. Checkstyle does not report when
+ * the single checks of a tree walker are run, so the time spent in the modules is estimated by
+ * sampling the stacks of the threads currently processing a file. Each sample attributes the time
+ * since the previous sample to the innermost module on the stack, or to parsing if the thread is
+ * within the generated Java grammar. Frames of inherited methods are attributed to the module
+ * instances whose classes inherit them. The recorded module and parse times are estimates, their
+ * accuracy depends on the sample interval and the number of samples, so they are only recorded
+ * for the whole audit. The listener may be added to several checkers running in parallel.
+ *
+ * @author Lars Ködderitzsch
+ */
+final class AuditMetricsCollector implements AuditListener {
+
+  /** The interval in milliseconds in which the audit threads are sampled. */
+  private static final long SAMPLE_INTERVAL = 20;
+
+  /** The maximum number of stack frames inspected per sample. */
+  private static final int MAX_STACK_DEPTH = 32;
+
+  /**
+   * Package and class name prefixes of the Java grammar used by Checkstyle. The Javadoc grammar is
+   * excluded, it is run by the Javadoc checks and counted as their time.
+   */
+  private static final String[] PARSER_PREFIXES = { "antlr.", //$NON-NLS-1$
+    "com.puppycrawl.tools.checkstyle.grammar.GeneratedJava" }; //$NON-NLS-1$
+
+  /** Suffix of the name recorded for time spent in a super class shared by several modules. */
+  private static final String SHARED_SUFFIX = " (shared)"; //$NON-NLS-1$
+
+  /** The recorded metrics. */
+  private final AuditMetrics mMetrics;
+
+  /** The times the current files have been started, by the id of the processing thread. */
+  private final Map<Long, Long> mFileStarts = new ConcurrentHashMap<>();
+
+  /** The thread sampling the audit threads. */
+  private Thread mSampler;
+
+  /** The time the audit has been started. */
+  private long mStartTime;
+
+  /** Flags if the sampling should go on. */
+  private volatile boolean mRunning;
+
+  /**
+   * Creates the collector.
+   *
+   * @param metrics
+   *          the metrics to record into
+   */
+  AuditMetricsCollector(AuditMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  /**
+   * Returns the recorded metrics. The metrics must not be accessed before {@link #stop()} has
+   * been called.
+   *
+   * @return the metrics
+   */
+  AuditMetrics getMetrics() {
+    return mMetrics;
+  }
+
+  /**
+   * Starts measuring the audit time and sampling the audit threads.
+   */
+  void start() {
+    mStartTime = System.nanoTime();
+    mRunning = true;
+
+    mSampler = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        sample();
+      }
+    }, "Checkstyle audit sampler"); //$NON-NLS-1$
+    mSampler.setDaemon(true);
+    mSampler.start();
+  }
+
+  /**
+   * Stops sampling and records the audit time.
+   */
+  void stop() {
+    if (mSampler == null) {
+      return;
+    }
+
+    mRunning = false;
+    mSampler.interrupt();
+    try {
+      mSampler.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    mSampler = null;
+
+    synchronized (mMetrics) {
+      mMetrics.setAuditTime(System.nanoTime() - mStartTime);
+    }
+  }
+
+  @Override
+  public void auditStarted(AuditEvent event) {
+    // noop
+  }
+
+  @Override
+  public void auditFinished(AuditEvent event) {
+    // noop
+  }
+
+  @Override
+  public void fileStarted(AuditEvent event) {
+    Long threadId = Long.valueOf(Thread.currentThread().getId());
+    synchronized (mMetrics) {
+      mMetrics.getFile(event.getFileName());
+    }
+    mFileStarts.put(threadId, Long.valueOf(System.nanoTime()));
+  }
+
+  @Override
+  public void fileFinished(AuditEvent event) {
+    Long threadId = Long.valueOf(Thread.currentThread().getId());
+    Long start = mFileStarts.remove(threadId);
+    if (start != null) {
+      synchronized (mMetrics) {
+        mMetrics.getFile(event.getFileName()).addTime(System.nanoTime() - start.longValue());
+      }
+    }
+  }
+
+  @Override
+  public void addError(AuditEvent event) {
+    String moduleName = AuditInstrumentation.getModuleForSource(event.getSourceName());
+    synchronized (mMetrics) {
+      mMetrics.getFile(event.getFileName()).addViolation();
+      mMetrics.getModule(moduleName).addViolation();
+    }
+  }
+
+  @Override
+  public void addException(AuditEvent event, Throwable throwable) {
+    // noop
+  }
+
+  /**
+   * Samples the audit threads until stopped.
+   */
+  private void sample() {
+
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    long lastSample = System.nanoTime();
+
+    while (mRunning) {
+      try {
+        Thread.sleep(SAMPLE_INTERVAL);
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      long now = System.nanoTime();
+      long elapsed = now - lastSample;
+      lastSample = now;
+
+      Long[] threadIds = mFileStarts.keySet().toArray(new Long[0]);
+      if (threadIds.length == 0) {
+        continue;
+      }
+      long[] ids = new long[threadIds.length];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = threadIds[i].longValue();
+      }
+
+      ThreadInfo[] infos = threadBean.getThreadInfo(ids, MAX_STACK_DEPTH);
+      for (ThreadInfo info : infos) {
+        if (info != null) {
+          attribute(info.getStackTrace(), elapsed);
+        }
+      }
+    }
+  }
+
+  /**
+   * Attributes the time of a sample to the innermost module or to parsing. A frame of a method
+   * inherited from a super class is attributed to the calling module if that module inherits the
+   * method, otherwise (e.g. if called by the tree walker) to the single module inheriting it, or
+   * to the super class itself if it is shared by several modules. Samples within the checker
+   * framework itself (e.g. reading the file) are only part of the file time.
+   */
+  private void attribute(StackTraceElement[] stack, long time) {
+
+    String superClassName = null;
+    Set<String> inheritingModules = null;
+
+    for (StackTraceElement frame : stack) {
+      String className = frame.getClassName();
+
+      if (inheritingModules == null && isParser(className)) {
+        addParseTime(time);
+        return;
+      }
+
+      String moduleName = AuditInstrumentation.getModuleForClass(className);
+      if (moduleName != null) {
+        if (inheritingModules == null || inheritingModules.contains(moduleName)) {
+          addModuleTime(moduleName, time);
+          return;
+        }
+        break;
+      }
+
+      if (inheritingModules == null) {
+        Set<String> modules = AuditInstrumentation.getModulesInheriting(className);
+        if (!modules.isEmpty()) {
+          superClassName = className;
+          inheritingModules = modules;
+        }
+      }
+    }
+
+    if (inheritingModules != null) {
+      String moduleName = inheritingModules.size() == 1 ? inheritingModules.iterator().next()
+              : superClassName.substring(superClassName.lastIndexOf('.') + 1) + SHARED_SUFFIX;
+      addModuleTime(moduleName, time);
+    }
+  }
+
+  private void addParseTime(long time) {
+    synchronized (mMetrics) {
+      mMetrics.addParseTime(time);
+    }
+  }
+
+  private void addModuleTime(String moduleName, long time) {
+    synchronized (mMetrics) {
+      mMetrics.getModule(moduleName).addTime(time);
+    }
+  }
+
+  private static boolean isParser(String className) {
+    for (String prefix : PARSER_PREFIXES) {
+      if (className.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
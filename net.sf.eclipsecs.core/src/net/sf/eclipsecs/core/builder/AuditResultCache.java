@@ -0,0 +1,420 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+package net.sf.eclipsecs.core.builder;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.eclipsecs.core.CheckstylePlugin;
+import net.sf.eclipsecs.core.config.CheckstyleConfigurationFile;
+import net.sf.eclipsecs.core.config.ICheckConfiguration;
+import net.sf.eclipsecs.core.util.CheckstyleLog;
+import net.sf.eclipsecs.core.util.CheckstylePluginException;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.jdt.core.JavaCore;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Persistent cache of audit results, stored in the plugin state location. Results are keyed by
+ * the path and content of the audited file and grouped by a fingerprint of the check
+ * configuration, so that unchanged files can be restored instead of being audited again, even
+ * after a restart, a clean build or a branch switch.
+ * <p>
+ * The fingerprint includes the local files referenced by the configuration (e.g. suppressions or
+ * headers) and the project classpath. Configurations with checks whose results depend on other
+ * files than the audited one are not cached at all.
+ * </p>
+ *
+ * @author Lars Ködderitzsch
+ */
+final class AuditResultCache {
+
+  /** Name of the folder in the state location containing the cached results. */
+  private static final String CACHE_FOLDER = "audit-cache"; //$NON-NLS-1$
+
+  /** Cached results not used for this period are pruned. */
+  private static final long MAX_UNUSED_AGE = TimeUnit.DAYS.toMillis(30);
+
+  /** Checks whose results depend on several files, by simple name without "Check" suffix. */
+  private static final Set<String> MULTI_FILE_CHECKS = new HashSet<>(
+          Arrays.asList("Translation", "JavadocPackage")); //$NON-NLS-1$ //$NON-NLS-2$
+
+  /** Flags if the cache has been pruned during this session. */
+  private static boolean sPruned;
+
+  /** The folder containing the results for the configuration fingerprint. */
+  private final File mFolder;
+
+  /**
+   * Creates the cache for a given folder.
+   *
+   * @param folder
+   *          the folder containing the results
+   */
+  private AuditResultCache(File folder) {
+    mFolder = folder;
+  }
+
+  /**
+   * Returns the result cache for a check configuration as used by a project.
+   *
+   * @param config
+   *          the check configuration
+   * @param project
+   *          the audited project
+   * @return the result cache, or <code>null</code> if the results of the configuration cannot be
+   *         cached per file
+   * @throws CheckstylePluginException
+   *           the configuration could not be read
+   */
+  public static AuditResultCache getCache(ICheckConfiguration config, IProject project)
+          throws CheckstylePluginException {
+
+    String fingerprint = getFingerprint(config, project);
+    if (fingerprint == null) {
+      return null;
+    }
+
+    File cacheRoot = getCacheRoot();
+    pruneOnce(cacheRoot);
+
+    return new AuditResultCache(new File(cacheRoot, fingerprint));
+  }
+
+  /**
+   * Removes all cached audit results.
+   */
+  public static void cleanup() {
+    deleteRecursive(getCacheRoot());
+  }
+
+  /**
+   * Computes the key of a file's cached results from its path and content.
+   *
+   * @param file
+   *          the file
+   * @return the key or <code>null</code> if the file cannot be read
+   */
+  public String getFileKey(File file) {
+
+    try (InputStream in = new FileInputStream(file)) {
+      MessageDigest digest = createDigest();
+      update(digest, file.getAbsolutePath());
+      digest.update(ByteStreams.toByteArray(in));
+      return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the cached messages for a file.
+   *
+   * @param fileKey
+   *          the key of the file
+   * @return the messages or <code>null</code> if no results are cached for the file
+   */
+  public List<LocalizedMessage> get(String fileKey) {
+
+    File entry = getEntryFile(fileKey);
+    if (!entry.isFile()) {
+      return null;
+    }
+
+    List<LocalizedMessage> messages = null;
+    try (ObjectInputStream in = new ExtensionObjectInputStream(
+            new BufferedInputStream(new FileInputStream(entry)))) {
+
+      int size = in.readInt();
+      messages = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        messages.add((LocalizedMessage) in.readObject());
+      }
+
+      // mark as recently used
+      entry.setLastModified(System.currentTimeMillis());
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      // unreadable entry (e.g. written by another Checkstyle version), audit again
+      entry.delete();
+      messages = null;
+    }
+    return messages;
+  }
+
+  /**
+   * Stores the messages for a file.
+   *
+   * @param fileKey
+   *          the key of the file
+   * @param messages
+   *          the messages reported for the file
+   */
+  public void put(String fileKey, List<LocalizedMessage> messages) {
+
+    File entry = getEntryFile(fileKey);
+    File tmpEntry = new File(entry.getPath() + ".tmp"); //$NON-NLS-1$
+
+    entry.getParentFile().mkdirs();
+    try (OutputStream fileOut = new FileOutputStream(tmpEntry);
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fileOut))) {
+
+      out.writeInt(messages.size());
+      for (LocalizedMessage message : messages) {
+        out.writeObject(message);
+      }
+    } catch (IOException e) {
+      CheckstyleLog.log(e);
+      tmpEntry.delete();
+      return;
+    }
+
+    // entries are written to a temporary file first, so readers never see partial entries
+    entry.delete();
+    if (!tmpEntry.renameTo(entry)) {
+      tmpEntry.delete();
+    }
+  }
+
+  private File getEntryFile(String fileKey) {
+    return new File(new File(mFolder, fileKey.substring(0, 2)), fileKey);
+  }
+
+  private static File getCacheRoot() {
+    return CheckstylePlugin.getDefault().getStateLocation().append(CACHE_FOLDER).toFile();
+  }
+
+  /**
+   * Builds a fingerprint of everything besides the file itself that influences the audit results,
+   * or returns <code>null</code> if the configuration contains multi-file checks.
+   */
+  private static String getFingerprint(ICheckConfiguration config, IProject project)
+          throws CheckstylePluginException {
+
+    CheckstyleConfigurationFile configFileData = config.getCheckstyleConfiguration();
+
+    MessageDigest digest = createDigest();
+    try {
+      Configuration configuration = CheckerFactory.loadConfiguration(configFileData, project);
+      if (!updateReferencedFiles(digest, configuration)) {
+        return null;
+      }
+
+      update(digest, config.getName() + "#" + (config.isGlobal() ? "Global" : "Local")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      update(digest, String.valueOf(configFileData.getResolvedConfigFileURL()));
+      try (InputStream in = configFileData.getCheckConfigFileStream()) {
+        digest.update(ByteStreams.toByteArray(in));
+      }
+      try (InputStream in = configFileData.getAdditionalPropertiesBundleStream()) {
+        if (in != null) {
+          digest.update(ByteStreams.toByteArray(in));
+        }
+      }
+
+      // the project is used to resolve properties and provides the charset
+      update(digest, project.getName());
+      update(digest, String.valueOf(project.getLocation()));
+      update(digest, project.getDefaultCharset());
+      update(digest, CheckstylePlugin.getPlatformLocale().toString());
+
+      // type-aware checks resolve classes from the project classpath
+      if (project.hasNature(JavaCore.NATURE_ID)) {
+        update(digest, CheckerFactory.getClassLoader(project).getClassPathFingerprint(project));
+      }
+
+      // results and their serialized form depend on the Checkstyle version
+      Bundle checkstyleBundle = FrameworkUtil.getBundle(Checker.class);
+      if (checkstyleBundle != null) {
+        update(digest, checkstyleBundle.getVersion().toString());
+      }
+    } catch (IOException | CoreException | CheckstyleException e) {
+      CheckstylePluginException.rethrow(e);
+    }
+    return BaseEncoding.base16().lowerCase().encode(digest.digest());
+  }
+
+  /**
+   * Adds the modification stamps of the local files referenced by module properties to the
+   * fingerprint.
+   *
+   * @return <code>false</code> if the configuration contains a multi-file check
+   */
+  private static boolean updateReferencedFiles(MessageDigest digest, Configuration configuration)
+          throws CheckstyleException {
+
+    String name = configuration.getName();
+    name = name.substring(name.lastIndexOf('.') + 1);
+    if (name.endsWith("Check")) { //$NON-NLS-1$
+      name = name.substring(0, name.length() - "Check".length()); //$NON-NLS-1$
+    }
+    if (MULTI_FILE_CHECKS.contains(name)) {
+      return false;
+    }
+
+    for (String attributeName : configuration.getAttributeNames()) {
+      File file = toFile(configuration.getAttribute(attributeName));
+      if (file != null) {
+        update(digest, file.getAbsolutePath());
+        update(digest, file.lastModified() + ":" + file.length()); //$NON-NLS-1$
+      }
+    }
+
+    for (Configuration child : configuration.getChildren()) {
+      if (!updateReferencedFiles(digest, child)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the existing local file denoted by a property value, or <code>null</code>.
+   */
+  private static File toFile(String value) {
+
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+
+    File file = null;
+    try {
+      if (value.startsWith("file:")) { //$NON-NLS-1$
+        file = URIUtil.toFile(new URI(value));
+      } else {
+        file = new File(value);
+      }
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+    return file != null && file.isAbsolute() && file.isFile() ? file : null;
+  }
+
+  static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Removes entries that have not been used for a long time, once per session.
+   */
+  private static synchronized void pruneOnce(File cacheRoot) {
+
+    if (sPruned) {
+      return;
+    }
+    sPruned = true;
+
+    long threshold = System.currentTimeMillis() - MAX_UNUSED_AGE;
+    File[] children = cacheRoot.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        prune(child, threshold);
+      }
+    }
+  }
+
+  private static void prune(File file, long threshold) {
+
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        prune(child, threshold);
+      }
+
+      // only succeeds for folders that became empty
+      file.delete();
+    } else if (file.lastModified() < threshold) {
+      file.delete();
+    }
+  }
+
+  private static void deleteRecursive(File file) {
+
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursive(child);
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * Object input stream resolving classes through the addon extension classloader, which can see
+   * the Checkstyle classes and the classes of contributed checks.
+   */
+  private static class ExtensionObjectInputStream extends ObjectInputStream {
+
+    ExtensionObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+            throws IOException, ClassNotFoundException {
+      try {
+        return Class.forName(desc.getName(), false,
+                CheckstylePlugin.getDefault().getAddonExtensionClassLoader());
+      } catch (ClassNotFoundException e) {
+        return super.resolveClass(desc);
+      }
+    }
+  }
+}
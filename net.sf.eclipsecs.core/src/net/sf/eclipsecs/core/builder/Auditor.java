@@ -24,23 +24,36 @@ import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
 import com.puppycrawl.tools.checkstyle.api.AuditListener;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.sf.eclipsecs.core.CheckstylePluginPrefs;
 import net.sf.eclipsecs.core.Messages;
 import net.sf.eclipsecs.core.config.ConfigurationReader;
 import net.sf.eclipsecs.core.config.ICheckConfiguration;
-import net.sf.eclipsecs.core.config.Module;
-import net.sf.eclipsecs.core.config.meta.MetadataFactory;
-import net.sf.eclipsecs.core.config.meta.RuleMetadata;
 import net.sf.eclipsecs.core.util.CheckstyleLog;
 import net.sf.eclipsecs.core.util.CheckstylePluginException;
 
@@ -50,6 +63,9 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -58,6 +74,7 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.osgi.util.NLS;
@@ -70,6 +87,12 @@ public class Auditor {
   /** The interval for updating the task info. */
   private static final int MONITOR_INTERVAL = 10;
 
+  /** The number of audited files after which the buffered markers are created. */
+  private static final int MARKER_FLUSH_INTERVAL = 100;
+
+  /** The interval in milliseconds in which parallel audits check for results or cancellation. */
+  private static final long RESULT_POLL_INTERVAL = 100;
+
   /** The check configuration the auditor uses. */
   private final ICheckConfiguration mCheckConfiguration;
 
@@ -85,6 +108,27 @@ public class Auditor {
   /** Add the check module id to the message. */
   private boolean mAddModuleId = false;
 
+  /** The number of threads used to audit the files. */
+  private int mAuditThreads = 1;
+
+  /** Restore results of unchanged files from the persistent cache. */
+  private boolean mUseResultCache = false;
+
+  /** The persistent result cache used during the current audit. */
+  private AuditResultCache mResultCache;
+
+  /** Map containing the result cache keys of the audited files, by file name. */
+  private final Map<String, String> mFileKeys = new HashMap<>();
+
+  /** The names of the modules the audit is restricted to, or <code>null</code> for all modules. */
+  private Set<String> mModuleNames;
+
+  /** Record metrics of the audit. */
+  private boolean mInstrumentation = false;
+
+  /** The collector recording the metrics of the current audit, or <code>null</code>. */
+  private AuditMetricsCollector mMetricsCollector;
+
   /** Reference to the file buffer manager. */
   private final ITextFileBufferManager mFileBufferManager = FileBuffers.getTextFileBufferManager();
 
@@ -102,6 +146,33 @@ public class Auditor {
     //
     mAddRuleName = CheckstylePluginPrefs.getBoolean(CheckstylePluginPrefs.PREF_INCLUDE_RULE_NAMES);
     mAddModuleId = CheckstylePluginPrefs.getBoolean(CheckstylePluginPrefs.PREF_INCLUDE_MODULE_IDS);
+
+    mAuditThreads = Math.max(1,
+            CheckstylePluginPrefs.getInt(CheckstylePluginPrefs.PREF_AUDIT_THREADS));
+    mUseResultCache = CheckstylePluginPrefs
+            .getBoolean(CheckstylePluginPrefs.PREF_AUDIT_RESULT_CACHE);
+    mInstrumentation = AuditInstrumentation.isEnabled();
+  }
+
+  /**
+   * Returns the check configuration used by the auditor.
+   *
+   * @return the check configuration
+   */
+  public ICheckConfiguration getCheckConfiguration() {
+    return mCheckConfiguration;
+  }
+
+  /**
+   * Restricts the audit to the given reporting modules of the check configuration. Modules which
+   * don't report events on their own, like filters, are always kept. Restricted audits neither use
+   * the cached checkers nor the persistent result cache.
+   *
+   * @param moduleNames
+   *          the internal names of the modules to run
+   */
+  public void setModuleFilter(Set<String> moduleNames) {
+    mModuleNames = moduleNames;
   }
 
   /**
@@ -128,6 +199,7 @@ public class Auditor {
 
     Checker checker = null;
     CheckstyleAuditListener listener = null;
+    RecordingAuditListener recorder = null;
 
     try {
 
@@ -137,25 +209,75 @@ public class Auditor {
       monitor.beginTask(NLS.bind(Messages.Auditor_msgCheckingConfig, mCheckConfiguration.getName()),
               filesToAudit.size());
 
-      // create checker
-      checker = CheckerFactory.createChecker(mCheckConfiguration, project);
-
       // get the additional data
       ConfigurationReader.AdditionalConfigData additionalData = CheckerFactory
               .getAdditionalData(mCheckConfiguration, project);
 
-      // create and add listener
+      // create listener
       listener = new CheckstyleAuditListener(project, additionalData);
-      checker.addListener(listener);
 
-      // reconfigure the shared classloader for the current
-      // project
+      // restore the results of unchanged files from the persistent cache
+      mResultCache = null;
+      if (mUseResultCache && mModuleNames == null) {
+        mResultCache = AuditResultCache.getCache(mCheckConfiguration, project);
+        if (mResultCache != null) {
+          filesToAudit = restoreCachedResults(filesToAudit, listener);
+
+          if (filesToAudit.isEmpty()) {
+            return;
+          }
+        }
+      }
+
+      if (mInstrumentation) {
+        mMetricsCollector = new AuditMetricsCollector(
+                new AuditMetrics(project.getName(), mCheckConfiguration.getName()));
+      }
+
+      // create checker
+      long startTime = System.nanoTime();
+      if (mModuleNames != null) {
+        checker = CheckerFactory.createChecker(mCheckConfiguration, project, mModuleNames);
+      } else {
+        checker = CheckerFactory.createChecker(mCheckConfiguration, project);
+      }
+      if (mMetricsCollector != null) {
+        mMetricsCollector.getMetrics().setCheckerCreationTime(System.nanoTime() - startTime);
+        mMetricsCollector.getMetrics().setCheckerCacheStats(CheckerFactory.getCheckerCacheStats());
+      }
+
+      // update the classloader of the project, if its classpath
+      // has changed
+      startTime = System.nanoTime();
       if (project.hasNature(JavaCore.NATURE_ID)) {
-        CheckerFactory.getSharedClassLoader().intializeWithProject(project);
+        CheckerFactory.getClassLoader(project).intializeWithProject(project);
+      }
+      if (mMetricsCollector != null) {
+        mMetricsCollector.getMetrics().setClassLoaderInitTime(System.nanoTime() - startTime);
+        checker.addListener(mMetricsCollector);
+        mMetricsCollector.start();
       }
 
-      // run the files through the checker
-      checker.process(filesToAudit);
+      // run the files through the checker, the checkers of the workers would overwrite each
+      // other's Checkstyle cache file
+      if (mAuditThreads > 1 && filesToAudit.size() > 1 && mModuleNames == null
+              && !((DocumentChecker) checker).usesCacheFile()) {
+        runParallelAudit(project, checker, listener, filesToAudit);
+      } else {
+        checker.addListener(listener);
+
+        BlockingQueue<List<RecordedEvent>> results = new LinkedBlockingQueue<>();
+        if (mResultCache != null) {
+          recorder = new RecordingAuditListener(results, new AtomicBoolean());
+          checker.addListener(recorder);
+        }
+
+        checker.process(filesToAudit);
+
+        for (List<RecordedEvent> fileEvents : results) {
+          cacheResults(fileEvents);
+        }
+      }
 
     } catch (CheckstyleException e) {
       if (e.getCause() instanceof OperationCanceledException) {
@@ -165,19 +287,347 @@ public class Auditor {
       }
     } catch (CoreException e) {
       CheckstylePluginException.rethrow(e);
-    } catch (RuntimeException e) {
+    } finally {
+      monitor.done();
+
+      // create pending markers and release file buffers
       if (listener != null) {
         listener.cleanup();
       }
-      throw e;
-    } finally {
-      monitor.done();
 
       // Cleanup listener and filter
       if (checker != null) {
         checker.removeListener(listener);
+        if (recorder != null) {
+          checker.removeListener(recorder);
+        }
+
+      }
+      if (mMetricsCollector != null) {
+        mMetricsCollector.stop();
+        if (checker != null) {
+          checker.removeListener(mMetricsCollector);
+        }
+        AuditInstrumentation.publish(mMetricsCollector.getMetrics());
+        mMetricsCollector = null;
+      }
+
+      // restricted checkers are not cached
+      if (checker != null) {
+        if (mModuleNames != null) {
+          checker.destroy();
+        } else {
+          CheckerFactory.releaseChecker(checker);
+        }
+      }
+      mResultCache = null;
+      mFileKeys.clear();
+    }
+  }
+
+  /**
+   * Audits the unsaved content of a file, like the document of an editor. The content is passed to
+   * the checker directly instead of being read from disk, and no markers are created. Instead the
+   * attributes of the markers the audit would have created are returned. Nothing is audited if
+   * the file has not been added to the auditor.
+   *
+   * @param file
+   *          the file the content belongs to
+   * @param content
+   *          the content of the file
+   * @param monitor
+   *          the progress monitor
+   * @return the attributes of the markers
+   * @throws CheckstylePluginException
+   *           error processing the audit
+   */
+  public List<Map<String, Object>> runDocumentAudit(IFile file, String content,
+          IProgressMonitor monitor) throws CheckstylePluginException {
+
+    List<Map<String, Object>> markers = new ArrayList<>();
+    if (file.getLocation() == null || getFile(file.getLocation().toString()) == null) {
+      return markers;
+    }
+
+    IProject project = file.getProject();
+    mMonitor = monitor;
+
+    try {
+
+      ConfigurationReader.AdditionalConfigData additionalData = CheckerFactory
+              .getAdditionalData(mCheckConfiguration, project);
+
+      CheckstyleAuditListener listener = new CheckstyleAuditListener(project, additionalData);
+      listener.collectMarkers(new Document(content), markers);
+
+      // the classloader is kept up to date by the builds, so it's reused as is
+      if (project.hasNature(JavaCore.NATURE_ID)) {
+        CheckerFactory.getClassLoader(project).initializeOnce(project);
+      }
+
+      DocumentChecker checker = CheckerFactory.createDocumentChecker(mCheckConfiguration,
+              project);
+      checker.addListener(listener);
+      try {
+        checker.processDocument(file.getLocation().toFile(), getLines(content),
+                file.getCharset());
+      } finally {
+        checker.removeListener(listener);
+        listener.cleanup();
+        CheckerFactory.releaseChecker(checker);
+      }
+    } catch (CheckstyleException e) {
+      if (e.getCause() instanceof OperationCanceledException) {
+        throw (OperationCanceledException) e.getCause();
+      }
+      CheckstylePluginException.rethrow(e);
+    } catch (CoreException e) {
+      CheckstylePluginException.rethrow(e);
+    } finally {
+      mFiles.clear();
+    }
+    return markers;
+  }
+
+  /**
+   * Splits a text into lines, the same way as the checker splits the content of files.
+   */
+  private static List<String> getLines(String content) {
+
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new StringReader(content))) {
+      String line = reader.readLine();
+      while (line != null) {
+        lines.add(line);
+        line = reader.readLine();
+      }
+    } catch (IOException e) {
+      // cannot happen when reading from a string
+      throw new IllegalStateException(e);
+    }
+    return lines;
+  }
+
+  /**
+   * Replays the cached results of unchanged files into the listener.
+   *
+   * @param files
+   *          the files to audit
+   * @param listener
+   *          the listener creating the markers
+   * @return the files without cached results, which still need to be audited
+   */
+  private List<File> restoreCachedResults(List<File> files, AuditListener listener) {
+
+    List<File> filesToAudit = new ArrayList<>();
+
+    for (File file : files) {
+
+      String fileName = file.getAbsolutePath();
+      String fileKey = mResultCache.getFileKey(file);
+
+      List<LocalizedMessage> messages = fileKey != null ? mResultCache.get(fileKey) : null;
+      if (messages != null) {
+
+        listener.fileStarted(new AuditEvent(this, fileName));
+        for (LocalizedMessage message : messages) {
+          listener.addError(new AuditEvent(this, fileName, message));
+        }
+        listener.fileFinished(new AuditEvent(this, fileName));
+      } else {
+
+        if (fileKey != null) {
+          mFileKeys.put(fileName, fileKey);
+        }
+        filesToAudit.add(file);
+      }
+    }
+    return filesToAudit;
+  }
+
+  /**
+   * Stores the recorded events of an audited file in the persistent cache.
+   *
+   * @param fileEvents
+   *          the events recorded for one file
+   */
+  private void cacheResults(List<RecordedEvent> fileEvents) {
+
+    if (mResultCache == null) {
+      return;
+    }
+
+    String fileKey = null;
+    List<LocalizedMessage> messages = new ArrayList<>();
+
+    for (RecordedEvent fileEvent : fileEvents) {
+      switch (fileEvent.getKind()) {
+        case RecordedEvent.FILE_STARTED:
+          fileKey = mFileKeys.get(fileEvent.getEvent().getFileName());
+          break;
+        case RecordedEvent.ERROR:
+          messages.add(fileEvent.getEvent().getLocalizedMessage());
+          break;
+        case RecordedEvent.EXCEPTION:
+          // don't cache results of files that could not be processed properly
+          return;
+        default:
+          break;
+      }
+    }
+
+    if (fileKey != null) {
+      mResultCache.put(fileKey, messages);
+    }
+  }
+
+  /**
+   * Runs the audit on a bounded pool of worker threads. The files are split into shards, each
+   * shard is processed by its own checker. The events reported by the workers are handed back to
+   * the calling thread file by file and replayed into the marker creating listener, so that all
+   * workspace modifications still happen within the calling (build) thread.
+   *
+   * @param project
+   *          the project being audited
+   * @param checker
+   *          the checker for the first worker
+   * @param listener
+   *          the listener creating the markers
+   * @param filesToAudit
+   *          the files to audit
+   * @throws CheckstyleException
+   *           error during the audit
+   * @throws CheckstylePluginException
+   *           error creating the checkers of the workers
+   */
+  private void runParallelAudit(IProject project, Checker checker,
+          CheckstyleAuditListener listener, List<File> filesToAudit)
+          throws CheckstyleException, CheckstylePluginException {
+
+    List<List<File>> shards = getShards(filesToAudit, mAuditThreads);
+
+    BlockingQueue<List<RecordedEvent>> results = new LinkedBlockingQueue<>();
+    AtomicBoolean canceled = new AtomicBoolean();
+
+    // create the checkers up front, errors in the configuration surface here
+    List<Checker> checkers = new ArrayList<>();
+    checkers.add(checker);
+
+    ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+    List<Future<Void>> futures = new ArrayList<>();
+    try {
+
+      for (int i = 1; i < shards.size(); i++) {
+        checkers.add(CheckerFactory.createChecker(mCheckConfiguration, project));
+      }
+
+      // the first checker already reports to the metrics collector
+      if (mMetricsCollector != null) {
+        for (int i = 1; i < checkers.size(); i++) {
+          checkers.get(i).addListener(mMetricsCollector);
+        }
+      }
+
+      for (int i = 0; i < shards.size(); i++) {
+        futures.add(executor.submit(
+                new AuditWorker(checkers.get(i), shards.get(i), results, canceled)));
+      }
+      executor.shutdown();
+
+      // replay the worker results into the marker pipeline until all workers are done
+      while (!executor.isTerminated() || !results.isEmpty()) {
+
+        if (mMonitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+
+        List<RecordedEvent> fileEvents = results.poll(RESULT_POLL_INTERVAL,
+                TimeUnit.MILLISECONDS);
+        if (fileEvents != null) {
+          for (RecordedEvent fileEvent : fileEvents) {
+            fileEvent.replay(listener);
+          }
+          cacheResults(fileEvents);
+        }
+      }
+
+      // report the first genuine failure of a worker
+      CheckstyleException failure = null;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          } else if (failure == null
+                  || failure.getCause() instanceof OperationCanceledException) {
+            failure = (CheckstyleException) cause;
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    } catch (OperationCanceledException e) {
+      throw new CheckstyleException(e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CheckstyleException(e.getMessage(), new OperationCanceledException());
+    } finally {
+      canceled.set(true);
+      executor.shutdownNow();
+
+      for (int i = 1; i < checkers.size(); i++) {
+        if (mMetricsCollector != null) {
+          checkers.get(i).removeListener(mMetricsCollector);
+        }
+        CheckerFactory.releaseChecker(checkers.get(i));
+      }
+    }
+  }
+
+  /**
+   * Splits the files into at most the given number of shards. Files of the same folder are kept
+   * together, so that checks comparing files of one folder (e.g. translation checks) still see
+   * all of them.
+   *
+   * @param files
+   *          the files
+   * @param shardCount
+   *          the maximum number of shards
+   * @return the shards
+   */
+  private static List<List<File>> getShards(List<File> files, int shardCount) {
+
+    Map<File, List<File>> filesByFolder = new LinkedHashMap<>();
+    for (File file : files) {
+      List<File> folderFiles = filesByFolder.get(file.getParentFile());
+      if (folderFiles == null) {
+        folderFiles = new ArrayList<>();
+        filesByFolder.put(file.getParentFile(), folderFiles);
+      }
+      folderFiles.add(file);
+    }
+
+    List<List<File>> shards = new ArrayList<>();
+    for (int i = 0, size = Math.min(shardCount, filesByFolder.size()); i < size; i++) {
+      shards.add(new ArrayList<File>());
+    }
+
+    // assign each folder to the currently smallest shard
+    for (List<File> folderFiles : filesByFolder.values()) {
+      List<File> smallest = shards.get(0);
+      for (List<File> shard : shards) {
+        if (shard.size() < smallest.size()) {
+          smallest = shard;
+        }
       }
+      smallest.addAll(folderFiles);
     }
+    return shards;
   }
 
   private void handleCheckstyleFailure(IProject project, CheckstyleException e)
@@ -190,7 +640,7 @@ public class Auditor {
       project.deleteMarkers(CheckstyleMarker.MARKER_ID, false, IResource.DEPTH_ZERO);
 
       Map<String, Object> attrs = new HashMap<>();
-      attrs.put(IMarker.PRIORITY, new Integer(IMarker.PRIORITY_NORMAL));
+      attrs.put(IMarker.PRIORITY, Integer.valueOf(IMarker.PRIORITY_NORMAL));
       attrs.put(IMarker.SEVERITY, Integer.valueOf(IMarker.SEVERITY_ERROR));
       attrs.put(IMarker.MESSAGE, NLS.bind(Messages.Auditor_msgMsgCheckstyleInternalError, null));
 
@@ -235,6 +685,168 @@ public class Auditor {
     return files;
   }
 
+  /**
+   * Worker running one shard of a parallel audit through its own checker.
+   */
+  private static class AuditWorker implements Callable<Void> {
+
+    /** The checker of this worker. */
+    private final Checker mChecker;
+
+    /** The files of the shard. */
+    private final List<File> mFiles;
+
+    /** The queue receiving the recorded events, one list per file. */
+    private final BlockingQueue<List<RecordedEvent>> mResults;
+
+    /** Flag shared by all workers to abort the audit. */
+    private final AtomicBoolean mCanceled;
+
+    AuditWorker(Checker checker, List<File> files, BlockingQueue<List<RecordedEvent>> results,
+            AtomicBoolean canceled) {
+      mChecker = checker;
+      mFiles = files;
+      mResults = results;
+      mCanceled = canceled;
+    }
+
+    @Override
+    public Void call() throws CheckstyleException {
+
+      RecordingAuditListener recorder = new RecordingAuditListener(mResults, mCanceled);
+      mChecker.addListener(recorder);
+      try {
+        mChecker.process(mFiles);
+      } catch (CheckstyleException | RuntimeException e) {
+        // stop the sibling workers
+        mCanceled.set(true);
+        throw e;
+      } finally {
+        mChecker.removeListener(recorder);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Listener recording the events of a worker's checker, to be replayed into the
+   * {@link CheckstyleAuditListener} by the auditing thread.
+   */
+  private static class RecordingAuditListener implements AuditListener {
+
+    /** The queue receiving the recorded events, one list per file. */
+    private final BlockingQueue<List<RecordedEvent>> mResults;
+
+    /** Flag shared by all workers to abort the audit. */
+    private final AtomicBoolean mCanceled;
+
+    /** The events of the file currently being checked. */
+    private List<RecordedEvent> mFileEvents = new ArrayList<>();
+
+    RecordingAuditListener(BlockingQueue<List<RecordedEvent>> results, AtomicBoolean canceled) {
+      mResults = results;
+      mCanceled = canceled;
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+
+      if (mCanceled.get()) {
+        throw new OperationCanceledException();
+      }
+      mFileEvents.add(new RecordedEvent(RecordedEvent.FILE_STARTED, event, null));
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+      mFileEvents.add(new RecordedEvent(RecordedEvent.ERROR, event, null));
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+      mFileEvents.add(new RecordedEvent(RecordedEvent.EXCEPTION, event, throwable));
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+      mFileEvents.add(new RecordedEvent(RecordedEvent.FILE_FINISHED, event, null));
+
+      // hand the file content over to the replaying thread
+      mFileEvents.get(0).mFileText = FileTextCapture.getCurrent();
+      FileTextCapture.setCurrent(null);
+
+      mResults.add(mFileEvents);
+      mFileEvents = new ArrayList<>();
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+    }
+  }
+
+  /**
+   * An audit event recorded by a worker of a parallel audit.
+   */
+  private static class RecordedEvent {
+
+    /** Kind constant for a started file. */
+    static final int FILE_STARTED = 0;
+
+    /** Kind constant for an error. */
+    static final int ERROR = 1;
+
+    /** Kind constant for an exception. */
+    static final int EXCEPTION = 2;
+
+    /** Kind constant for a finished file. */
+    static final int FILE_FINISHED = 3;
+
+    private final int mKind;
+
+    private final AuditEvent mEvent;
+
+    private final Throwable mThrowable;
+
+    /** The content of the file, recorded with the started event. */
+    private FileText mFileText;
+
+    RecordedEvent(int kind, AuditEvent event, Throwable throwable) {
+      mKind = kind;
+      mEvent = event;
+      mThrowable = throwable;
+    }
+
+    int getKind() {
+      return mKind;
+    }
+
+    AuditEvent getEvent() {
+      return mEvent;
+    }
+
+    void replay(AuditListener listener) {
+      switch (mKind) {
+        case FILE_STARTED:
+          FileTextCapture.setCurrent(mFileText);
+          listener.fileStarted(mEvent);
+          break;
+        case ERROR:
+          listener.addError(mEvent);
+          break;
+        case EXCEPTION:
+          listener.addException(mEvent, mThrowable);
+          break;
+        default:
+          listener.fileFinished(mEvent);
+          break;
+      }
+    }
+  }
+
   /**
    * Implementation of the audit listener. This listener creates markers on the file resources if
    * checkstyle messages are reported.
@@ -256,11 +868,23 @@ public class Auditor {
     /** Document model of the current file. */
     private IDocument mDocument;
 
+    /** Content of the current file as read by the checker, or <code>null</code>. */
+    private FileText mFileText;
+
+    /** Flags if the content of the current file has been looked up. */
+    private boolean mFileTextResolved;
+
+    /** Start offsets of the lines of the current file content, computed on demand. */
+    private int[] mLineOffsets;
+
     /** internal counter used to time to actualisation of the monitor. */
     private int mMonitorCounter;
 
-    /** map containing the marker data. */
-    private final Map<String, Object> mMarkerAttributes = new HashMap<>();
+    /** markers to be created, with their attributes by resource. */
+    private final Map<IResource, List<Map<String, Object>>> mPendingMarkers = new LinkedHashMap<>();
+
+    /** the count of files finished since the buffered markers were last created. */
+    private int mPendingFileCount;
 
     /** flags if the amount of markers should be limited. */
     private final boolean mLimitMarkers;
@@ -276,6 +900,16 @@ public class Auditor {
      */
     private Set<IPath> mConnectedFileBufferPaths = new HashSet<>();
 
+    /** The document containing the audited unsaved content, or <code>null</code>. */
+    private IDocument mContentDocument;
+
+    /** Collects the marker attributes instead of creating markers, or <code>null</code>. */
+    private List<Map<String, Object>> mCollectedMarkers;
+
+    /** Creates the marker attributes from the module templates resolved in this audit. */
+    private final MarkerAttributeTable mMarkerAttributes = new MarkerAttributeTable(mAddRuleName,
+            mAddModuleId);
+
     public CheckstyleAuditListener(IProject project,
             ConfigurationReader.AdditionalConfigData additionalData) {
       mProject = project;
@@ -288,6 +922,20 @@ public class Auditor {
       mMarkerLimit = CheckstylePluginPrefs.getInt(CheckstylePluginPrefs.PREF_MARKER_AMOUNT_LIMIT);
     }
 
+    /**
+     * Collects the attributes of the markers instead of creating them, used when auditing unsaved
+     * content. Marker offsets are calculated from the document of the content.
+     *
+     * @param contentDocument
+     *          the document containing the audited content
+     * @param markers
+     *          the list collecting the marker attributes
+     */
+    public void collectMarkers(IDocument contentDocument, List<Map<String, Object>> markers) {
+      mContentDocument = contentDocument;
+      mCollectedMarkers = markers;
+    }
+
     @Override
     public void fileStarted(AuditEvent event) {
 
@@ -334,38 +982,25 @@ public class Auditor {
 
           if (!severity.equals(SeverityLevel.IGNORE) && mResource != null) {
 
-            RuleMetadata metaData = MetadataFactory.getRuleMetadata(error.getSourceName());
-
-            // create generic metadata if none can be found
-            if (metaData == null) {
-              Module module = new Module(error.getSourceName());
-              metaData = MetadataFactory.createGenericMetadata(module);
-            }
-
-            mMarkerAttributes.put(CheckstyleMarker.MODULE_NAME, metaData.getInternalName());
-            mMarkerAttributes.put(CheckstyleMarker.MESSAGE_KEY,
-                    error.getLocalizedMessage().getKey());
-            mMarkerAttributes.put(IMarker.PRIORITY, new Integer(IMarker.PRIORITY_NORMAL));
-            mMarkerAttributes.put(IMarker.SEVERITY, new Integer(getSeverityValue(severity)));
-            mMarkerAttributes.put(IMarker.LINE_NUMBER, Integer.valueOf(error.getLine()));
-            mMarkerAttributes.put(IMarker.MESSAGE, getMessage(error));
+            Map<String, Object> markerAttributes = mMarkerAttributes.createAttributes(error);
 
             // calculate offset for editor annotations
-            calculateMarkerOffset(error, mMarkerAttributes);
-
-            // enables own category under Java Problem Type
-            // setting for Problems view (RFE 1530366)
-            mMarkerAttributes.put("categoryId", new Integer(999)); //$NON-NLS-1$
-
-            // create a marker for the actual resource
-            IMarker marker = mResource.createMarker(CheckstyleMarker.MARKER_ID);
-            marker.setAttributes(mMarkerAttributes);
+            calculateMarkerOffset(error, markerAttributes);
+
+            if (mCollectedMarkers != null) {
+              mCollectedMarkers.add(markerAttributes);
+            } else {
+
+              // buffer the marker for the actual resource, markers are created in batches
+              List<Map<String, Object>> resourceMarkers = mPendingMarkers.get(mResource);
+              if (resourceMarkers == null) {
+                resourceMarkers = new ArrayList<>();
+                mPendingMarkers.put(mResource, resourceMarkers);
+              }
+              resourceMarkers.add(markerAttributes);
+            }
 
             mMarkerCount++;
-
-            // clear the marker attributes to reuse the map for the
-            // next error
-            mMarkerAttributes.clear();
           }
         }
       } catch (CoreException e) {
@@ -388,6 +1023,13 @@ public class Auditor {
 
       disconnectFileBuffer(mResource);
       mDocument = null;
+      resetFileText();
+
+      // create the buffered markers every couple of files
+      mPendingFileCount++;
+      if (mPendingFileCount >= MARKER_FLUSH_INTERVAL) {
+        flushMarkers();
+      }
     }
 
     @Override
@@ -401,7 +1043,10 @@ public class Auditor {
 
     public void cleanup() {
 
+      flushMarkers();
+
       mDocument = null;
+      resetFileText();
 
       // disconnect any leftover buffer paths, in case of an unexpected abortion
       for (IPath p : mConnectedFileBufferPaths) {
@@ -409,6 +1054,50 @@ public class Auditor {
       }
     }
 
+    /**
+     * Creates the buffered markers within one workspace operation, so that only a single resource
+     * change event is fired for the whole batch.
+     */
+    private void flushMarkers() {
+
+      mPendingFileCount = 0;
+      if (mPendingMarkers.isEmpty()) {
+        return;
+      }
+
+      final Map<IResource, List<Map<String, Object>>> markers = new LinkedHashMap<>(
+              mPendingMarkers);
+      mPendingMarkers.clear();
+
+      IWorkspaceRunnable createMarkers = new IWorkspaceRunnable() {
+
+        @Override
+        public void run(IProgressMonitor monitor) throws CoreException {
+
+          for (Map.Entry<IResource, List<Map<String, Object>>> entry : markers.entrySet()) {
+
+            IResource resource = entry.getKey();
+
+            // the resource might have been deleted meanwhile
+            if (!resource.exists()) {
+              continue;
+            }
+
+            for (Map<String, Object> markerAttributes : entry.getValue()) {
+              IMarker marker = resource.createMarker(CheckstyleMarker.MARKER_ID);
+              marker.setAttributes(markerAttributes);
+            }
+          }
+        }
+      };
+
+      try {
+        ResourcesPlugin.getWorkspace().run(createMarkers, null, IWorkspace.AVOID_UPDATE, null);
+      } catch (CoreException e) {
+        CheckstyleLog.log(e);
+      }
+    }
+
     /**
      * Calculates the offset information for the editor annotations.
      *
@@ -421,9 +1110,24 @@ public class Auditor {
     private void calculateMarkerOffset(AuditEvent error, Map<String, Object> markerAttributes)
             throws CoreException {
 
+      // use the content read by the checker, if available
+      if (mContentDocument == null && !mFileTextResolved) {
+        mFileTextResolved = true;
+
+        FileText fileText = FileTextCapture.getCurrent();
+        if (fileText != null
+                && fileText.getFile().getAbsolutePath().equals(error.getFileName())) {
+          mFileText = fileText;
+        }
+      }
+      if (mFileText != null) {
+        calculateMarkerOffset(mFileText.getFullText(), error, markerAttributes);
+        return;
+      }
+
       // lazy create the document for the current file
       if (mDocument == null) {
-        mDocument = connectFileBuffer(mResource);
+        mDocument = mContentDocument != null ? mContentDocument : connectFileBuffer(mResource);
       }
 
       // Provide offset information for the marker to make
@@ -441,7 +1145,7 @@ public class Auditor {
 
           // annotate from the error column until the end of
           // the line
-          int offset = getOffsetFromColumn(lineData, error.getColumn());
+          int offset = getOffsetFromColumn(lineData, 0, lineLength, error.getColumn());
 
           markerAttributes.put(IMarker.CHAR_START, Integer.valueOf(lineOffset + offset));
           markerAttributes.put(IMarker.CHAR_END, Integer.valueOf(lineOffset + lineLength));
@@ -453,6 +1157,80 @@ public class Auditor {
       }
     }
 
+    /**
+     * Calculates the offset information for the editor annotations from the file content, the
+     * same way as from the document.
+     *
+     * @param text
+     *          the file content
+     * @param error
+     *          the audit error
+     * @param markerAttributes
+     *          the marker attributes
+     */
+    private void calculateMarkerOffset(CharSequence text, AuditEvent error,
+            Map<String, Object> markerAttributes) {
+
+      if (mLineOffsets == null) {
+        mLineOffsets = getLineOffsets(text);
+      }
+
+      int line = error.getLine();
+      int lineIndex = line == 0 ? 0 : line - 1;
+      if (lineIndex >= mLineOffsets.length) {
+        return;
+      }
+
+      int lineOffset = mLineOffsets[lineIndex];
+      int lineEnd = lineOffset;
+      while (lineEnd < text.length() && text.charAt(lineEnd) != '\n'
+              && text.charAt(lineEnd) != '\r') {
+        lineEnd++;
+      }
+
+      // the document does not contain the byte order mark of UTF-8 files
+      int bomLength = text.length() > 0 && text.charAt(0) == '\uFEFF' ? 1 : 0;
+
+      // annotate from the error column until the end of the line
+      int offset = getOffsetFromColumn(text, lineOffset, lineEnd, error.getColumn());
+
+      markerAttributes.put(IMarker.CHAR_START,
+              Integer.valueOf(Math.max(0, lineOffset + offset - bomLength)));
+      markerAttributes.put(IMarker.CHAR_END, Integer.valueOf(Math.max(0, lineEnd - bomLength)));
+    }
+
+    /**
+     * Determines the start offsets of the lines of a text, with the same line delimiters as the
+     * document.
+     */
+    private int[] getLineOffsets(CharSequence text) {
+
+      int[] offsets = new int[16];
+      int count = 1;
+
+      for (int i = 0, length = text.length(); i < length; i++) {
+        char c = text.charAt(i);
+        if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+          i++;
+        } else if (c != '\r' && c != '\n') {
+          continue;
+        }
+
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = i + 1;
+      }
+      return Arrays.copyOf(offsets, count);
+    }
+
+    private void resetFileText() {
+      mFileText = null;
+      mFileTextResolved = false;
+      mLineOffsets = null;
+      FileTextCapture.setCurrent(null);
+    }
+
     private IDocument connectFileBuffer(IResource resource) {
 
       if (!(resource instanceof IFile)) {
@@ -500,19 +1278,22 @@ public class Auditor {
      * Calculates the offset for the given column within this line. This is done to get a correct
      * offset if tab characters are used within this line.
      *
-     * @param line
-     *          the line as string
+     * @param text
+     *          the text containing the line
+     * @param lineStart
+     *          the offset of the line within the text
+     * @param lineEnd
+     *          the offset of the line end within the text
      * @param column
      *          the column
      * @return the true offset of this column within the line
      */
-    private int getOffsetFromColumn(String line, int column) {
+    private int getOffsetFromColumn(CharSequence text, int lineStart, int lineEnd, int column) {
 
       int calculatedColumn = 0;
 
-      int lineLength = line.length();
-      for (int i = 0; i < lineLength; i++) {
-        char c = line.charAt(i);
+      for (int i = lineStart; i < lineEnd; i++) {
+        char c = text.charAt(i);
         if (c == '\t') {
           calculatedColumn += mAdditionalConfigData.getTabWidth();
         } else {
@@ -520,65 +1301,10 @@ public class Auditor {
         }
 
         if (calculatedColumn >= column) {
-          return i;
+          return i - lineStart;
         }
       }
-      return lineLength;
-    }
-
-    private int getSeverityValue(SeverityLevel severity) {
-      int result = IMarker.SEVERITY_WARNING;
-
-      if (severity.equals(SeverityLevel.INFO)) {
-        result = IMarker.SEVERITY_INFO;
-      } else if (severity.equals(SeverityLevel.WARNING)) {
-        result = IMarker.SEVERITY_WARNING;
-      } else if (severity.equals(SeverityLevel.ERROR)) {
-        result = IMarker.SEVERITY_ERROR;
-      }
-
-      return result;
-    }
-
-    private String getMessage(AuditEvent error) {
-
-      String moduleId = error.getModuleId();
-
-      if (moduleId == null) {
-        RuleMetadata metaData = MetadataFactory.getRuleMetadata(error.getSourceName());
-        if (metaData != null) {
-          moduleId = metaData.getInternalName();
-        }
-      }
-
-      final String message = error.getMessage();
-
-      StringBuffer prefix = new StringBuffer();
-      if (mAddRuleName) {
-        prefix.append(getRuleName(error));
-      }
-      if (mAddModuleId && error.getModuleId() != null) {
-        if (prefix.length() > 0) {
-          prefix.append(" - "); //$NON-NLS-1$
-        }
-        prefix.append(error.getModuleId());
-      }
-
-      StringBuffer buf = new StringBuffer();
-      if (prefix.length() > 0) {
-        buf.append(prefix).append(": "); //$NON-NLS-1$
-      }
-      buf.append(message);
-
-      return buf.toString();
-    }
-
-    private String getRuleName(AuditEvent error) {
-      RuleMetadata metaData = MetadataFactory.getRuleMetadata(error.getSourceName());
-      if (metaData == null) {
-        return Messages.Auditor_txtUnknownModule;
-      }
-      return metaData.getRuleName();
+      return lineEnd - lineStart;
     }
   }
 }
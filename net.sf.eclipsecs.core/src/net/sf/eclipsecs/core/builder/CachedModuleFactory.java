@@ -0,0 +1,151 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory.ModuleLoadOption;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.eclipsecs.core.config.meta.MetadataFactory;
+import net.sf.eclipsecs.core.config.meta.RuleGroupMetadata;
+import net.sf.eclipsecs.core.config.meta.RuleMetadata;
+
+/**
+ * Module factory shared by all checkers. Module names are resolved to their classes with an index
+ * built from the alternative names in the plugin metadata, which include the fully qualified
+ * names of the module classes. Only names missing from the metadata are resolved by Checkstyle's
+ * {@link PackageObjectFactory}, which probes the registered packages. Resolved classes are
+ * remembered, so each module name is resolved only once.
+ *
+ * @author Lars Ködderitzsch
+ */
+class CachedModuleFactory implements ModuleFactory {
+
+  /** The classloader loading the module classes. */
+  private final ClassLoader mModuleClassLoader;
+
+  /** The fully qualified class names of the modules known from the metadata, by module name. */
+  private final Map<String, String> mClassNames = new HashMap<>();
+
+  /** The constructors of the resolved module classes, by module name. */
+  private final Map<String, Constructor<?>> mConstructors = new ConcurrentHashMap<>();
+
+  /** Checkstyle's factory, resolving the module names missing from the metadata. */
+  private final PackageObjectFactory mFallbackFactory;
+
+  /**
+   * Creates the module factory.
+   *
+   * @param packageNames
+   *          the packages registered by Checkstyle and the addon providers
+   * @param moduleClassLoader
+   *          the classloader loading the module classes
+   */
+  CachedModuleFactory(Set<String> packageNames, ClassLoader moduleClassLoader) {
+    mModuleClassLoader = moduleClassLoader;
+    mFallbackFactory = new PackageObjectFactory(packageNames, moduleClassLoader,
+            ModuleLoadOption.TRY_IN_ALL_REGISTERED_PACKAGES);
+
+    for (RuleGroupMetadata group : MetadataFactory.getRuleGroupMetadata()) {
+      for (RuleMetadata metadata : group.getRuleMetadata()) {
+        indexModule(metadata);
+      }
+    }
+  }
+
+  @Override
+  public Object createModule(String name) throws CheckstyleException {
+
+    Constructor<?> constructor = mConstructors.get(name);
+    if (constructor == null) {
+      constructor = resolve(name);
+      mConstructors.put(name, constructor);
+    }
+
+    try {
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      throw new CheckstyleException("Unable to instantiate module " + name, e); //$NON-NLS-1$
+    }
+  }
+
+  private Constructor<?> resolve(String name) throws CheckstyleException {
+
+    Class<?> moduleClass = null;
+
+    String className = mClassNames.get(name);
+    if (className != null) {
+      try {
+        moduleClass = Class.forName(className, true, mModuleClassLoader);
+      } catch (ClassNotFoundException | LinkageError e) {
+        // metadata without the module class, let Checkstyle resolve the name
+      }
+    }
+
+    if (moduleClass == null) {
+
+      // the fallback factory initializes its caches lazily
+      synchronized (mFallbackFactory) {
+        moduleClass = mFallbackFactory.createModule(name).getClass();
+      }
+    }
+
+    try {
+      Constructor<?> constructor = moduleClass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (NoSuchMethodException e) {
+      throw new CheckstyleException("Unable to instantiate module " + name, e); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Registers the class of a module under its internal name and its fully qualified class name,
+   * if the alternative names in the metadata contain a class name matching the internal name.
+   */
+  private void indexModule(RuleMetadata metadata) {
+
+    String internalName = metadata.getInternalName();
+
+    String className = null;
+    for (String alternativeName : metadata.getAlternativeNames()) {
+      String simpleName = alternativeName.substring(alternativeName.lastIndexOf('.') + 1);
+      if (alternativeName.indexOf('.') > 0 && (simpleName.equals(internalName)
+              || simpleName.equals(internalName + "Check"))) { //$NON-NLS-1$
+        className = alternativeName;
+        break;
+      }
+    }
+
+    if (className != null) {
+      mClassNames.put(internalName, className);
+      mClassNames.put(className, className);
+    }
+  }
+}
@@ -22,66 +22,136 @@ package net.sf.eclipsecs.core.builder;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.io.BaseEncoding;
 import com.google.common.io.Closeables;
 import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
 import com.puppycrawl.tools.checkstyle.ConfigurationLoader.IgnoredModulesOptions;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
 import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
-import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
-import com.puppycrawl.tools.checkstyle.PackageObjectFactory.ModuleLoadOption;
 import com.puppycrawl.tools.checkstyle.PropertyResolver;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.eclipsecs.core.CheckstylePlugin;
 import net.sf.eclipsecs.core.config.CheckstyleConfigurationFile;
+import net.sf.eclipsecs.core.config.CheckstyleConfigurationFileCache;
 import net.sf.eclipsecs.core.config.ConfigurationReader;
 import net.sf.eclipsecs.core.config.ConfigurationReader.AdditionalConfigData;
 import net.sf.eclipsecs.core.config.ICheckConfiguration;
+import net.sf.eclipsecs.core.config.ModuleChanges;
 import net.sf.eclipsecs.core.config.configtypes.IContextAware;
+import net.sf.eclipsecs.core.config.meta.MetadataFactory;
+import net.sf.eclipsecs.core.config.meta.RuleMetadata;
 import net.sf.eclipsecs.core.util.CheckstylePluginException;
+import net.sf.eclipsecs.core.util.ExtensionClassLoader;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
 import org.xml.sax.InputSource;
 
 /**
- * Factory class to create (and cache) checker objects.
+ * Factory class to create (and cache) checker objects. Checkers are cached by a fingerprint of the
+ * effective configuration, i.e. the configuration with all properties resolved, the charset and
+ * the locale, so projects with the same effective configuration share their checkers. Each
+ * fingerprint has a pool of checkers, which are leased by one audit at a time.
  *
  * @author Lars Ködderitzsch
  */
 public final class CheckerFactory {
 
-  /** Map containing the configured checkers. */
-  private static Cache<String, Checker> sCheckerMap;
+  /**
+   * The maximum total weight of the cached checkers. Checkers are weighed by the number of their
+   * modules, so this allows for some dozen checkers with typical configurations.
+   */
+  private static final long MAX_CHECKER_WEIGHT = 5000;
+
+  /** Checkers not used for this period are discarded. */
+  private static final long CHECKER_EXPIRATION_TIME = TimeUnit.MINUTES.toMillis(30);
+
+  /** Map containing the configured checkers, by configuration fingerprint and pool slot. */
+  private static Cache<String, DocumentChecker> sCheckerMap;
 
-  /** Map containing the modification times of configs. */
-  private static Map<String, Long> sModifiedMap;
+  /** Map containing the configuration fingerprints, by check configuration and project. */
+  private static Map<String, ConfigFingerprint> sFingerprintMap;
 
   /** Map containing additional data about the check configurations. */
   private static Map<String, AdditionalConfigData> sAdditionalDataMap;
 
-  /** the shared classloader for the checkers. */
-  private static ProjectClassLoader sSharedClassLoader;
+  /** The module factory shared by all checkers. */
+  private static ModuleFactory sModuleFactory;
+
+  /** The generation of the addon contributions the module factory has been created for. */
+  private static int sModuleFactoryGeneration;
+
+  /** The property of the checker module setting Checkstyle's cache file. */
+  private static final String CACHE_FILE_PROPERTY = "cacheFile"; //$NON-NLS-1$
+
+  /** The maximum number of project classloaders kept open. */
+  private static final int MAX_CLASS_LOADERS = 8;
+
+  /** Map containing the classloaders of the recently audited projects, in access order. */
+  private static Map<String, ProjectClassLoader> sClassLoaderMap;
+
+  /** The listener marking the classloaders dirty, registered with the first classloader. */
+  private static ClassPathListener sClassPathListener;
 
   /**
    * Initialize the cache.
    */
   static {
 
-    sCheckerMap = CacheBuilder.newBuilder().softValues().build();
+    sCheckerMap = CacheBuilder.newBuilder().maximumWeight(MAX_CHECKER_WEIGHT)
+            .weigher(new Weigher<String, DocumentChecker>() {
+
+              @Override
+              public int weigh(String key, DocumentChecker checker) {
+                return Math.max(1, checker.getModuleCount());
+              }
+            }).expireAfterAccess(CHECKER_EXPIRATION_TIME, TimeUnit.MILLISECONDS).recordStats()
+            .build();
 
-    sModifiedMap = new ConcurrentHashMap<>();
+    sFingerprintMap = new ConcurrentHashMap<>();
     sAdditionalDataMap = new ConcurrentHashMap<>();
 
-    sSharedClassLoader = new ProjectClassLoader();
+    sClassLoaderMap = new LinkedHashMap<String, ProjectClassLoader>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ProjectClassLoader> eldest) {
+        if (size() > MAX_CLASS_LOADERS) {
+          eldest.getValue().close();
+          return true;
+        }
+        return false;
+      }
+    };
   }
 
   /**
@@ -92,7 +162,9 @@ public final class CheckerFactory {
   }
 
   /**
-   * Creates a checker for a given configuration file.
+   * Creates a checker for a given configuration file, or leases an idle cached checker. The
+   * checker is used exclusively by the caller and must be returned by
+   * {@link #releaseChecker(Checker)} after the audit.
    *
    * @param config
    *          the check configuration data
@@ -106,41 +178,111 @@ public final class CheckerFactory {
    */
   public static Checker createChecker(ICheckConfiguration config, IProject project)
           throws CheckstyleException, CheckstylePluginException {
+    return acquireChecker(config, project);
+  }
 
-    String cacheKey = getCacheKey(config, project);
+  /**
+   * Creates a checker for a given configuration file, which is used to audit unsaved documents.
+   * The checker must be returned by {@link #releaseChecker(Checker)} after the audit.
+   *
+   * @param config
+   *          the check configuration data
+   * @param project
+   *          the project to create the checker for
+   * @return the checker for the given configuration file
+   * @throws CheckstyleException
+   *           the configuration file had errors
+   * @throws CheckstylePluginException
+   *           the configuration could not be read
+   */
+  static DocumentChecker createDocumentChecker(ICheckConfiguration config, IProject project)
+          throws CheckstyleException, CheckstylePluginException {
+    return acquireChecker(config, project);
+  }
+
+  /**
+   * Returns a checker created by {@link #createChecker(ICheckConfiguration, IProject)} after the
+   * audit, so it can be used by other audits.
+   *
+   * @param checker
+   *          the checker
+   */
+  public static void releaseChecker(Checker checker) {
+    ((DocumentChecker) checker).release();
+  }
+
+  private static DocumentChecker acquireChecker(ICheckConfiguration config, IProject project)
+          throws CheckstyleException, CheckstylePluginException {
 
     CheckstyleConfigurationFile configFileData = config.getCheckstyleConfiguration();
-    Checker checker = tryCheckerCache(cacheKey, configFileData.getModificationStamp());
+    long modificationStamp = configFileData.getModificationStamp();
+
+    String projectKey = getCacheKey(config, configFileData, project);
 
-    // clear Checkstyle internal caches upon checker reuse
-    if (checker != null) {
-      checker.clearCache();
+    // the configuration only needs to be loaded if its fingerprint is not known
+    Configuration configuration = null;
+    ConfigFingerprint fingerprint = sFingerprintMap.get(projectKey);
+    if (fingerprint == null || fingerprint.mModificationStamp != modificationStamp) {
+
+      sAdditionalDataMap.remove(projectKey);
+
+      configuration = loadConfiguration(configFileData, project);
+      fingerprint = new ConfigFingerprint(getFingerprint(configuration, project),
+              modificationStamp);
+      sFingerprintMap.put(projectKey, fingerprint);
     }
 
-    // no cache hit
-    if (checker == null) {
-      PropertyResolver resolver = configFileData.getPropertyResolver();
+    ClassLoader projectClassLoader = getClassLoader(project);
 
-      // set the project context if the property resolver needs the
-      // context
-      if (resolver instanceof IContextAware) {
-        ((IContextAware) resolver).setProjectContext(project);
-      }
+    // lease the first idle checker of the pool, or add a checker to the pool
+    for (int slot = 0;; slot++) {
 
-      InputSource in = null;
-      try {
-        in = configFileData.getCheckConfigFileInputSource();
-        checker = createCheckerInternal(in, resolver, project);
-      } finally {
-        Closeables.closeQuietly(in.getByteStream());
-      }
+      String cacheKey = fingerprint.mFingerprint + "#" + slot; //$NON-NLS-1$
+      DocumentChecker checker = sCheckerMap.getIfPresent(cacheKey);
+
+      if (checker == null) {
+        if (configuration == null) {
+          configuration = loadConfiguration(configFileData, project);
+        }
+        checker = createCheckerInternal(configuration, project);
+        checker.lease(projectClassLoader);
+        sCheckerMap.put(cacheKey, checker);
+        return checker;
+      } else if (checker.lease(projectClassLoader)) {
 
-      // store checker in cache
-      Long modified = new Long(configFileData.getModificationStamp());
-      sCheckerMap.put(cacheKey, checker);
-      sModifiedMap.put(cacheKey, modified);
+        // clear Checkstyle internal caches upon checker reuse
+        checker.clearCache();
+        return checker;
+      }
     }
+  }
 
+  /**
+   * Creates a checker for a given configuration file, which only runs some of the reporting
+   * modules. Modules which don't report events on their own, like filters, are always kept. The
+   * checker is not cached and needs to be destroyed after use.
+   *
+   * @param config
+   *          the check configuration data
+   * @param project
+   *          the project to create the checker for
+   * @param moduleNames
+   *          the internal names of the reporting modules to keep
+   * @return the checker for the given configuration file
+   * @throws CheckstyleException
+   *           the configuration file had errors
+   * @throws CheckstylePluginException
+   *           the configuration could not be read
+   */
+  public static Checker createChecker(ICheckConfiguration config, IProject project,
+          Set<String> moduleNames) throws CheckstyleException, CheckstylePluginException {
+
+    CheckstyleConfigurationFile configFileData = config.getCheckstyleConfiguration();
+    Configuration configuration = loadConfiguration(configFileData, project);
+
+    DocumentChecker checker = createCheckerInternal(filterModules(configuration, moduleNames),
+            project);
+    checker.lease(getClassLoader(project));
     return checker;
   }
 
@@ -158,13 +300,13 @@ public final class CheckerFactory {
   public static ConfigurationReader.AdditionalConfigData getAdditionalData(
           ICheckConfiguration config, IProject project) throws CheckstylePluginException {
 
-    String cacheKey = getCacheKey(config, project);
+    CheckstyleConfigurationFile configFileData = config.getCheckstyleConfiguration();
+    String cacheKey = getCacheKey(config, configFileData, project);
 
     AdditionalConfigData additionalData = sAdditionalDataMap.get(cacheKey);
 
     // no cache hit - create the additional data
     if (additionalData == null) {
-      CheckstyleConfigurationFile configFileData = config.getCheckstyleConfiguration();
 
       InputSource in = null;
       try {
@@ -181,21 +323,87 @@ public final class CheckerFactory {
   }
 
   /**
-   * Returns the shared classloader which is used by all checkers created by this factory.
+   * Returns the classloader which is used by the checkers created for a project. The classloader
+   * needs to be initialized with the project before an audit.
+   *
+   * @param project
+   *          the project
+   * @return the classloader of the project
+   */
+  public static ProjectClassLoader getClassLoader(IProject project) {
+
+    synchronized (sClassLoaderMap) {
+      registerClassPathListener();
+
+      ProjectClassLoader classLoader = sClassLoaderMap.get(project.getName());
+      if (classLoader == null) {
+        classLoader = new ProjectClassLoader();
+        sClassLoaderMap.put(project.getName(), classLoader);
+      }
+      return classLoader;
+    }
+  }
+
+  /**
+   * Marks the classloaders dirty whose output folders or libraries are affected by a resource
+   * change.
    *
-   * @return the shared classloader
+   * @param delta
+   *          the resource delta, <code>null</code> to mark all classloaders dirty
    */
-  public static ProjectClassLoader getSharedClassLoader() {
-    return sSharedClassLoader;
+  static void markClassLoadersDirty(IResourceDelta delta) {
+    synchronized (sClassLoaderMap) {
+      for (ProjectClassLoader classLoader : sClassLoaderMap.values()) {
+        if (delta == null || classLoader.isAffectedBy(delta)) {
+          classLoader.markDirty();
+        }
+      }
+    }
   }
 
   /**
-   * Cleans up the checker cache.
+   * Registers the listener keeping track of classpath changes, as long as the workspace is
+   * available.
+   */
+  private static void registerClassPathListener() {
+    if (sClassPathListener == null && Platform.isRunning()) {
+      sClassPathListener = new ClassPathListener();
+      JavaCore.addElementChangedListener(sClassPathListener, ElementChangedEvent.POST_CHANGE);
+      ResourcesPlugin.getWorkspace().addResourceChangeListener(sClassPathListener,
+              IResourceChangeEvent.POST_CHANGE);
+    }
+  }
+
+  /**
+   * Returns the statistics of the checker cache, like hit and eviction counts, since the start of
+   * the plugin.
+   *
+   * @return the cache statistics
+   */
+  public static CacheStats getCheckerCacheStats() {
+    return sCheckerMap.stats();
+  }
+
+  /**
+   * Cleans up the checker cache and the persisted audit results.
    */
   public static void cleanup() {
+    synchronized (sClassLoaderMap) {
+      for (ProjectClassLoader classLoader : sClassLoaderMap.values()) {
+        classLoader.close();
+      }
+      sClassLoaderMap.clear();
+    }
+
+    synchronized (CheckerFactory.class) {
+      sModuleFactory = null;
+    }
+
     sCheckerMap.invalidateAll();
-    sModifiedMap.clear();
+    sFingerprintMap.clear();
     sAdditionalDataMap.clear();
+    AuditResultCache.cleanup();
+    CheckstyleConfigurationFileCache.cleanup();
   }
 
   /**
@@ -203,15 +411,14 @@ public final class CheckerFactory {
    *
    * @param config
    *          the check configuration
+   * @param configFileData
+   *          the resolved configuration file data
    * @param project
    *          the project being checked
    * @return the unique cache key
-   * @throws CheckstylePluginException
-   *           error getting configuration file data
    */
-  private static String getCacheKey(ICheckConfiguration config, IProject project)
-          throws CheckstylePluginException {
-    CheckstyleConfigurationFile configFileData = config.getCheckstyleConfiguration();
+  private static String getCacheKey(ICheckConfiguration config,
+          CheckstyleConfigurationFile configFileData, IProject project) {
 
     URL configLocation = configFileData.getResolvedConfigFileURL();
     String checkConfigName = config.getName() + "#" + (config.isGlobal() ? "Global" : "Local");
@@ -222,66 +429,112 @@ public final class CheckerFactory {
   }
 
   /**
-   * Tries to reuse an already configured checker for this configuration.
+   * Builds a fingerprint of everything that affects the configuration of a checker: the
+   * configuration with all properties resolved, the charset of the project and the locale.
    *
-   * @param config
-   *          the configuration file
-   * @param cacheKey
-   *          the key for cache access
-   * @return the cached checker or null
+   * @param configuration
+   *          the loaded configuration
+   * @param project
+   *          the project
+   * @return the fingerprint
+   * @throws CheckstyleException
+   *           an attribute could not be read
+   * @throws CheckstylePluginException
+   *           the charset could not be determined
    */
-  private static Checker tryCheckerCache(String cacheKey, long modificationStamp) {
+  private static String getFingerprint(Configuration configuration, IProject project)
+          throws CheckstyleException, CheckstylePluginException {
 
-    // try the cache
-    Checker checker = sCheckerMap.getIfPresent(cacheKey);
+    MessageDigest digest = AuditResultCache.createDigest();
+    updateFingerprint(digest, configuration);
+    try {
+      AuditResultCache.update(digest, project.getDefaultCharset());
+    } catch (CoreException e) {
+      CheckstylePluginException.rethrow(e);
+    }
+    AuditResultCache.update(digest, CheckstylePlugin.getPlatformLocale().toString());
+    return BaseEncoding.base16().lowerCase().encode(digest.digest());
+  }
+
+  private static void updateFingerprint(MessageDigest digest, Configuration configuration)
+          throws CheckstyleException {
+
+    AuditResultCache.update(digest, configuration.getName());
+
+    String[] attributeNames = configuration.getAttributeNames();
+    Arrays.sort(attributeNames);
+    for (String attributeName : attributeNames) {
+      AuditResultCache.update(digest, attributeName);
+      AuditResultCache.update(digest, configuration.getAttribute(attributeName));
+    }
+    for (Map.Entry<String, String> message : new TreeMap<>(configuration.getMessages())
+            .entrySet()) {
+      AuditResultCache.update(digest, message.getKey());
+      AuditResultCache.update(digest, message.getValue());
+    }
+
+    // children are delimited, so differently nested modules don't collide
+    for (Configuration child : configuration.getChildren()) {
+      digest.update((byte) '(');
+      updateFingerprint(digest, child);
+      digest.update((byte) ')');
+    }
+  }
+
+  /**
+   * Loads the Checkstyle configuration, with properties resolved in the context of the project.
+   * The property resolver is shared by all projects using the check configuration, so projects
+   * audited at the same time take turns in setting their context.
+   *
+   * @param configFileData
+   *          the resolved configuration file data
+   * @param project
+   *          the project
+   * @return the loaded configuration
+   * @throws CheckstyleException
+   *           the configuration file had errors
+   * @throws CheckstylePluginException
+   *           the configuration could not be read
+   */
+  static Configuration loadConfiguration(CheckstyleConfigurationFile configFileData,
+          IProject project) throws CheckstyleException, CheckstylePluginException {
 
-    // if cache hit
-    if (checker != null) {
+    PropertyResolver resolver = configFileData.getPropertyResolver();
+    synchronized (resolver) {
 
-      // compare modification times of the configs
-      Long oldTime = sModifiedMap.get(cacheKey);
-      Long newTime = new Long(modificationStamp);
+      // set the project context if the property resolver needs the
+      // context
+      if (resolver instanceof IContextAware) {
+        ((IContextAware) resolver).setProjectContext(project);
+      }
 
-      // no match - remove checker from cache
-      if (oldTime == null || oldTime.compareTo(newTime) != 0) {
-        checker = null;
-        sCheckerMap.invalidate(cacheKey);
-        sModifiedMap.remove(cacheKey);
-        sAdditionalDataMap.remove(cacheKey);
+      InputSource in = null;
+      try {
+        in = configFileData.getCheckConfigFileInputSource();
+        return ConfigurationLoader.loadConfiguration(in, resolver, IgnoredModulesOptions.OMIT);
+      } finally {
+        Closeables.closeQuietly(in.getByteStream());
       }
     }
-    return checker;
   }
 
   /**
-   * Creates a new checker and configures it with the given configuration file.
+   * Creates a new checker and configures it with the given configuration.
    *
-   * @param input
-   *          the input source for the configuration file
-   * @param configFileUri
-   *          the URI of the configuration file, or <code>null</code> if it could not be determined
-   * @param propResolver
-   *          a property resolver null
+   * @param configuration
+   *          the loaded configuration
    * @param project
    *          the project
    * @return the newly created Checker
    * @throws CheckstyleException
    *           an exception during the creation of the checker occured
    */
-  private static Checker createCheckerInternal(InputSource input, PropertyResolver propResolver,
+  private static DocumentChecker createCheckerInternal(Configuration configuration,
           IProject project) throws CheckstyleException, CheckstylePluginException {
 
-    // load configuration
-    final Configuration configuration = ConfigurationLoader.loadConfiguration(input, propResolver,
-            IgnoredModulesOptions.OMIT);
-
-    ClassLoader moduleClassLoader = CheckstylePlugin.getDefault().getAddonExtensionClassLoader();
-    Set<String> packageNames = PackageNamesLoader.getPackageNames(moduleClassLoader);
-
     // create and configure checker
-    Checker checker = new Checker();
-    checker.setModuleFactory(new PackageObjectFactory(packageNames, moduleClassLoader,
-            ModuleLoadOption.TRY_IN_ALL_REGISTERED_PACKAGES));
+    DocumentChecker checker = new DocumentChecker();
+    checker.setModuleFactory(getModuleFactory());
     try {
       checker.setCharset(project.getDefaultCharset());
     } catch (UnsupportedEncodingException e) {
@@ -294,9 +547,14 @@ public final class CheckerFactory {
     Locale platformLocale = CheckstylePlugin.getPlatformLocale();
     checker.setLocaleLanguage(platformLocale.getLanguage());
     checker.setLocaleCountry(platformLocale.getCountry());
-    checker.setClassLoader(sSharedClassLoader);
 
     checker.configure(configuration);
+    checker.setModuleCount(countModules(configuration));
+    checker.setUsesCacheFile(
+            Arrays.asList(configuration.getAttributeNames()).contains(CACHE_FILE_PROPERTY));
+
+    // keep the file contents for the calculation of marker offsets
+    checker.addFileSetCheck(new FileTextCapture());
 
     // reset the basedir if it is set so it won't get into the plugins way
     // of determining workspace resources from checkstyle reported file
@@ -306,4 +564,156 @@ public final class CheckerFactory {
 
     return checker;
   }
+
+  /**
+   * Returns the module factory shared by all checkers. The factory, and with it the registered
+   * package names, is created again when the addon contributions change.
+   *
+   * @return the module factory
+   * @throws CheckstyleException
+   *           the package names could not be loaded
+   */
+  private static synchronized ModuleFactory getModuleFactory() throws CheckstyleException {
+
+    ClassLoader moduleClassLoader = CheckstylePlugin.getDefault().getAddonExtensionClassLoader();
+    int generation = moduleClassLoader instanceof ExtensionClassLoader
+            ? ((ExtensionClassLoader) moduleClassLoader).getGeneration()
+            : 0;
+
+    if (sModuleFactory == null || generation != sModuleFactoryGeneration) {
+
+      // cached checkers may use modules of bundles which no longer contribute
+      if (sModuleFactory != null) {
+        sCheckerMap.invalidateAll();
+      }
+
+      Set<String> packageNames = PackageNamesLoader.getPackageNames(moduleClassLoader);
+      sModuleFactory = new InstrumentedModuleFactory(
+              new CachedModuleFactory(packageNames, moduleClassLoader));
+      sModuleFactoryGeneration = generation;
+    }
+    return sModuleFactory;
+  }
+
+  private static int countModules(Configuration configuration) {
+    int count = 1;
+    for (Configuration child : configuration.getChildren()) {
+      count += countModules(child);
+    }
+    return count;
+  }
+
+  /**
+   * Copies a configuration, omitting the reporting modules not contained in the given set.
+   *
+   * @param configuration
+   *          the configuration
+   * @param moduleNames
+   *          the internal names of the reporting modules to keep
+   * @return the filtered copy of the configuration
+   * @throws CheckstyleException
+   *           an attribute could not be read
+   */
+  private static Configuration filterModules(Configuration configuration,
+          Set<String> moduleNames) throws CheckstyleException {
+
+    DefaultConfiguration filtered = new DefaultConfiguration(configuration.getName());
+    for (String attributeName : configuration.getAttributeNames()) {
+      filtered.addAttribute(attributeName, configuration.getAttribute(attributeName));
+    }
+    for (Map.Entry<String, String> message : configuration.getMessages().entrySet()) {
+      filtered.addMessage(message.getKey(), message.getValue());
+    }
+
+    for (Configuration child : configuration.getChildren()) {
+
+      RuleMetadata metadata = MetadataFactory.getRuleMetadata(child.getName());
+      if (metadata == null) {
+        continue;
+      }
+
+      if (!ModuleChanges.isReportingModule(metadata)
+              || moduleNames.contains(metadata.getInternalName())) {
+        filtered.addChild(filterModules(child, moduleNames));
+      }
+    }
+    return filtered;
+  }
+
+  /**
+   * Module factory registering the classes of the created modules with the
+   * {@link AuditInstrumentation}, so that sampled audit threads can be attributed to the modules.
+   * Tree walkers create their checks through the same factory.
+   */
+  private static class InstrumentedModuleFactory implements ModuleFactory {
+
+    /** The factory creating the modules. */
+    private final ModuleFactory mDelegate;
+
+    InstrumentedModuleFactory(ModuleFactory delegate) {
+      mDelegate = delegate;
+    }
+
+    @Override
+    public Object createModule(String name) throws CheckstyleException {
+      Object module = mDelegate.createModule(name);
+      AuditInstrumentation.registerModuleClass(module.getClass(), name);
+      return module;
+    }
+  }
+
+  /**
+   * The fingerprint of the effective configuration of a check configuration, as used by a project.
+   */
+  private static class ConfigFingerprint {
+
+    /** The fingerprint. */
+    private final String mFingerprint;
+
+    /** The modification stamp of the configuration file the fingerprint has been built from. */
+    private final long mModificationStamp;
+
+    ConfigFingerprint(String fingerprint, long modificationStamp) {
+      mFingerprint = fingerprint;
+      mModificationStamp = modificationStamp;
+    }
+  }
+
+  /**
+   * Listener marking the project classloaders dirty when the classpath of a Java project changes
+   * or when the contents of output folders or libraries within the workspace change, so that the
+   * classloaders do not need to check their classpath before each audit.
+   */
+  private static class ClassPathListener
+          implements IElementChangedListener, IResourceChangeListener {
+
+    /** The flags of a project delta signaling a changed classpath. */
+    private static final int CLASSPATH_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+            | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_OPENED
+            | IJavaElementDelta.F_CLOSED;
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+
+      for (IJavaElementDelta projectDelta : event.getDelta().getAffectedChildren()) {
+
+        if (projectDelta.getElement() instanceof IJavaProject
+                && (projectDelta.getKind() != IJavaElementDelta.CHANGED
+                        || (projectDelta.getFlags() & CLASSPATH_FLAGS) != 0)) {
+          // projects may contribute to the classpath of others
+          markClassLoadersDirty(null);
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void resourceChanged(IResourceChangeEvent event) {
+
+      IResourceDelta rootDelta = event.getDelta();
+      if (rootDelta != null) {
+        markClassLoadersDirty(rootDelta);
+      }
+    }
+  }
 }
@@ -24,20 +24,24 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.sf.eclipsecs.core.CheckstylePlugin;
 import net.sf.eclipsecs.core.CheckstylePluginPrefs;
 import net.sf.eclipsecs.core.Messages;
-import net.sf.eclipsecs.core.config.ICheckConfiguration;
-import net.sf.eclipsecs.core.jobs.AuditorJob;
+import net.sf.eclipsecs.core.config.CheckstyleConfigurationFileCache;
+import net.sf.eclipsecs.core.config.ModuleChanges;
+import net.sf.eclipsecs.core.jobs.ApplyModuleChangesJob;
+import net.sf.eclipsecs.core.jobs.AuditScheduler;
 import net.sf.eclipsecs.core.jobs.BuildProjectJob;
+import net.sf.eclipsecs.core.jobs.BuildProjectJobGroup;
 import net.sf.eclipsecs.core.nature.CheckstyleNature;
-import net.sf.eclipsecs.core.projectconfig.FileSet;
 import net.sf.eclipsecs.core.projectconfig.IProjectConfiguration;
 import net.sf.eclipsecs.core.projectconfig.ProjectConfigurationFactory;
-import net.sf.eclipsecs.core.projectconfig.filters.IFilter;
 import net.sf.eclipsecs.core.util.CheckstylePluginException;
 
 import org.eclipse.core.resources.IContainer;
@@ -47,6 +51,7 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -54,6 +59,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.osgi.util.NLS;
 
 /**
@@ -76,7 +82,6 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
   public static void buildProject(final IProject project) {
     // uses the new Jobs API to run the build in the background
     BuildProjectJob buildJob = new BuildProjectJob(project, IncrementalProjectBuilder.FULL_BUILD);
-    buildJob.setRule(ResourcesPlugin.getWorkspace().getRoot());
     buildJob.schedule();
   }
 
@@ -104,7 +109,44 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
   public static void buildProjects(final Collection<IProject> projects)
           throws CheckstylePluginException {
 
-    // Build only open projects with Checkstyle enabled
+    List<IProject> checkstyleProjects = getCheckstyleProjects(projects);
+
+    // uses the new Jobs API to build the projects in the background, at the same time
+    BuildProjectJobGroup buildJobs = new BuildProjectJobGroup(
+            checkstyleProjects.toArray(new IProject[checkstyleProjects.size()]),
+            IncrementalProjectBuilder.FULL_BUILD);
+    buildJobs.schedule();
+  }
+
+  /**
+   * Updates the checkstyle enabled projects that are open from the given collection of projects
+   * after changes to their check configurations. Where possible the changes are applied to the
+   * existing markers and only the changed modules are run, otherwise the projects are rebuilt.
+   *
+   * @param projects
+   *          the projects to build
+   * @param moduleChanges
+   *          the module changes by check configuration name
+   * @throws CheckstylePluginException
+   *           Error during the build
+   */
+  public static void buildProjects(final Collection<IProject> projects,
+          final Map<String, ModuleChanges> moduleChanges) throws CheckstylePluginException {
+
+    List<IProject> checkstyleProjects = getCheckstyleProjects(projects);
+
+    ApplyModuleChangesJob job = new ApplyModuleChangesJob(
+            checkstyleProjects.toArray(new IProject[checkstyleProjects.size()]), moduleChanges);
+    job.setRule(ResourcesPlugin.getWorkspace().getRoot());
+    job.schedule();
+  }
+
+  /**
+   * Filters the open projects with Checkstyle enabled.
+   */
+  private static List<IProject> getCheckstyleProjects(final Collection<IProject> projects)
+          throws CheckstylePluginException {
+
     List<IProject> checkstyleProjects = new ArrayList<>();
 
     for (IProject project : projects) {
@@ -117,13 +159,16 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
         CheckstylePluginException.rethrow(e);
       }
     }
+    return checkstyleProjects;
+  }
 
-    // uses the new Jobs API to run the build in the background
-    BuildProjectJob buildJob = new BuildProjectJob(
-            checkstyleProjects.toArray(new IProject[checkstyleProjects.size()]),
-            IncrementalProjectBuilder.FULL_BUILD);
-    buildJob.setRule(ResourcesPlugin.getWorkspace().getRoot());
-    buildJob.schedule();
+  /**
+   * The builder only changes the markers of its own project, so builds of different projects don't
+   * need to lock the whole workspace.
+   */
+  @Override
+  public ISchedulingRule getRule(int kind, @SuppressWarnings("rawtypes") Map args) {
+    return getProject();
   }
 
   /**
@@ -136,6 +181,52 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
     // get the associated project for this builder
     IProject project = getProject();
 
+    // the class files compiled within this build are only announced to resource change listeners
+    // after the build, so the classloader checks the deltas of the build itself
+    ProjectClassLoader classLoader = CheckerFactory.getClassLoader(project);
+    for (IProject classPathProject : classLoader.getClassPathProjects()) {
+      IResourceDelta delta = getDelta(classPathProject);
+      if (delta == null || classLoader.isAffectedBy(delta)) {
+        classLoader.markDirty();
+        break;
+      }
+    }
+
+    auditProject(project, getDelta(project), kind, monitor);
+
+    // ask for the deltas of the projects contributing classes for the next build
+    Set<IProject> interestingProjects = new LinkedHashSet<>();
+    interestingProjects.add(project);
+    interestingProjects.addAll(Arrays.asList(classLoader.getClassPathProjects()));
+    return interestingProjects.toArray(new IProject[interestingProjects.size()]);
+  }
+
+  /**
+   * Audits a project like the builder does, but outside of a workspace build. This needs only the
+   * project as scheduling rule, whereas building the project through
+   * {@link IProject#build(int, String, Map, IProgressMonitor)} always needs the build rule of the
+   * workspace, which is the workspace root.
+   *
+   * @param project
+   *          the project to audit
+   * @param kind
+   *          the kind of build
+   * @param monitor
+   *          the progress monitor
+   * @throws CoreException
+   *           if the audit fails
+   */
+  public final void auditProject(final IProject project, final int kind,
+          final IProgressMonitor monitor) throws CoreException {
+    auditProject(project, null, kind, monitor);
+  }
+
+  /**
+   * Audits the files of a project, either the changed files of a resource delta or all files.
+   */
+  private void auditProject(final IProject project, final IResourceDelta resourceDelta,
+          final int kind, final IProgressMonitor monitor) throws CoreException {
+
     // remove project level error markers
     project.deleteMarkers(CheckstyleMarker.MARKER_ID, false, IResource.DEPTH_ZERO);
 
@@ -155,21 +246,18 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
         throw new CoreException(status);
       }
 
-      Collection<IResource> resources = null;
-
-      // get the delta of the latest changes
-      IResourceDelta resourceDelta = getDelta(project);
-
-      IFilter[] filters = config.getFilters().toArray(new IFilter[config.getFilters().size()]);
+      // stream the files of the build into the auditors of the file sets
+      AuditDispatcher dispatcher = createDispatcher(config, project, null);
+      FileCollector collector = new FileCollector(config.getFilters(), dispatcher);
 
-      // find the files for the build
+      // the delta of the latest changes, if any
       if (resourceDelta != null) {
-        resources = getResources(resourceDelta, filters);
+        resourceDelta.accept(collector);
       } else {
-        resources = getResources(project, filters);
+        project.accept(collector, IResource.NONE);
       }
 
-      handleBuildSelection(resources, config, monitor, project, kind);
+      runAudits(dispatcher, monitor, project, kind);
 
     } else {
 
@@ -193,8 +281,6 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
       IMarker marker = project.createMarker(CheckstyleMarker.MARKER_ID);
       marker.setAttributes(markerAttributes);
     }
-
-    return new IProject[] { project };
   }
 
   @Override
@@ -224,84 +310,56 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
           final IProjectConfiguration configuration, final IProgressMonitor monitor,
           final IProject project, final int kind) throws CoreException {
 
-    // System.out.println(new java.util.Date() + " kind: " + kind + " files:
-    // " + resources.size());
+    AuditDispatcher dispatcher = createDispatcher(configuration, project, null);
+    for (T resource : resources) {
+      if (resource instanceof IFile) {
+        dispatcher.dispatch((IFile) resource);
+      }
+    }
+
+    runAudits(dispatcher, monitor, project, kind);
+  }
+
+  /**
+   * Runs the auditors of a build.
+   *
+   * @param dispatcher
+   *          the dispatcher holding the auditors and their files
+   * @param monitor
+   *          the progress monitor
+   * @param project
+   *          the built project
+   * @param kind
+   *          the kind of build
+   * @throws CoreException
+   *           if the build fails
+   */
+  private void runAudits(final AuditDispatcher dispatcher, final IProgressMonitor monitor,
+          final IProject project, final int kind) throws CoreException {
 
     // on full build remove all previous checkstyle markers
     if (kind == IncrementalProjectBuilder.FULL_BUILD) {
       project.deleteMarkers(CheckstyleMarker.MARKER_ID, false, IResource.DEPTH_INFINITE);
+    } else {
+      deleteMarkers(dispatcher.getAuditedFiles());
     }
 
     boolean backgroundFullBuild = CheckstylePluginPrefs
             .getBoolean(CheckstylePluginPrefs.PREF_BACKGROUND_FULL_BUILD);
 
+    // resolve each check configuration only once for this build
+    CheckstyleConfigurationFileCache.beginAuditCycle();
     try {
 
-      //
-      // Build a set of auditors from the file sets of this project
-      // configuration.
-      // File sets that share the same check configuration merge into
-      // one Auditor.
-      //
-      List<FileSet> fileSets = configuration.getFileSets();
-
-      Map<ICheckConfiguration, Auditor> audits = new HashMap<>();
-
-      for (FileSet fileSet : fileSets) {
-
-        // skip not enabled filesets
-        if (!fileSet.isEnabled()) {
-          continue;
-        }
-
-        ICheckConfiguration checkConfig = fileSet.getCheckConfig();
-        if (checkConfig == null) {
-          throw new CheckstylePluginException(
-                  NLS.bind(Messages.errorNoCheckConfig, project.getName()));
-        }
-
-        // get an already created audit from the map
-        Auditor audit = audits.get(checkConfig);
-
-        // create the audit with the file sets check configuration
-        if (audit == null) {
-
-          audit = new Auditor(checkConfig);
-          audits.put(checkConfig, audit);
-        }
-
-        // check which files belong to the file set
-        for (IResource resource : resources) {
-
-          if (resource instanceof IFile) {
-            IFile file = (IFile) resource;
-
-            // if file set includes file add to the audit
-            if (fileSet.includesFile(file)) {
-              audit.addFile(file);
-
-              // remove markers on this file
-              file.deleteMarkers(CheckstyleMarker.MARKER_ID, false, IResource.DEPTH_ZERO);
-
-              // remove markers from package to prevent
-              // packagehtml messages from accumulatin
-              file.getParent().deleteMarkers(CheckstyleMarker.MARKER_ID, false,
-                      IResource.DEPTH_ZERO);
-            }
-          }
-        }
-      }
-
       // run all auditors
-      for (Auditor audit : audits.values()) {
+      for (Auditor audit : dispatcher.getAuditors()) {
         if (monitor.isCanceled()) {
           throw new OperationCanceledException();
         }
 
         if (backgroundFullBuild && kind == FULL_BUILD) {
 
-          AuditorJob j = new AuditorJob(project, audit);
-          j.schedule();
+          AuditScheduler.auditProject(project, audit);
         } else {
           audit.runAudit(project, monitor);
         }
@@ -310,109 +368,153 @@ public class CheckstyleBuilder extends IncrementalProjectBuilder {
       Status status = new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
               e.getLocalizedMessage(), e);
       throw new CoreException(status);
+    } finally {
+      CheckstyleConfigurationFileCache.endAuditCycle();
     }
   }
 
   /**
-   * Get the files for the build by analyzing the resource delta.
+   * Runs only the given modules on all files of a project. Markers previously created by these
+   * modules must have been removed before.
    *
-   * @param delta
-   *          the delta of changes
-   * @param filters
-   *          filters to exclude elements from the check
-   * @return collection of files to build
+   * @param project
+   *          the project
+   * @param configuration
+   *          the project configuration
+   * @param moduleNames
+   *          the internal names of the modules to run
+   * @param monitor
+   *          the progress monitor
    * @throws CoreException
-   *           an unexpected error occurred
+   *           if the audit fails
    */
-  private Collection<IResource> getResources(final IResourceDelta delta, final IFilter[] filters)
-          throws CoreException {
-
-    List<IResource> resources = new ArrayList<>();
-
-    IResourceDelta[] affectedChildren = delta.getAffectedChildren();
+  public final void auditModules(final IProject project,
+          final IProjectConfiguration configuration, final Set<String> moduleNames,
+          final IProgressMonitor monitor) throws CoreException {
 
-    for (int i = 0; i < affectedChildren.length; i++) {
+    AuditDispatcher dispatcher = createDispatcher(configuration, project, moduleNames);
+    project.accept(new FileCollector(configuration.getFilters(), dispatcher), IResource.NONE);
 
-      IResourceDelta childDelta = affectedChildren[i];
+    CheckstyleConfigurationFileCache.beginAuditCycle();
+    try {
 
-      // check if a resource has changed
-      int deltaKind = childDelta.getKind();
-      if ((deltaKind == IResourceDelta.ADDED) || (deltaKind == IResourceDelta.CHANGED)) {
+      for (Auditor audit : dispatcher.getAuditors()) {
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        audit.runAudit(project, monitor);
+      }
+    } catch (CheckstylePluginException e) {
+      Status status = new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
+              e.getLocalizedMessage(), e);
+      throw new CoreException(status);
+    } finally {
+      CheckstyleConfigurationFileCache.endAuditCycle();
+    }
+  }
 
-        IResource child = childDelta.getResource();
+  /**
+   * Audits the unsaved content of a file, like the document of an editor, with the check
+   * configurations of the file sets including the file. No markers are created.
+   *
+   * @param file
+   *          the file the content belongs to
+   * @param content
+   *          the content of the file
+   * @param monitor
+   *          the progress monitor
+   * @return the attributes of the markers the audit would have created
+   * @throws CoreException
+   *           if the audit fails
+   */
+  public static List<Map<String, Object>> auditDocument(final IFile file, final String content,
+          final IProgressMonitor monitor) throws CoreException {
 
-        // filter resources
-        boolean goesThrough = true;
-        for (int j = 0; j < filters.length; j++) {
+    List<Map<String, Object>> markers = new ArrayList<>();
 
-          if (filters[j].isEnabled() && !filters[j].accept(child)) {
-            goesThrough = false;
-            break;
-          }
-        }
+    IProject project = file.getProject();
+    if (!project.isAccessible() || !project.hasNature(CheckstyleNature.NATURE_ID)) {
+      return markers;
+    }
 
-        // the child has made it through the filters
-        if (goesThrough) {
+    CheckstyleConfigurationFileCache.beginAuditCycle();
+    try {
 
-          // add to the resources to check
-          resources.add(child);
-        }
+      IProjectConfiguration configuration = ProjectConfigurationFactory.getConfiguration(project);
+      AuditDispatcher dispatcher = createDispatcher(configuration, project, null);
+      new FileCollector(configuration.getFilters(), dispatcher).collect(file);
 
-        // recurse over containers
-        if (child instanceof IContainer) {
-          resources.addAll(getResources(childDelta, filters));
+      for (Auditor audit : dispatcher.getAuditors()) {
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
         }
+        markers.addAll(audit.runDocumentAudit(file, content, monitor));
       }
+    } catch (CheckstylePluginException e) {
+      Status status = new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
+              e.getLocalizedMessage(), e);
+      throw new CoreException(status);
+    } finally {
+      CheckstyleConfigurationFileCache.endAuditCycle();
     }
-    return resources;
+    return markers;
   }
 
   /**
-   * Get all files to build from a given container.
+   * Creates the dispatcher assigning files to the auditors of the file sets.
    *
-   * @param container
-   *          the container
-   * @param filters
-   *          filters to exclude elements from the check
-   * @return collection of files to build
+   * @param configuration
+   *          the project configuration
+   * @param project
+   *          the project
+   * @param moduleNames
+   *          the modules to restrict the audits to, or <code>null</code> for all modules
+   * @return the dispatcher
    * @throws CoreException
-   *           an unexpected error occurred
+   *           an enabled file set has no check configuration
    */
-  private Collection<IResource> getResources(final IContainer container, final IFilter[] filters)
-          throws CoreException {
+  private static AuditDispatcher createDispatcher(final IProjectConfiguration configuration,
+          final IProject project, final Set<String> moduleNames) throws CoreException {
+    try {
+      return new AuditDispatcher(configuration, project, moduleNames);
+    } catch (CheckstylePluginException e) {
+      Status status = new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
+              e.getLocalizedMessage(), e);
+      throw new CoreException(status);
+    }
+  }
 
-    List<IResource> resources = new ArrayList<>();
+  /**
+   * Removes the markers of the files and their folders in one workspace operation. The markers of
+   * the folders are removed to prevent package.html messages from accumulating.
+   *
+   * @param files
+   *          the files
+   * @throws CoreException
+   *           the markers could not be removed
+   */
+  private static void deleteMarkers(final Collection<IFile> files) throws CoreException {
 
-    IResource[] children = container.members();
+    if (files.isEmpty()) {
+      return;
+    }
 
-    // loop over children resources
-    for (int i = 0; i < children.length; i++) {
+    IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
 
-      IResource child = children[i];
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
 
-      // filter resources
-      boolean goesThrough = true;
-      for (int j = 0; j < filters.length; j++) {
+        Set<IContainer> folders = new HashSet<>();
+        for (IFile file : files) {
+          file.deleteMarkers(CheckstyleMarker.MARKER_ID, false, IResource.DEPTH_ZERO);
 
-        if (filters[j].isEnabled() && !filters[j].accept(child)) {
-          goesThrough = false;
-          break;
+          if (folders.add(file.getParent())) {
+            file.getParent().deleteMarkers(CheckstyleMarker.MARKER_ID, false,
+                    IResource.DEPTH_ZERO);
+          }
         }
       }
-
-      // the child has made it through the filters
-      if (goesThrough) {
-
-        // add to the resources to check
-        resources.add(child);
-      }
-
-      // recurse over containers
-      if (child instanceof IContainer) {
-        resources.addAll(getResources((IContainer) child, filters));
-      }
-    }
-    return resources;
+    };
+    ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE, null);
   }
-
 }
@@ -20,6 +20,9 @@
 
 package net.sf.eclipsecs.core.builder;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.sf.eclipsecs.core.CheckstylePlugin;
 
 /**
@@ -40,6 +43,9 @@ public final class CheckstyleMarker {
   /** Constant for message key info additionally stored. */
   public static final String MESSAGE_KEY = "MessageKey"; //$NON-NLS-1$
 
+  /** Constant for the message arguments additionally stored, see {@link #encodeArguments}. */
+  public static final String MESSAGE_ARGUMENTS = "MessageArguments"; //$NON-NLS-1$
+
   /** Constant for the error marker type. */
   public static final String ERROR_TYPE = CheckstylePlugin.PLUGIN_ID + ".error"; //$NON-NLS-1$
 
@@ -49,4 +55,67 @@ public final class CheckstyleMarker {
   /** Constant for the info marker type. */
   public static final String INFO_TYPE = CheckstylePlugin.PLUGIN_ID + ".info"; //$NON-NLS-1$
 
+  /** Separator of the encoded message arguments. */
+  private static final char ARGUMENT_SEPARATOR = ',';
+
+  /** Escape character of the encoded message arguments. */
+  private static final char ARGUMENT_ESCAPE = '\\';
+
+  /**
+   * Encodes the arguments of a Checkstyle message into a single marker attribute value. The
+   * arguments are stored by their string values, separated by commas.
+   *
+   * @param args
+   *          the message arguments
+   * @return the encoded arguments
+   */
+  public static String encodeArguments(Object[] args) {
+
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < args.length; i++) {
+      if (i > 0) {
+        buf.append(ARGUMENT_SEPARATOR);
+      }
+
+      String arg = String.valueOf(args[i]);
+      for (int j = 0, length = arg.length(); j < length; j++) {
+        char c = arg.charAt(j);
+        if (c == ARGUMENT_SEPARATOR || c == ARGUMENT_ESCAPE) {
+          buf.append(ARGUMENT_ESCAPE);
+        }
+        buf.append(c);
+      }
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Decodes the message arguments stored by {@link #encodeArguments(Object[])}.
+   *
+   * @param encoded
+   *          the encoded arguments, may be <code>null</code>
+   * @return the string values of the arguments, empty if none are stored
+   */
+  public static String[] decodeArguments(String encoded) {
+
+    if (encoded == null) {
+      return new String[0];
+    }
+
+    List<String> args = new ArrayList<>();
+    StringBuilder arg = new StringBuilder();
+    for (int i = 0, length = encoded.length(); i < length; i++) {
+      char c = encoded.charAt(i);
+      if (c == ARGUMENT_ESCAPE && i + 1 < length) {
+        arg.append(encoded.charAt(++i));
+      } else if (c == ARGUMENT_SEPARATOR) {
+        args.add(arg.toString());
+        arg.setLength(0);
+      } else {
+        arg.append(c);
+      }
+    }
+    args.add(arg.toString());
+    return args.toArray(new String[args.size()]);
+  }
 }
\ No newline at end of file
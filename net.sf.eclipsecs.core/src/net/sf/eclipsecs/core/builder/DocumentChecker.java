@@ -0,0 +1,214 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilterSet;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checker which can also audit content that has not been saved yet, like the document of an
+ * editor. The content is passed to the file set checks directly instead of being read from disk.
+ * <p>
+ * Cached checkers are shared by all projects with the same effective configuration. A checker is
+ * leased by one audit at a time, and its classloader delegates to the classloader of the project
+ * it is currently leased for.
+ * </p>
+ *
+ * @author Lars Ködderitzsch
+ */
+class DocumentChecker extends Checker {
+
+  /** The file set checks of the checker, which are not accessible from the super class. */
+  private final List<FileSetCheck> mFileSetChecks = new ArrayList<>();
+
+  /** The file filters of the checker. */
+  private final BeforeExecutionFileFilterSet mFileFilters = new BeforeExecutionFileFilterSet();
+
+  /** The number of modules configured for the checker, including the checks of tree walkers. */
+  private int mModuleCount;
+
+  /** Flags if the configuration sets the cache file of Checkstyle. */
+  private boolean mUsesCacheFile;
+
+  /** The classloader of the checker, delegating to the classloader of the audited project. */
+  private final ProjectDelegatingClassLoader mClassLoader = new ProjectDelegatingClassLoader();
+
+  /** Flags if the checker is leased by an audit. */
+  private final AtomicBoolean mLeased = new AtomicBoolean();
+
+  /**
+   * Creates the checker.
+   */
+  DocumentChecker() {
+    setClassLoader(mClassLoader);
+  }
+
+  /**
+   * Returns the number of configured modules, which is used to weigh cached checkers.
+   *
+   * @return the number of modules
+   */
+  int getModuleCount() {
+    return mModuleCount;
+  }
+
+  void setModuleCount(int moduleCount) {
+    mModuleCount = moduleCount;
+  }
+
+  /**
+   * Returns if the configuration sets the cache file of Checkstyle, which must not be written by
+   * several checkers at once.
+   *
+   * @return <code>true</code> if a cache file is used
+   */
+  boolean usesCacheFile() {
+    return mUsesCacheFile;
+  }
+
+  void setUsesCacheFile(boolean usesCacheFile) {
+    mUsesCacheFile = usesCacheFile;
+  }
+
+  /**
+   * Leases the checker for an audit of a project, unless it is already leased by another audit.
+   *
+   * @param projectClassLoader
+   *          the classloader of the audited project
+   * @return <code>true</code> if the checker has been leased
+   */
+  boolean lease(ClassLoader projectClassLoader) {
+    if (!mLeased.compareAndSet(false, true)) {
+      return false;
+    }
+    mClassLoader.mDelegate = projectClassLoader;
+    return true;
+  }
+
+  /**
+   * Returns the checker after an audit, so it can be leased again.
+   */
+  void release() {
+    mClassLoader.mDelegate = null;
+    mLeased.set(false);
+  }
+
+  @Override
+  public void addFileSetCheck(FileSetCheck fileSetCheck) {
+    super.addFileSetCheck(fileSetCheck);
+    mFileSetChecks.add(fileSetCheck);
+  }
+
+  @Override
+  public void addBeforeExecutionFileFilter(BeforeExecutionFileFilter filter) {
+    super.addBeforeExecutionFileFilter(filter);
+    mFileFilters.addBeforeExecutionFileFilter(filter);
+  }
+
+  /**
+   * Audits the content of a file, the same way as {@link #process(List)} audits the files read
+   * from disk. The events are reported to the listeners of the checker.
+   *
+   * @param file
+   *          the file the content belongs to
+   * @param lines
+   *          the lines of the content
+   * @param charset
+   *          the charset of the file
+   * @throws CheckstyleException
+   *           an exception was thrown while processing the content
+   */
+  public void processDocument(File file, List<String> lines, String charset)
+          throws CheckstyleException {
+
+    String fileName = file.getAbsolutePath();
+    if (!mFileFilters.accept(fileName)) {
+      return;
+    }
+
+    for (FileSetCheck fsc : mFileSetChecks) {
+      fsc.beginProcessing(charset);
+    }
+
+    try {
+      FileText text = new FileText(file.getAbsoluteFile(), lines);
+
+      fireFileStarted(fileName);
+      SortedSet<LocalizedMessage> messages = new TreeSet<>();
+      for (FileSetCheck fsc : mFileSetChecks) {
+        messages.addAll(fsc.process(file, text));
+      }
+      fireErrors(fileName, messages);
+      fireFileFinished(fileName);
+    } catch (Exception e) {
+      throw new CheckstyleException("Exception was thrown while processing " + fileName, e); //$NON-NLS-1$
+    } finally {
+
+      // like after the processing of files, both may also log
+      for (FileSetCheck fsc : mFileSetChecks) {
+        fsc.finishProcessing();
+      }
+      for (FileSetCheck fsc : mFileSetChecks) {
+        fsc.destroy();
+      }
+    }
+  }
+
+  /**
+   * Classloader delegating to the classloader of the project the checker is leased for, since the
+   * classloader is handed to the modules once when the checker is configured.
+   */
+  private static final class ProjectDelegatingClassLoader extends ClassLoader {
+
+    /** The classloader of the audited project, or <code>null</code>. */
+    private volatile ClassLoader mDelegate;
+
+    ProjectDelegatingClassLoader() {
+      super(null);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      ClassLoader delegate = mDelegate;
+      return delegate != null ? delegate.loadClass(name) : super.loadClass(name, resolve);
+    }
+
+    @Override
+    public URL getResource(String name) {
+      ClassLoader delegate = mDelegate;
+      return delegate != null ? delegate.getResource(name) : super.getResource(name);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.eclipsecs.core.projectconfig.filters.IContainerFilter;
+import net.sf.eclipsecs.core.projectconfig.filters.IFilter;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+
+/**
+ * Collects the files to build, either from all members of a project or from a resource delta, and
+ * streams the files passing the enabled filters into an {@link AuditDispatcher}. Folders rejected
+ * as a whole by an {@link IContainerFilter} are not traversed.
+ *
+ * @author Lars Ködderitzsch
+ */
+final class FileCollector implements IResourceProxyVisitor, IResourceDeltaVisitor {
+
+  /** The enabled filters. */
+  private final List<IFilter> mFilters = new ArrayList<>();
+
+  /** The enabled filters able to exclude whole folders. */
+  private final List<IContainerFilter> mContainerFilters = new ArrayList<>();
+
+  /** The dispatcher receiving the files. */
+  private final AuditDispatcher mDispatcher;
+
+  /**
+   * Creates the collector.
+   *
+   * @param filters
+   *          the filters of the project configuration
+   * @param dispatcher
+   *          the dispatcher receiving the files
+   */
+  FileCollector(List<IFilter> filters, AuditDispatcher dispatcher) {
+    mDispatcher = dispatcher;
+
+    for (IFilter filter : filters) {
+      if (filter.isEnabled()) {
+        mFilters.add(filter);
+        if (filter instanceof IContainerFilter) {
+          mContainerFilters.add((IContainerFilter) filter);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean visit(IResourceProxy proxy) {
+
+    switch (proxy.getType()) {
+      case IResource.FILE:
+        collect((IFile) proxy.requestResource());
+        return false;
+      case IResource.FOLDER:
+        return !isExcluded((IContainer) proxy.requestResource());
+      default:
+        return true;
+    }
+  }
+
+  @Override
+  public boolean visit(IResourceDelta delta) {
+
+    IResource resource = delta.getResource();
+    if (resource.getType() == IResource.PROJECT || resource.getType() == IResource.ROOT) {
+      return true;
+    }
+
+    // only added or changed resources are built
+    int deltaKind = delta.getKind();
+    if (deltaKind != IResourceDelta.ADDED && deltaKind != IResourceDelta.CHANGED) {
+      return false;
+    }
+
+    if (resource instanceof IFile) {
+      collect((IFile) resource);
+      return false;
+    }
+    return !isExcluded((IContainer) resource);
+  }
+
+  /**
+   * Passes a file to the dispatcher, if it is accepted by the enabled filters.
+   *
+   * @param file
+   *          the file
+   */
+  void collect(IFile file) {
+
+    for (int i = 0, size = mFilters.size(); i < size; i++) {
+      if (!mFilters.get(i).accept(file)) {
+        return;
+      }
+    }
+    mDispatcher.dispatch(file);
+  }
+
+  private boolean isExcluded(IContainer container) {
+
+    for (int i = 0, size = mContainerFilters.size(); i < size; i++) {
+      if (mContainerFilters.get(i).excludesContainer(container)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
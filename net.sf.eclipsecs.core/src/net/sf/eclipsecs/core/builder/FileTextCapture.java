@@ -0,0 +1,70 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+import java.io.File;
+
+/**
+ * File set check keeping the content of the file currently processed by the checker, so that
+ * marker offsets can be calculated from the text the checker already read instead of reading the
+ * file again. The content is kept per thread, since the events of a file are reported on the
+ * thread processing it.
+ *
+ * @author Lars Ködderitzsch
+ */
+class FileTextCapture extends AbstractFileSetCheck {
+
+  /** The content of the file last processed by the current thread. */
+  private static final ThreadLocal<FileText> sCurrentText = new ThreadLocal<>();
+
+  /**
+   * Returns the content of the file last processed by the current thread.
+   *
+   * @return the file content or <code>null</code>
+   */
+  static FileText getCurrent() {
+    return sCurrentText.get();
+  }
+
+  /**
+   * Sets the content of the current file, used when replaying the events of a file on another
+   * thread.
+   *
+   * @param fileText
+   *          the file content or <code>null</code>
+   */
+  static void setCurrent(FileText fileText) {
+    if (fileText != null) {
+      sCurrentText.set(fileText);
+    } else {
+      sCurrentText.remove();
+    }
+  }
+
+  @Override
+  protected void processFiltered(File file, FileText fileText) {
+    sCurrentText.set(fileText);
+  }
+}
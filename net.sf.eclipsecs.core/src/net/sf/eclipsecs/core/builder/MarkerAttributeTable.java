@@ -0,0 +1,239 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.builder;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.eclipsecs.core.Messages;
+import net.sf.eclipsecs.core.config.Module;
+import net.sf.eclipsecs.core.config.meta.MetadataFactory;
+import net.sf.eclipsecs.core.config.meta.RuleMetadata;
+import net.sf.eclipsecs.core.util.CheckstyleLog;
+
+import org.eclipse.core.resources.IMarker;
+
+/**
+ * Creates the marker attributes of audit events. The module related attributes are resolved once
+ * per module and audit and kept as immutable templates, so that only the line, message, message
+ * key and message arguments need to be added for each event. Offsets are added by the caller.
+ * <p>
+ * Instances are not thread safe, each audit listener uses its own table.
+ * </p>
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class MarkerAttributeTable {
+
+  /** Marker attribute enabling an own category under Java Problem Type (RFE 1530366). */
+  private static final String CATEGORY_ID = "categoryId"; //$NON-NLS-1$
+
+  /** The category of Checkstyle markers. */
+  private static final Integer CATEGORY_CHECKSTYLE = Integer.valueOf(999);
+
+  /** The priority of Checkstyle markers. */
+  private static final Integer PRIORITY_NORMAL = Integer.valueOf(IMarker.PRIORITY_NORMAL);
+
+  /** The maximum length of the encoded message arguments stored with a marker. */
+  private static final int MAX_ARGUMENTS_LENGTH = 4000;
+
+  /** The field holding the arguments of a Checkstyle message, or <code>null</code>. */
+  private static final Field ARGS_FIELD = getArgsField();
+
+  /** Flags if the rule name is prepended to the messages. */
+  private final boolean mAddRuleName;
+
+  /** Flags if the module id is prepended to the messages. */
+  private final boolean mAddModuleId;
+
+  /** The resolved modules, by source name and module id. */
+  private final Map<String, ModuleDescriptor> mDescriptors = new HashMap<>();
+
+  /**
+   * Creates the table.
+   *
+   * @param addRuleName
+   *          <code>true</code> if the rule name is prepended to the messages
+   * @param addModuleId
+   *          <code>true</code> if the module id is prepended to the messages
+   */
+  public MarkerAttributeTable(boolean addRuleName, boolean addModuleId) {
+    mAddRuleName = addRuleName;
+    mAddModuleId = addModuleId;
+  }
+
+  /**
+   * Creates the attributes of the marker for an audit event, without offsets.
+   *
+   * @param event
+   *          the audit event
+   * @return the modifiable marker attributes
+   */
+  public Map<String, Object> createAttributes(AuditEvent event) {
+
+    ModuleDescriptor descriptor = getDescriptor(event);
+
+    Map<String, Object> attributes = new HashMap<>(descriptor.getTemplate(
+            event.getSeverityLevel()));
+    attributes.put(CheckstyleMarker.MESSAGE_KEY, event.getLocalizedMessage().getKey());
+    attributes.put(IMarker.LINE_NUMBER, Integer.valueOf(event.getLine()));
+
+    Object[] args = getArguments(event.getLocalizedMessage());
+    if (args != null && args.length > 0) {
+      String encodedArgs = CheckstyleMarker.encodeArguments(args);
+
+      // marker attribute values are limited in size
+      if (encodedArgs.length() <= MAX_ARGUMENTS_LENGTH) {
+        attributes.put(CheckstyleMarker.MESSAGE_ARGUMENTS, encodedArgs);
+      }
+    }
+    attributes.put(IMarker.MESSAGE, descriptor.mMessagePrefix != null
+            ? descriptor.mMessagePrefix + event.getMessage()
+            : event.getMessage());
+    return attributes;
+  }
+
+  /**
+   * Returns the arguments of a Checkstyle message, which Checkstyle does not expose otherwise.
+   */
+  private static Object[] getArguments(LocalizedMessage message) {
+
+    if (ARGS_FIELD == null) {
+      return null;
+    }
+    try {
+      return (Object[]) ARGS_FIELD.get(message);
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static Field getArgsField() {
+    try {
+      Field field = LocalizedMessage.class.getDeclaredField("args"); //$NON-NLS-1$
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException | SecurityException e) {
+      // markers are created without arguments
+      CheckstyleLog.log(e);
+      return null;
+    }
+  }
+
+  private static int getSeverityValue(SeverityLevel severity) {
+    int result = IMarker.SEVERITY_WARNING;
+
+    if (SeverityLevel.INFO.equals(severity)) {
+      result = IMarker.SEVERITY_INFO;
+    } else if (SeverityLevel.WARNING.equals(severity)) {
+      result = IMarker.SEVERITY_WARNING;
+    } else if (SeverityLevel.ERROR.equals(severity)) {
+      result = IMarker.SEVERITY_ERROR;
+    }
+
+    return result;
+  }
+
+  private ModuleDescriptor getDescriptor(AuditEvent event) {
+
+    String sourceName = event.getSourceName();
+    String moduleId = event.getModuleId();
+    String key = moduleId != null ? sourceName + "#" + moduleId : sourceName; //$NON-NLS-1$
+
+    ModuleDescriptor descriptor = mDescriptors.get(key);
+    if (descriptor == null) {
+
+      RuleMetadata metaData = MetadataFactory.getRuleMetadata(sourceName);
+      String ruleName = metaData != null ? metaData.getRuleName()
+              : Messages.Auditor_txtUnknownModule;
+
+      // create generic metadata if none can be found
+      if (metaData == null) {
+        metaData = MetadataFactory.createGenericMetadata(new Module(sourceName));
+      }
+
+      descriptor = new ModuleDescriptor(metaData.getInternalName(),
+              getMessagePrefix(ruleName, moduleId));
+      mDescriptors.put(key, descriptor);
+    }
+    return descriptor;
+  }
+
+  private String getMessagePrefix(String ruleName, String moduleId) {
+
+    StringBuilder prefix = new StringBuilder();
+    if (mAddRuleName) {
+      prefix.append(ruleName);
+    }
+    if (mAddModuleId && moduleId != null) {
+      if (prefix.length() > 0) {
+        prefix.append(" - "); //$NON-NLS-1$
+      }
+      prefix.append(moduleId);
+    }
+    return prefix.length() > 0 ? prefix.append(": ").toString() : null; //$NON-NLS-1$
+  }
+
+  /**
+   * The resolved data of a module.
+   */
+  private static final class ModuleDescriptor {
+
+    /** The internal name of the module. */
+    private final String mInternalName;
+
+    /** The prefix of the messages, or <code>null</code>. */
+    private final String mMessagePrefix;
+
+    /** The attribute templates by severity level, built on demand. */
+    private final Map<SeverityLevel, Map<String, Object>> mTemplates = new EnumMap<>(
+            SeverityLevel.class);
+
+    ModuleDescriptor(String internalName, String messagePrefix) {
+      mInternalName = internalName;
+      mMessagePrefix = messagePrefix;
+    }
+
+    Map<String, Object> getTemplate(SeverityLevel severity) {
+
+      Map<String, Object> template = mTemplates.get(severity);
+      if (template == null) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(CheckstyleMarker.MODULE_NAME, mInternalName);
+        attributes.put(IMarker.PRIORITY, PRIORITY_NORMAL);
+        attributes.put(IMarker.SEVERITY, Integer.valueOf(getSeverityValue(severity)));
+        attributes.put(CATEGORY_ID, CATEGORY_CHECKSTYLE);
+
+        template = Collections.unmodifiableMap(attributes);
+        mTemplates.put(severity, template);
+      }
+      return template;
+    }
+  }
+}
@@ -20,18 +20,21 @@
 
 package net.sf.eclipsecs.core.builder;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLStreamHandlerFactory;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.eclipsecs.core.Messages;
 import net.sf.eclipsecs.core.util.CheckstyleLog;
@@ -41,6 +44,7 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
@@ -54,14 +58,47 @@ import org.eclipse.osgi.util.NLS;
  * ClassLoader to make the contents of a eclipse project accessible for the style checking process.
  * <br/>
  * After construction the classloader can be initialized with a eclipse project. Reinitialization
- * and reuse of the classloader with another project is possible.
+ * and reuse of the classloader with another project is possible. The underlying classloader is
+ * only recreated if the classloader has been marked dirty since the last initialization - because
+ * the classpath of the project or the contents of its output folders and libraries within the
+ * workspace have changed - or if one of the archives outside of the workspace has been modified.
  *
  * @author Lars Ködderitzsch
  */
-public class ProjectClassLoader extends ClassLoader {
+public class ProjectClassLoader extends ClassLoader implements Closeable {
 
   /** the classloader delegate. */
-  private ClassLoader mDelegateClassLoader;
+  private URLClassLoader mDelegateClassLoader;
+
+  /** the classpath of the delegate. */
+  private URL[] mClassPath = new URL[0];
+
+  /** fingerprint of the classpath the delegate has been created for. */
+  private String mClassPathFingerprint;
+
+  /** the project the classpath has been determined for. */
+  private IProject mProject;
+
+  /** the projects contributing to the classpath. */
+  private IProject[] mClassPathProjects = new IProject[0];
+
+  /** the workspace paths of the output folders and libraries within the workspace. */
+  private List<IPath> mWorkspacePaths = Collections.emptyList();
+
+  /** the archives outside of the workspace, which are not covered by resource changes. */
+  private List<File> mExternalArchives = Collections.emptyList();
+
+  /** modification stamps of the external archives at the time of the initialization. */
+  private String mExternalArchiveStamp;
+
+  /** stamp of the contents of the classpath folders, determined on demand. */
+  private String mFolderStamp;
+
+  /** counts the changes marking the classloader dirty. */
+  private int mModificationCount;
+
+  /** the modification count the classpath has been determined for. */
+  private int mInitializedModificationCount = -1;
 
   /** the parent classloader. */
   private final ClassLoader mParentClassLoader;
@@ -104,20 +141,26 @@ public class ProjectClassLoader extends ClassLoader {
   }
 
   /**
-   * Initializes this classloader with a given eclipse project.
+   * Initializes this classloader with a given eclipse project. The classpath is only determined
+   * again if the classloader has been marked dirty, the underlying classloader is only recreated if
+   * the classpath or the classes within might have changed since the last initialization.
    *
    * @param project
    *          the project
    */
   public void intializeWithProject(IProject project) {
 
-    // Optimization if the project is the same as last
-    // if (project == this.mRecentProject)
-    // {
-    // return;
-    // }
+    int modificationCount;
+    synchronized (this) {
+      if (isInitialized(project)
+              && getArchiveStamp(mExternalArchives).equals(mExternalArchiveStamp)) {
+        return;
+      }
+      modificationCount = mModificationCount;
+    }
 
-    URL[] projClassPath = getProjectClassPath(project);
+    ClassPath classPath = getProjectClassPath(project);
+    URL[] projClassPath = classPath.getURLs();
 
     // // log the complete classpath to track down these pesky
     // // NoClassDefFound-Errors
@@ -133,23 +176,114 @@ public class ProjectClassLoader extends ClassLoader {
     // .toString(), null);
     // CheckstylePlugin.getDefault().getLog().log(status);
 
-    this.mDelegateClassLoader = new URLClassLoader(projClassPath, this.mParentClassLoader,
-            this.mStreamHandlerFactory);
+    String archiveStamp = getArchiveStamp(classPath.mExternalArchives);
+
+    synchronized (this) {
+      // another thread might have initialized the classloader meanwhile
+      if (isInitialized(project) && archiveStamp.equals(mExternalArchiveStamp)) {
+        return;
+      }
+
+      closeDelegate();
+      mClassPath = projClassPath;
+      mClassPathFingerprint = getFingerprint(projClassPath);
+      mProject = project;
+      mClassPathProjects = classPath.mProjects.toArray(new IProject[classPath.mProjects.size()]);
+      mWorkspacePaths = classPath.mWorkspacePaths;
+      mExternalArchives = classPath.mExternalArchives;
+      mExternalArchiveStamp = archiveStamp;
+      mFolderStamp = null;
+      mInitializedModificationCount = modificationCount;
+    }
+  }
+
+  /**
+   * Initializes this classloader with a given eclipse project, unless it has been initialized with
+   * the project before. Other than {@link #intializeWithProject(IProject)} this neither checks the
+   * classpath for changes nor closes an underlying classloader which might be in use by another
+   * audit, so it suits audits running very often like the ones of an edited document.
+   *
+   * @param project
+   *          the project
+   */
+  public void initializeOnce(IProject project) {
+    synchronized (this) {
+      if (project.equals(mProject)) {
+        return;
+      }
+    }
+    intializeWithProject(project);
+  }
+
+  /**
+   * Marks the classloader dirty, so that the classpath is determined again and the underlying
+   * classloader is recreated with the next initialization.
+   */
+  public synchronized void markDirty() {
+    mModificationCount++;
+  }
+
+  /**
+   * Checks if a resource change affects the output folders or libraries within the workspace the
+   * classloader has been initialized with.
+   *
+   * @param delta
+   *          the resource delta of the workspace root or of a project
+   * @return <code>true</code> if the classpath contents are affected by the change
+   */
+  public boolean isAffectedBy(IResourceDelta delta) {
+
+    List<IPath> workspacePaths;
+    synchronized (this) {
+      workspacePaths = mWorkspacePaths;
+    }
+
+    IPath deltaPath = delta.getFullPath();
+    for (IPath path : workspacePaths) {
+      if (deltaPath.isPrefixOf(path)
+              && delta.findMember(path.removeFirstSegments(deltaPath.segmentCount())) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the projects which contributed to the classpath at the last initialization, the
+   * initialized project first.
+   *
+   * @return the projects contributing to the classpath
+   */
+  public synchronized IProject[] getClassPathProjects() {
+    return mClassPathProjects.clone();
+  }
+
+  private boolean isInitialized(IProject project) {
+    return mInitializedModificationCount == mModificationCount && project.equals(mProject);
+  }
+
+  /**
+   * Closes the underlying classloader, releasing opened jar files. The classloader is recreated
+   * if it is used again.
+   */
+  @Override
+  public synchronized void close() {
+    closeDelegate();
   }
 
   @Override
   public Class<?> loadClass(String name) throws ClassNotFoundException {
-    return this.mDelegateClassLoader.loadClass(name);
+    return getDelegate().loadClass(name);
   }
 
   @Override
   public URL getResource(String name) {
-    return this.mDelegateClassLoader.getResource(name);
+    return getDelegate().getResource(name);
   }
 
   @Override
   public InputStream getResourceAsStream(String name) {
-    return this.mDelegateClassLoader.getResourceAsStream(name);
+    return getDelegate().getResourceAsStream(name);
   }
 
   /**
@@ -160,7 +294,145 @@ public class ProjectClassLoader extends ClassLoader {
    */
   @Override
   protected Enumeration<URL> findResources(String name) throws IOException {
-    return this.mDelegateClassLoader.getResources(name);
+    return getDelegate().getResources(name);
+  }
+
+  private synchronized ClassLoader getDelegate() {
+    if (mDelegateClassLoader == null) {
+      mDelegateClassLoader = new URLClassLoader(mClassPath, this.mParentClassLoader,
+              this.mStreamHandlerFactory);
+    }
+    return mDelegateClassLoader;
+  }
+
+  private void closeDelegate() {
+    if (mDelegateClassLoader != null) {
+      try {
+        mDelegateClassLoader.close();
+      } catch (IOException e) {
+        CheckstyleLog.log(e);
+      }
+      mDelegateClassLoader = null;
+    }
+  }
+
+  /**
+   * Returns a fingerprint of the current classpath of a project, which changes whenever the
+   * classes visible to the checks change. The contents of the classpath folders are only stamped
+   * again after the classloader has been marked dirty.
+   *
+   * @param project
+   *          the project
+   * @return the fingerprint
+   */
+  String getClassPathFingerprint(IProject project) {
+
+    intializeWithProject(project);
+
+    URL[] classPath;
+    String fingerprint;
+    int modificationCount;
+    synchronized (this) {
+      if (mFolderStamp != null) {
+        return mClassPathFingerprint + mExternalArchiveStamp + mFolderStamp;
+      }
+      classPath = mClassPath;
+      fingerprint = mClassPathFingerprint + mExternalArchiveStamp;
+      modificationCount = mInitializedModificationCount;
+    }
+
+    String folderStamp = getFolderStamp(classPath);
+
+    synchronized (this) {
+      if (modificationCount == mInitializedModificationCount
+              && modificationCount == mModificationCount) {
+        mFolderStamp = folderStamp;
+      }
+    }
+    return fingerprint + folderStamp;
+  }
+
+  /**
+   * Builds a fingerprint of a classpath, consisting of its entries.
+   *
+   * @param classPath
+   *          the classpath
+   * @return the fingerprint
+   */
+  private static String getFingerprint(URL[] classPath) {
+
+    StringBuilder buf = new StringBuilder();
+    for (URL url : classPath) {
+      buf.append(url.toExternalForm()).append('\n');
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Builds the modification stamps and sizes of archives.
+   *
+   * @param archives
+   *          the archives
+   * @return the stamps
+   */
+  private static String getArchiveStamp(List<File> archives) {
+
+    StringBuilder buf = new StringBuilder();
+    for (File archive : archives) {
+      buf.append(archive.lastModified()).append(':').append(archive.length()).append('\n');
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Stamps the folders of a classpath with the latest modification and the number of the contained
+   * files, so that recompiled classes are noticed.
+   *
+   * @param classPath
+   *          the classpath
+   * @return the stamps
+   */
+  private static String getFolderStamp(URL[] classPath) {
+
+    StringBuilder buf = new StringBuilder();
+    for (URL url : classPath) {
+      try {
+        File file = new File(url.toURI());
+        if (file.isDirectory()) {
+          long[] stamp = new long[2];
+          stampFolder(file, stamp);
+          buf.append(stamp[0]).append(':').append(stamp[1]);
+        }
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        // not a local folder
+      }
+      buf.append('\n');
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Determines the latest modification stamp and the number of files within a folder.
+   *
+   * @param folder
+   *          the folder
+   * @param stamp
+   *          receives the latest modification stamp and the file count
+   */
+  private static void stampFolder(File folder, long[] stamp) {
+
+    File[] children = folder.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      if (child.isDirectory()) {
+        stampFolder(child, stamp);
+      } else {
+        stamp[0] = Math.max(stamp[0], child.lastModified());
+        stamp[1]++;
+      }
+    }
   }
 
   /**
@@ -170,17 +442,14 @@ public class ProjectClassLoader extends ClassLoader {
    *          the project
    * @return the classpath
    */
-  private static URL[] getProjectClassPath(IProject project) {
+  private static ClassPath getProjectClassPath(IProject project) {
 
-    // List to contain the classpath urls
-    List<URL> cpURLs = new ArrayList<>();
+    ClassPath classPath = new ClassPath();
 
     // add the projects contents to the classpath
-    addToClassPath(project, cpURLs, false, new HashSet<IProject>());
+    addToClassPath(project, classPath, false);
 
-    URL[] urls = cpURLs.toArray(new URL[cpURLs.size()]);
-
-    return urls;
+    return classPath;
   }
 
   /**
@@ -188,21 +457,19 @@ public class ProjectClassLoader extends ClassLoader {
    *
    * @param project
    *          the project
-   * @param cpURLs
-   *          the resulting list
+   * @param classPath
+   *          the resulting classpath
    * @param isReferenced
    *          true if a referenced project is processed
    */
-  private static void addToClassPath(IProject project, List<URL> cpURLs, boolean isReferenced,
-          Collection<IProject> processedProjects) {
+  private static void addToClassPath(IProject project, ClassPath classPath,
+          boolean isReferenced) {
 
     try {
 
       // this project has already been added
-      if (processedProjects.contains(project)) {
+      if (!classPath.mProjects.add(project)) {
         return;
-      } else {
-        processedProjects.add(project);
       }
 
       // get the java project
@@ -219,13 +486,13 @@ public class ProjectClassLoader extends ClassLoader {
 
         // handle a source path
         if (IClasspathEntry.CPE_SOURCE == entryKind) {
-          handleSourcePath(project, cpURLs, cpEntries[i], javaProject);
+          handleSourcePath(project, classPath, cpEntries[i], javaProject);
         } else if (IClasspathEntry.CPE_PROJECT == entryKind) {
           // handle a project reference
-          handleRefProject(cpURLs, cpEntries[i], processedProjects);
+          handleRefProject(classPath, cpEntries[i]);
         } else if (IClasspathEntry.CPE_LIBRARY == entryKind) {
           // handle a library entry
-          handleLibrary(project, cpURLs, cpEntries[i]);
+          handleLibrary(project, classPath, cpEntries[i]);
         } else { // cannot happen since we use a resolved classpath
 
           // log as exception
@@ -244,8 +511,8 @@ public class ProjectClassLoader extends ClassLoader {
    *
    * @param project
    *          the original project
-   * @param cpURLs
-   *          the list that is to contain the projects classpath
+   * @param classPath
+   *          the classpath of the project
    * @param entry
    *          the actually processed classpath entry
    * @param javapProject
@@ -253,8 +520,8 @@ public class ProjectClassLoader extends ClassLoader {
    * @throws JavaModelException
    *           an exception with the java project occured
    */
-  private static void handleSourcePath(IProject project, List<URL> cpURLs, IClasspathEntry entry,
-          IJavaProject javapProject) throws JavaModelException {
+  private static void handleSourcePath(IProject project, ClassPath classPath,
+          IClasspathEntry entry, IJavaProject javapProject) throws JavaModelException {
 
     IPath sourcePath = entry.getPath();
 
@@ -270,6 +537,9 @@ public class ProjectClassLoader extends ClassLoader {
       sourcePath = outputPath;
     }
 
+    // changes of the class files are reported for the workspace path
+    classPath.mWorkspacePaths.add(sourcePath);
+
     // check if the sourcepath is relative to the project
     IPath projPath = project.getFullPath();
 
@@ -288,19 +558,18 @@ public class ProjectClassLoader extends ClassLoader {
     }
 
     // try to add the path to the classpath
-    handlePath(sourcePath, cpURLs);
+    handlePath(sourcePath, classPath);
   }
 
   /**
    * Helper method to handle a referenced project for the classpath.
    *
-   * @param cpURLs
-   *          the list that is to contain the projects classpath
+   * @param classPath
+   *          the classpath of the project
    * @param entry
    *          the actually processed classpath entry
    */
-  private static void handleRefProject(List<URL> cpURLs, IClasspathEntry entry,
-          Collection<IProject> processedProjects) {
+  private static void handleRefProject(ClassPath classPath, IClasspathEntry entry) {
 
     // get the referenced project from the workspace
     IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
@@ -308,7 +577,7 @@ public class ProjectClassLoader extends ClassLoader {
 
     // add the referenced projects contents
     if (referencedProject.exists()) {
-      addToClassPath(referencedProject, cpURLs, true, processedProjects);
+      addToClassPath(referencedProject, classPath, true);
     }
   }
 
@@ -317,12 +586,13 @@ public class ProjectClassLoader extends ClassLoader {
    *
    * @param project
    *          the original project
-   * @param cpURLs
-   *          the list that is to contain the projects classpath
+   * @param classPath
+   *          the classpath of the project
    * @param entry
    *          the actually processed classpath entry
    */
-  private static void handleLibrary(IProject project, List<URL> cpURLs, IClasspathEntry entry) {
+  private static void handleLibrary(IProject project, ClassPath classPath,
+          IClasspathEntry entry) {
 
     IPath libPath = entry.getPath();
 
@@ -330,6 +600,7 @@ public class ProjectClassLoader extends ClassLoader {
     // can happen if the library is contained within the project
     IPath projPath = project.getFullPath();
     if (libPath.matchingFirstSegments(projPath) > 0) {
+      classPath.mWorkspacePaths.add(libPath);
 
       // remove the project part from the source path
       libPath = libPath.removeFirstSegments(projPath.segmentCount());
@@ -351,12 +622,16 @@ public class ProjectClassLoader extends ClassLoader {
       // Check if the resource is otherwise relative to the workspace
       IResource resource = ResourcesPlugin.getWorkspace().getRoot().findMember(libPath);
       if (resource != null && resource.exists()) {
+        classPath.mWorkspacePaths.add(resource.getFullPath());
         libPath = resource.getLocation();
+      } else if (libPath.toFile().isFile()) {
+        // archives outside of the workspace are checked for modifications instead
+        classPath.mExternalArchives.add(libPath.toFile());
       }
     }
 
     // try to add the path to the classpath
-    handlePath(libPath, cpURLs);
+    handlePath(libPath, classPath);
   }
 
   /**
@@ -364,10 +639,10 @@ public class ProjectClassLoader extends ClassLoader {
    *
    * @param absolutePath
    *          the absolute path
-   * @param cpURLs
-   *          the list that is to contain the projects classpath
+   * @param classPath
+   *          the classpath of the project
    */
-  private static void handlePath(IPath absolutePath, List<URL> cpURLs) {
+  private static void handlePath(IPath absolutePath, ClassPath classPath) {
 
     if (absolutePath != null) {
 
@@ -379,8 +654,8 @@ public class ProjectClassLoader extends ClassLoader {
         try {
 
           URL url = file.toURI().toURL();
-          if (!cpURLs.contains(url)) {
-            cpURLs.add(url);
+          if (!classPath.mURLs.contains(url)) {
+            classPath.mURLs.add(url);
           }
         } catch (MalformedURLException mfe) {
           // log the exception although this should not happen
@@ -389,4 +664,26 @@ public class ProjectClassLoader extends ClassLoader {
       }
     }
   }
+
+  /**
+   * The classpath of a project, as collected from the project and the referenced projects.
+   */
+  private static class ClassPath {
+
+    /** the classpath urls. */
+    private final List<URL> mURLs = new ArrayList<>();
+
+    /** the projects contributing to the classpath. */
+    private final Set<IProject> mProjects = new LinkedHashSet<>();
+
+    /** the workspace paths of the output folders and libraries within the workspace. */
+    private final List<IPath> mWorkspacePaths = new ArrayList<>();
+
+    /** the archives outside of the workspace. */
+    private final List<File> mExternalArchives = new ArrayList<>();
+
+    URL[] getURLs() {
+      return mURLs.toArray(new URL[mURLs.size()]);
+    }
+  }
 }
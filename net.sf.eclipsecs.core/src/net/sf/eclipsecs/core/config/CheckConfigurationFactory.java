@@ -48,6 +48,7 @@ import net.sf.eclipsecs.core.Messages;
 import net.sf.eclipsecs.core.config.configtypes.BuiltInConfigurationType;
 import net.sf.eclipsecs.core.config.configtypes.ConfigurationTypes;
 import net.sf.eclipsecs.core.config.configtypes.IConfigurationType;
+import net.sf.eclipsecs.core.projectconfig.ProjectConfigurationFactory;
 import net.sf.eclipsecs.core.util.CheckstyleLog;
 import net.sf.eclipsecs.core.util.CheckstylePluginException;
 
@@ -146,7 +147,7 @@ public final class CheckConfigurationFactory {
    *
    * @return a new configuration working set
    */
-  public static ICheckConfigurationWorkingSet newWorkingSet() {
+  public static GlobalCheckConfigurationWorkingSet newWorkingSet() {
     return new GlobalCheckConfigurationWorkingSet(sConfigurations, getDefaultCheckConfiguration(),
             sDefaultBuiltInConfig);
   }
@@ -162,6 +163,12 @@ public final class CheckConfigurationFactory {
       loadBuiltinConfigurations();
       loadFromPersistence();
 
+      // project configurations refer to the replaced check configurations
+      ProjectConfigurationFactory.invalidateAll();
+
+      // configuration files may have been rewritten within the modification stamp resolution
+      CheckstyleConfigurationFileCache.cleanup();
+
     } catch (CheckstylePluginException e) {
       CheckstyleLog.log(e);
     }
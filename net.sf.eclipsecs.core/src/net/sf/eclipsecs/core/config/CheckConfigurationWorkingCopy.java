@@ -37,6 +37,7 @@ import java.util.Objects;
 import net.sf.eclipsecs.core.CheckstylePlugin;
 import net.sf.eclipsecs.core.Messages;
 import net.sf.eclipsecs.core.config.configtypes.IConfigurationType;
+import net.sf.eclipsecs.core.util.CheckstyleLog;
 import net.sf.eclipsecs.core.util.CheckstylePluginException;
 
 import org.eclipse.core.resources.IFile;
@@ -81,6 +82,9 @@ public class CheckConfigurationWorkingCopy implements ICheckConfiguration, Clone
   /** flags if the configuration is dirty. */
   private boolean mHasConfigChanged;
 
+  /** The modules of the Checkstyle configuration before they were changed the first time. */
+  private List<Module> mOriginalModules;
+
   /**
    * Creates a new working copy from an existing check configuration.
    *
@@ -222,6 +226,31 @@ public class CheckConfigurationWorkingCopy implements ICheckConfiguration, Clone
             && Objects.equals(getAdditionalData(), mCheckConfiguration.getAdditionalData()));
   }
 
+  /**
+   * Determines how the modules of the Checkstyle configuration changed, so that the markers of the
+   * affected projects can be updated without a full audit where possible.
+   *
+   * @return the module changes
+   */
+  public ModuleChanges getModuleChanges() {
+
+    // other changes than to the modules affect the results of all modules
+    if (mOriginalModules == null || !(Objects.equals(getLocation(),
+            mCheckConfiguration.getLocation())
+            && Objects.equals(getResolvableProperties(),
+                    mCheckConfiguration.getResolvableProperties())
+            && Objects.equals(getAdditionalData(), mCheckConfiguration.getAdditionalData()))) {
+      return ModuleChanges.fullAudit();
+    }
+
+    try {
+      return ModuleChanges.compare(mOriginalModules, getModules());
+    } catch (CheckstylePluginException e) {
+      CheckstyleLog.log(e);
+      return ModuleChanges.fullAudit();
+    }
+  }
+
   /**
    * Reads the Checkstyle configuration file and builds the list of configured modules. Elements are
    * of type <code>net.sf.eclipsecs.core.config.Module</code>.
@@ -255,6 +284,15 @@ public class CheckConfigurationWorkingCopy implements ICheckConfiguration, Clone
    */
   public void setModules(List<Module> modules) throws CheckstylePluginException {
 
+    // remember the unchanged modules to determine the changes later on
+    if (mOriginalModules == null && !mHasConfigChanged) {
+      try {
+        mOriginalModules = getModules();
+      } catch (CheckstylePluginException e) {
+        // changes cannot be determined, requires a full audit
+      }
+    }
+
     try (ByteArrayOutputStream byteOut = new ByteArrayOutputStream();) {
 
       // First write to a byte array outputstream
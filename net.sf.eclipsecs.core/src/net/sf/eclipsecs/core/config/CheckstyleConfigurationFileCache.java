@@ -0,0 +1,200 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+package net.sf.eclipsecs.core.config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.eclipsecs.core.util.CheckstylePluginException;
+
+import org.eclipse.core.runtime.URIUtil;
+
+/**
+ * Cache for the resolved data of Checkstyle configuration files, shared by all check
+ * configuration instances describing the same configuration.
+ * <p>
+ * Within an audit cycle (see {@link #beginAuditCycle()}) each configuration is resolved at most
+ * once. Outside of an audit cycle, or when a new cycle starts, cached data of local configuration
+ * files is validated against the modification stamps of the configuration file and its
+ * properties file. Data of other configuration files (e.g. remote or built-in ones) is resolved
+ * again once per audit cycle and expires after an hour otherwise.
+ * </p>
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class CheckstyleConfigurationFileCache {
+
+  /** Expiration time of cached data which cannot be validated by modification stamp. */
+  private static final long EXPIRATION_TIME = TimeUnit.HOURS.toMillis(1);
+
+  /** Map containing the resolved configuration file data. */
+  private static final Cache<ICheckConfiguration, Entry> sCache = CacheBuilder.newBuilder()
+          .softValues().build();
+
+  /** The number of currently running audit cycles. */
+  private static int sActiveCycles;
+
+  /** The id of the most recently started audit cycle. */
+  private static long sCycle;
+
+  /**
+   * Hidden utility class constructor.
+   */
+  private CheckstyleConfigurationFileCache() {
+    // noop
+  }
+
+  /**
+   * Starts an audit cycle. Every call must be followed by a call to {@link #endAuditCycle()}.
+   */
+  public static synchronized void beginAuditCycle() {
+    sActiveCycles++;
+    sCycle++;
+  }
+
+  /**
+   * Ends an audit cycle.
+   */
+  public static synchronized void endAuditCycle() {
+    sActiveCycles = Math.max(0, sActiveCycles - 1);
+  }
+
+  /**
+   * Returns the resolved data of the Checkstyle configuration file of a check configuration.
+   *
+   * @param config
+   *          the check configuration
+   * @return the resolved configuration file data
+   * @throws CheckstylePluginException
+   *           the configuration file could not be resolved
+   */
+  public static CheckstyleConfigurationFile get(ICheckConfiguration config)
+          throws CheckstylePluginException {
+
+    long cycle;
+    boolean inCycle;
+    synchronized (CheckstyleConfigurationFileCache.class) {
+      cycle = sCycle;
+      inCycle = sActiveCycles > 0;
+    }
+
+    Entry entry = sCache.getIfPresent(config);
+    if (entry != null) {
+
+      if (inCycle && entry.mCycle == cycle) {
+        return entry.mConfigFile;
+      } else if (entry.mConfigFileStamp != null) {
+
+        // local configuration file, validate by modification stamp
+        if (entry.mConfigFileStamp.longValue() == entry.mConfigFileLocal.lastModified()
+                && entry.mPropertiesFileStamp == entry.mPropertiesFile.lastModified()) {
+          entry.mCycle = cycle;
+          return entry.mConfigFile;
+        }
+      } else if (!inCycle && System.currentTimeMillis() < entry.mExpirationTime) {
+        return entry.mConfigFile;
+      }
+    }
+
+    CheckstyleConfigurationFile configFile = config.getType().getCheckstyleConfiguration(config);
+    sCache.put(config, new Entry(configFile, cycle));
+    return configFile;
+  }
+
+  /**
+   * Removes all cached configuration file data.
+   */
+  public static void cleanup() {
+    sCache.invalidateAll();
+  }
+
+  /**
+   * Returns the local file of a URL or <code>null</code> if the URL does not denote a local
+   * file.
+   */
+  private static File toFile(URL url) {
+
+    if (url == null || !"file".equals(url.getProtocol())) { //$NON-NLS-1$
+      return null;
+    }
+    try {
+      return URIUtil.toFile(URIUtil.toURI(url));
+    } catch (URISyntaxException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A cache entry.
+   */
+  private static class Entry {
+
+    /** The resolved configuration file data. */
+    private final CheckstyleConfigurationFile mConfigFile;
+
+    /** The local configuration file, or <code>null</code>. */
+    private final File mConfigFileLocal;
+
+    /** The properties file next to the local configuration file, or <code>null</code>. */
+    private final File mPropertiesFile;
+
+    /** Modification stamp of the local configuration file, or <code>null</code>. */
+    private final Long mConfigFileStamp;
+
+    /** Modification stamp of the properties file. */
+    private final long mPropertiesFileStamp;
+
+    /** Time stamp when the entry expires, if it cannot be validated by modification stamp. */
+    private final long mExpirationTime;
+
+    /** The audit cycle the entry has last been validated in. */
+    private volatile long mCycle;
+
+    Entry(CheckstyleConfigurationFile configFile, long cycle) {
+      mConfigFile = configFile;
+      mCycle = cycle;
+      mExpirationTime = System.currentTimeMillis() + EXPIRATION_TIME;
+
+      mConfigFileLocal = toFile(configFile.getResolvedConfigFileURL());
+      if (mConfigFileLocal != null) {
+
+        // same naming as the additional properties bundle
+        String name = mConfigFileLocal.getName();
+        int lastPointIndex = name.lastIndexOf('.');
+        String propsName = (lastPointIndex > -1 ? name.substring(0, lastPointIndex) : name)
+                + ".properties"; //$NON-NLS-1$
+
+        mPropertiesFile = new File(mConfigFileLocal.getParentFile(), propsName);
+        mConfigFileStamp = Long.valueOf(mConfigFileLocal.lastModified());
+        mPropertiesFileStamp = mPropertiesFile.lastModified();
+      } else {
+        mPropertiesFile = null;
+        mConfigFileStamp = null;
+        mPropertiesFileStamp = 0;
+      }
+    }
+  }
+}
@@ -26,6 +26,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -232,6 +233,23 @@ public class GlobalCheckConfigurationWorkingSet implements ICheckConfigurationWo
     return projects;
   }
 
+  /**
+   * Returns how the modules of the changed check configurations changed, so that the markers of
+   * the affected projects can be updated without a full build where possible.
+   *
+   * @return the module changes by (new) check configuration name
+   */
+  public Map<String, ModuleChanges> getModuleChanges() {
+
+    Map<String, ModuleChanges> changes = new HashMap<>();
+    for (CheckConfigurationWorkingCopy workingCopy : mWorkingCopies) {
+      if (workingCopy.hasConfigurationChanged()) {
+        changes.put(workingCopy.getName(), workingCopy.getModuleChanges());
+      }
+    }
+    return changes;
+  }
+
   /**
    * {@inheritDoc}
    */
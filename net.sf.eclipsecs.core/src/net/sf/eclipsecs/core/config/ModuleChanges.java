@@ -0,0 +1,275 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+package net.sf.eclipsecs.core.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import net.sf.eclipsecs.core.config.meta.RuleGroupMetadata;
+import net.sf.eclipsecs.core.config.meta.RuleMetadata;
+
+/**
+ * Describes the differences between two versions of a Checkstyle configuration, in terms of what
+ * needs to be done to the markers of the previous version. Modules are identified by the internal
+ * name of their metadata, since this is what markers record about the module that created them.
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class ModuleChanges {
+
+  /** Flags if the changes can only be applied by a full audit. */
+  private boolean mFullAuditRequired;
+
+  /** The new severity levels of modules, for which markers can be updated in place. */
+  private final Map<String, Severity> mSeverityChanges = new HashMap<>();
+
+  /** The modules whose markers need to be removed. */
+  private final Set<String> mRemovedModules = new HashSet<>();
+
+  /** The modules whose markers need to be removed and which need to be audited again. */
+  private final Set<String> mModulesToAudit = new HashSet<>();
+
+  private ModuleChanges() {
+  }
+
+  /**
+   * Returns changes which can only be applied by a full audit.
+   *
+   * @return the changes
+   */
+  public static ModuleChanges fullAudit() {
+    ModuleChanges changes = new ModuleChanges();
+    changes.mFullAuditRequired = true;
+    return changes;
+  }
+
+  /**
+   * Determines the changes between two versions of the modules of a Checkstyle configuration.
+   *
+   * @param oldModules
+   *          the modules of the previous configuration
+   * @param newModules
+   *          the modules of the changed configuration
+   * @return the changes
+   */
+  public static ModuleChanges compare(List<Module> oldModules, List<Module> newModules) {
+
+    Map<String, List<Module>> oldByName = groupByName(oldModules);
+    Map<String, List<Module>> newByName = groupByName(newModules);
+    if (oldByName == null || newByName == null) {
+      return fullAudit();
+    }
+
+    ModuleChanges changes = new ModuleChanges();
+
+    Set<String> names = new HashSet<>(oldByName.keySet());
+    names.addAll(newByName.keySet());
+
+    for (String name : names) {
+
+      List<Module> oldList = oldByName.containsKey(name) ? oldByName.get(name)
+              : Collections.<Module> emptyList();
+      List<Module> newList = newByName.containsKey(name) ? newByName.get(name)
+              : Collections.<Module> emptyList();
+
+      RuleMetadata metadata = (!newList.isEmpty() ? newList : oldList).get(0).getMetaData();
+      if (!isReportingModule(metadata)) {
+
+        // checker, tree walker, filters etc. influence the results of all modules
+        if (!isSame(oldList, newList, true)) {
+          return fullAudit();
+        }
+        continue;
+      }
+
+      if (isSame(oldList, newList, true)) {
+        continue;
+      } else if (newList.isEmpty() || isIgnored(newList)) {
+        changes.mRemovedModules.add(name);
+      } else if (oldList.size() == 1 && newList.size() == 1 && isSame(oldList, newList, false)) {
+
+        // only the severity has changed
+        Severity oldSeverity = oldList.get(0).getSeverity();
+        Severity newSeverity = newList.get(0).getSeverity();
+
+        if (isExplicit(oldSeverity) && isExplicit(newSeverity)) {
+          changes.mSeverityChanges.put(name, newSeverity);
+        } else {
+          // previously ignored or inherited severities, audit again
+          changes.mModulesToAudit.add(name);
+        }
+      } else {
+        changes.mModulesToAudit.add(name);
+      }
+    }
+
+    return changes;
+  }
+
+  /**
+   * Returns if the changes can only be applied by a full audit.
+   *
+   * @return <code>true</code> if a full audit is required
+   */
+  public boolean isFullAuditRequired() {
+    return mFullAuditRequired;
+  }
+
+  /**
+   * Returns if nothing has changed, that would affect the audit results.
+   *
+   * @return <code>true</code> if there are no changes
+   */
+  public boolean isEmpty() {
+    return !mFullAuditRequired && mSeverityChanges.isEmpty() && mRemovedModules.isEmpty()
+            && mModulesToAudit.isEmpty();
+  }
+
+  /**
+   * Returns the new severity levels of the modules whose markers can be updated in place.
+   *
+   * @return the new severity levels by module name
+   */
+  public Map<String, Severity> getSeverityChanges() {
+    return Collections.unmodifiableMap(mSeverityChanges);
+  }
+
+  /**
+   * Returns the names of the modules whose markers need to be removed, since they were removed or
+   * set to ignore.
+   *
+   * @return the module names
+   */
+  public Set<String> getRemovedModules() {
+    return Collections.unmodifiableSet(mRemovedModules);
+  }
+
+  /**
+   * Returns the names of the modules whose markers need to be removed and which need to be audited
+   * again.
+   *
+   * @return the module names
+   */
+  public Set<String> getModulesToAudit() {
+    return Collections.unmodifiableSet(mModulesToAudit);
+  }
+
+  /**
+   * Determines if a module reports audit events on its own. All other modules (like filters)
+   * potentially influence the events of every module.
+   *
+   * @param metadata
+   *          the module metadata
+   * @return <code>true</code> if the module is a reporting module
+   */
+  public static boolean isReportingModule(RuleMetadata metadata) {
+    return metadata.hasSeverity() && !metadata.isHidden()
+            && !XMLTags.CHECKER_MODULE.equals(metadata.getInternalName())
+            && !XMLTags.TREEWALKER_MODULE.equals(metadata.getInternalName());
+  }
+
+  /**
+   * Groups the modules by their internal name, or returns <code>null</code> if modules without
+   * known metadata are contained.
+   */
+  private static Map<String, List<Module>> groupByName(List<Module> modules) {
+
+    Map<String, List<Module>> result = new LinkedHashMap<>();
+    for (Module module : modules) {
+
+      // generic metadata of unknown modules cannot tell checks and filters apart
+      RuleMetadata metadata = module.getMetaData();
+      if (metadata == null || isGenericMetadata(metadata)) {
+        return null;
+      }
+
+      List<Module> list = result.get(metadata.getInternalName());
+      if (list == null) {
+        list = new ArrayList<>();
+        result.put(metadata.getInternalName(), list);
+      }
+      list.add(module);
+    }
+    return result;
+  }
+
+  private static boolean isGenericMetadata(RuleMetadata metadata) {
+    RuleGroupMetadata group = metadata.getGroup();
+    return group != null && XMLTags.OTHER_GROUP.equals(group.getGroupName());
+  }
+
+  private static boolean isSame(List<Module> oldList, List<Module> newList,
+          boolean compareSeverity) {
+
+    if (oldList.size() != newList.size()) {
+      return false;
+    }
+    for (int i = 0, size = oldList.size(); i < size; i++) {
+      Module oldModule = oldList.get(i);
+      Module newModule = newList.get(i);
+
+      if (compareSeverity && oldModule.getSeverity() != newModule.getSeverity()) {
+        return false;
+      }
+      if (!Objects.equals(oldModule.getId(), newModule.getId())
+              || !getPropertyValues(oldModule).equals(getPropertyValues(newModule))
+              || !oldModule.getCustomMessages().equals(newModule.getCustomMessages())
+              || !oldModule.getCustomMetaData().equals(newModule.getCustomMetaData())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Map<String, String> getPropertyValues(Module module) {
+
+    Map<String, String> values = new HashMap<>();
+    for (ConfigProperty property : module.getProperties()) {
+      String value = property.getValue();
+      if (property.isPropertyReference()) {
+        value = "${" + value + "}"; //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      values.put(property.getName(), value);
+    }
+    return values;
+  }
+
+  private static boolean isIgnored(List<Module> modules) {
+    for (Module module : modules) {
+      if (!Severity.ignore.equals(module.getSeverity())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isExplicit(Severity severity) {
+    return severity != null && !Severity.inherit.equals(severity)
+            && !Severity.ignore.equals(severity);
+  }
+}
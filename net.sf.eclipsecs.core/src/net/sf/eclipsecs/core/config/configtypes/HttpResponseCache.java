@@ -0,0 +1,199 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+package net.sf.eclipsecs.core.config.configtypes;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache for files fetched over HTTP. Cached content is revalidated with conditional
+ * requests (<code>If-None-Match</code>/<code>If-Modified-Since</code>) and reused if the server
+ * answers with <code>304 Not Modified</code>. Content which is still fresh according to the
+ * <code>Cache-Control: max-age</code> (or <code>Expires</code>) header is reused without any
+ * request.
+ *
+ * @author Lars Ködderitzsch
+ */
+class HttpResponseCache {
+
+  /** Map containing the cached responses by URL. */
+  private final Map<String, CachedResponse> mResponses = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the cached content for the URL if it can be used without revalidation.
+   *
+   * @param url
+   *          the requested URL
+   * @return the content or <code>null</code> if a request is necessary
+   */
+  public byte[] getFreshContent(URL url) {
+
+    CachedResponse cached = mResponses.get(url.toString());
+    if (cached != null && System.currentTimeMillis() < cached.mExpires) {
+      return cached.mContent;
+    }
+    return null;
+  }
+
+  /**
+   * Adds the validators of a cached response as conditional request headers.
+   *
+   * @param connection
+   *          the unconnected connection
+   */
+  public void addValidators(HttpURLConnection connection) {
+
+    CachedResponse cached = mResponses.get(connection.getURL().toString());
+    if (cached != null) {
+      if (cached.mETag != null) {
+        connection.setRequestProperty("If-None-Match", cached.mETag); //$NON-NLS-1$
+      }
+      if (cached.mLastModifiedHeader != null) {
+        connection.setRequestProperty("If-Modified-Since", cached.mLastModifiedHeader); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Reads the response of a connected connection. A <code>304 Not Modified</code> response is
+   * answered with the cached content, other responses are read and cached.
+   *
+   * @param url
+   *          the requested URL, before any redirects
+   * @param connection
+   *          the connected connection
+   * @return the content
+   * @throws IOException
+   *           error reading the response
+   */
+  public byte[] readResponse(URL url, HttpURLConnection connection) throws IOException {
+
+    String key = url.toString();
+    CachedResponse cached = mResponses.get(key);
+
+    if (cached != null
+            && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+
+      // drain the (empty) body so the connection can be reused
+      try (InputStream in = connection.getInputStream()) {
+        ByteStreams.exhaust(in);
+      }
+
+      cached.mExpires = getExpiration(connection);
+      return cached.mContent;
+    }
+
+    byte[] content = null;
+    try (InputStream in = connection.getInputStream()) {
+      content = ByteStreams.toByteArray(in);
+    }
+
+    if (isStorable(connection)) {
+      CachedResponse response = new CachedResponse();
+      response.mContent = content;
+      response.mETag = connection.getHeaderField("ETag"); //$NON-NLS-1$
+      response.mLastModifiedHeader = connection.getHeaderField("Last-Modified"); //$NON-NLS-1$
+      response.mLastModified = connection.getLastModified();
+      response.mExpires = getExpiration(connection);
+      mResponses.put(key, response);
+    } else {
+      mResponses.remove(key);
+    }
+    return content;
+  }
+
+  /**
+   * Returns the last modification time of the cached content.
+   *
+   * @param url
+   *          the requested URL
+   * @return the last modification time or <code>null</code> if nothing is cached for the URL
+   */
+  public Long getLastModified(URL url) {
+
+    CachedResponse cached = mResponses.get(url.toString());
+    return cached != null ? Long.valueOf(cached.mLastModified) : null;
+  }
+
+  private static boolean isStorable(HttpURLConnection connection) {
+
+    String cacheControl = connection.getHeaderField("Cache-Control"); //$NON-NLS-1$
+    return cacheControl == null
+            || !cacheControl.toLowerCase(Locale.ENGLISH).contains("no-store"); //$NON-NLS-1$
+  }
+
+  /**
+   * Determines until when a response is fresh. Responses without freshness information must be
+   * revalidated on each use.
+   */
+  private static long getExpiration(HttpURLConnection connection) {
+
+    String cacheControl = connection.getHeaderField("Cache-Control"); //$NON-NLS-1$
+    if (cacheControl != null) {
+
+      long maxAge = -1;
+      for (String directive : cacheControl.split(",")) { //$NON-NLS-1$
+        directive = directive.trim().toLowerCase(Locale.ENGLISH);
+
+        if ("no-cache".equals(directive)) { //$NON-NLS-1$
+          return 0;
+        } else if (directive.startsWith("max-age=")) { //$NON-NLS-1$
+          try {
+            maxAge = Long.parseLong(directive.substring("max-age=".length())); //$NON-NLS-1$
+          } catch (NumberFormatException e) {
+            return 0;
+          }
+        }
+      }
+
+      if (maxAge >= 0) {
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(maxAge);
+      }
+    }
+
+    // HTTP/1.0 style expiration, 0 if not present
+    return connection.getExpiration();
+  }
+
+  /**
+   * A cached response.
+   */
+  private static class CachedResponse {
+
+    private byte[] mContent;
+
+    private String mETag;
+
+    private String mLastModifiedHeader;
+
+    private long mLastModified;
+
+    private volatile long mExpires;
+  }
+}
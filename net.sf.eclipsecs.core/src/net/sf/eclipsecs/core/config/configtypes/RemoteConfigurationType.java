@@ -80,6 +80,9 @@ public class RemoteConfigurationType extends ConfigurationType {
 
   private static Set<String> sFailedWith401URLs = new HashSet<>();
 
+  /** Cache of the fetched configuration files, revalidated with conditional requests. */
+  private static HttpResponseCache sResponseCache = new HttpResponseCache();
+
   /**
    * {@inheritDoc}
    */
@@ -117,7 +120,7 @@ public class RemoteConfigurationType extends ConfigurationType {
           configurationFileData = getBytesFromURLConnection(connection);
 
           // get last modification timestamp
-          data.setModificationStamp(connection.getLastModified());
+          data.setModificationStamp(getLastModified(connection));
 
           originalFileSuccess = true;
         } catch (IOException e) {
@@ -297,6 +300,25 @@ public class RemoteConfigurationType extends ConfigurationType {
     }
   }
 
+  /**
+   * Returns the last modification timestamp of the content fetched through the connection. Does
+   * not open the connection if the content has been served from the response cache.
+   *
+   * @param connection
+   *          the connection the content has been fetched through
+   * @return the last modification timestamp
+   */
+  private long getLastModified(URLConnection connection) {
+
+    if (connection instanceof HttpURLConnection) {
+      Long lastModified = sResponseCache.getLastModified(connection.getURL());
+      if (lastModified != null) {
+        return lastModified.longValue();
+      }
+    }
+    return connection.getLastModified();
+  }
+
   @Override
   protected byte[] getBytesFromURLConnection(URLConnection connection) throws IOException {
 
@@ -308,10 +330,19 @@ public class RemoteConfigurationType extends ConfigurationType {
 
     if (connection instanceof HttpURLConnection) {
 
-      if (!sFailedWith401URLs.contains(connection.getURL().toString())) {
+      URL url = connection.getURL();
+
+      // no request at all while the cached content is fresh
+      configurationFileData = sResponseCache.getFreshContent(url);
+      if (configurationFileData != null) {
+        return configurationFileData;
+      }
+
+      if (!sFailedWith401URLs.contains(url.toString())) {
 
         HttpURLConnection httpConn = (HttpURLConnection) connection;
         httpConn.setInstanceFollowRedirects(true);
+        sResponseCache.addValidators(httpConn);
         httpConn.connect();
         if (httpConn.getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED) {
           try {
@@ -324,6 +355,9 @@ public class RemoteConfigurationType extends ConfigurationType {
           sFailedWith401URLs.add(connection.getURL().toString());
           throw new IOException(Messages.RemoteConfigurationType_msgUnAuthorized);
         }
+
+        // reuses the cached content on 304 Not Modified
+        return sResponseCache.readResponse(url, httpConn);
       } else {
         // don't retry since we just get another 401
         throw new IOException(Messages.RemoteConfigurationType_msgUnAuthorized);
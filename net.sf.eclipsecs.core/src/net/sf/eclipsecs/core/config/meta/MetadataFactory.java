@@ -20,10 +20,12 @@
 
 package net.sf.eclipsecs.core.config.meta;
 
+import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
 import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -44,7 +46,8 @@ import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
 import java.util.ResourceBundle.Control;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import net.sf.eclipsecs.core.CheckstylePlugin;
 import net.sf.eclipsecs.core.config.ConfigProperty;
@@ -53,15 +56,26 @@ import net.sf.eclipsecs.core.config.Severity;
 import net.sf.eclipsecs.core.config.XMLTags;
 import net.sf.eclipsecs.core.util.CheckstyleLog;
 import net.sf.eclipsecs.core.util.CheckstylePluginException;
+import net.sf.eclipsecs.core.util.ExtensionClassLoader;
 import net.sf.eclipsecs.core.util.XMLUtil;
 
+import org.eclipse.core.runtime.Platform;
+
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
 
 /**
  * This class is the factory for all Checkstyle rule metadata.
+ * <p>
+ * The metadata is initialized on first use. Parsing all metadata files is expensive, so the parsed
+ * metadata is stored as {@link MetadataSnapshot} in the plugin state location. As long as the
+ * bundles providing the metadata are unchanged, the rule groups are loaded from the snapshot when
+ * they are first used.
+ * </p>
  */
 public final class MetadataFactory {
 
@@ -82,6 +96,15 @@ public final class MetadataFactory {
   /** Name of the rules metadata XML file. */
   private static final String METADATA_FILENAME = "checkstyle-metadata.xml"; //$NON-NLS-1$
 
+  /** Name of the metadata snapshot file in the state location. */
+  private static final String SNAPSHOT_FILENAME = "metadata-snapshot.bin"; //$NON-NLS-1$
+
+  /** Flags if the metadata has been initialized. */
+  private static volatile boolean sInitialized;
+
+  /** The snapshot the rule groups not used yet are loaded from, or <code>null</code>. */
+  private static MetadataSnapshot sSnapshot;
+
   /**
    * Private constructor to prevent instantiation.
    */
@@ -97,7 +120,9 @@ public final class MetadataFactory {
     PUBLIC2INTERNAL_DTD_MAP.put("-//eclipse-cs//DTD Check Metadata 1.1//EN", //$NON-NLS-1$
             "/com/puppycrawl/tools/checkstyle/checkstyle-metadata_1_1.dtd"); //$NON-NLS-1$
 
-    refresh();
+    sRuleGroupMetadata = new ConcurrentSkipListMap<>();
+    sRuleMetadata = new ConcurrentHashMap<>();
+    sAlternativeNamesMap = new ConcurrentHashMap<>();
   }
 
   /**
@@ -107,6 +132,9 @@ public final class MetadataFactory {
    */
   public static List<RuleGroupMetadata> getRuleGroupMetadata() {
 
+    ensureInitialized();
+    loadAllGroups();
+
     List<RuleGroupMetadata> groups = new ArrayList<>(sRuleGroupMetadata.values());
     Collections.sort(groups, new Comparator<RuleGroupMetadata>() {
 
@@ -130,7 +158,17 @@ public final class MetadataFactory {
    * @return the RuleGroupMetadata object or <code>null</code>
    */
   public static RuleGroupMetadata getRuleGroupMetadata(String name) {
-    return sRuleGroupMetadata.get(name);
+
+    if (name == null) {
+      return null;
+    }
+    ensureInitialized();
+
+    RuleGroupMetadata group = sRuleGroupMetadata.get(name);
+    if (group == null) {
+      group = loadGroup(name);
+    }
+    return group;
   }
 
   /**
@@ -142,10 +180,25 @@ public final class MetadataFactory {
    */
   public static RuleMetadata getRuleMetadata(String name) {
 
-    RuleMetadata metadata = null;
+    if (name == null) {
+      return null;
+    }
+    ensureInitialized();
+
+    RuleMetadata metadata = findRuleMetadata(name);
+
+    // the rule may belong to a group not loaded from the snapshot yet
+    if (metadata == null) {
+      metadata = loadRuleMetadata(name);
+    }
+
+    return metadata;
+  }
+
+  private static RuleMetadata findRuleMetadata(String name) {
 
     // first try the internal name mapping
-    metadata = sRuleMetadata.get(name);
+    RuleMetadata metadata = sRuleMetadata.get(name);
 
     // try the alternative names
     if (metadata == null) {
@@ -310,17 +363,143 @@ public final class MetadataFactory {
   }
 
   /**
-   * Refreshes the metadata.
+   * Refreshes the metadata by parsing all metadata files again.
    */
   public static synchronized void refresh() {
-    sRuleGroupMetadata = new TreeMap<>();
-    sRuleMetadata = new HashMap<>();
-    sAlternativeNamesMap = new HashMap<>();
+    sRuleGroupMetadata.clear();
+    sRuleMetadata.clear();
+    sAlternativeNamesMap.clear();
+    sSnapshot = null;
     try {
       doInitialization();
     } catch (CheckstylePluginException e) {
       CheckstyleLog.log(e);
     }
+    sInitialized = true;
+
+    File snapshotFile = getSnapshotFile();
+    if (snapshotFile != null) {
+      MetadataSnapshot.write(snapshotFile, getSnapshotKey(), sRuleGroupMetadata.values());
+    }
+  }
+
+  private static void ensureInitialized() {
+    if (!sInitialized) {
+      initialize();
+    }
+  }
+
+  /**
+   * Initializes the metadata from the snapshot if it is still valid, otherwise from the metadata
+   * files.
+   */
+  private static synchronized void initialize() {
+
+    if (sInitialized) {
+      return;
+    }
+
+    File snapshotFile = getSnapshotFile();
+    if (snapshotFile != null) {
+      sSnapshot = MetadataSnapshot.read(snapshotFile, getSnapshotKey());
+    }
+
+    if (sSnapshot != null) {
+      sInitialized = true;
+    } else {
+      refresh();
+    }
+  }
+
+  private static synchronized void loadAllGroups() {
+    if (sSnapshot != null) {
+      for (String groupName : new ArrayList<>(sSnapshot.getGroupNames())) {
+        loadGroup(groupName);
+      }
+      sSnapshot = null;
+    }
+  }
+
+  /**
+   * Loads the group of a rule from the snapshot if necessary and looks up the rule again. The
+   * lookup is repeated in any case, since the group may have been loaded (or the snapshot been
+   * dropped) by another thread after the rule has been missed.
+   */
+  private static synchronized RuleMetadata loadRuleMetadata(String ruleName) {
+    if (sSnapshot != null) {
+      String groupName = sSnapshot.getGroupName(ruleName);
+      if (groupName != null) {
+        loadGroup(groupName);
+      }
+    }
+    return findRuleMetadata(ruleName);
+  }
+
+  /**
+   * Loads a rule group from the snapshot and registers its rules.
+   */
+  private static synchronized RuleGroupMetadata loadGroup(String groupName) {
+
+    RuleGroupMetadata group = sRuleGroupMetadata.get(groupName);
+    if (group != null || sSnapshot == null) {
+      return group;
+    }
+
+    try {
+      group = sSnapshot.loadGroup(groupName);
+    } catch (IOException e) {
+      // corrupt snapshot, fall back to the metadata files
+      CheckstyleLog.log(e);
+      refresh();
+      return sRuleGroupMetadata.get(groupName);
+    }
+
+    if (group != null) {
+      for (RuleMetadata rule : group.getRuleMetadata()) {
+        sRuleMetadata.put(rule.getInternalName(), rule);
+        for (String alternativeName : rule.getAlternativeNames()) {
+          sAlternativeNamesMap.put(alternativeName, rule);
+        }
+      }
+      sRuleGroupMetadata.put(groupName, group);
+    }
+    return group;
+  }
+
+  /**
+   * Returns the snapshot file, or <code>null</code> if no snapshot can be used, e.g. when running
+   * outside of the platform.
+   */
+  private static File getSnapshotFile() {
+
+    if (!Platform.isRunning() || !(CheckstylePlugin.getDefault()
+            .getAddonExtensionClassLoader() instanceof ExtensionClassLoader)) {
+      return null;
+    }
+    return CheckstylePlugin.getDefault().getStateLocation().append(SNAPSHOT_FILENAME).toFile();
+  }
+
+  /**
+   * Builds the key of the snapshot from the bundles providing the metadata and the locale used to
+   * localize it.
+   */
+  private static String getSnapshotKey() {
+
+    List<Bundle> bundles = new ArrayList<>(((ExtensionClassLoader) CheckstylePlugin.getDefault()
+            .getAddonExtensionClassLoader()).getBundles());
+
+    // the Checkstyle bundle provides the metadata of the standard checks
+    Bundle checkstyleBundle = FrameworkUtil.getBundle(Checker.class);
+    if (checkstyleBundle != null) {
+      bundles.add(checkstyleBundle);
+    }
+
+    StringBuilder key = new StringBuilder(CheckstylePlugin.getPlatformLocale().toString());
+    for (Bundle bundle : bundles) {
+      key.append('|').append(bundle.getSymbolicName()).append('_').append(bundle.getVersion())
+              .append('@').append(bundle.getLastModified());
+    }
+    return key.toString();
   }
 
   /**
@@ -419,7 +598,7 @@ public final class MetadataFactory {
       String groupDesc = groupEl.elementTextTrim(XMLTags.DESCRIPTION_TAG);
       groupDesc = localize(groupDesc, metadataBundle);
 
-      RuleGroupMetadata group = getRuleGroupMetadata(groupName);
+      RuleGroupMetadata group = sRuleGroupMetadata.get(groupName);
 
       if (group == null) {
 
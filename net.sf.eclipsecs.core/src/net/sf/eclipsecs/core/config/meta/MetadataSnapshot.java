@@ -0,0 +1,324 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.config.meta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.eclipsecs.core.config.Severity;
+import net.sf.eclipsecs.core.util.CheckstyleLog;
+
+/**
+ * Compact binary snapshot of the parsed metadata, stored in the plugin state location. The
+ * snapshot is keyed by the bundles providing the metadata and the locale, and is only used if the
+ * key is unchanged. The rule groups are stored as separate blocks, which are only decoded when a
+ * group is used for the first time. An index maps the internal and alternative names of the rules
+ * to their groups.
+ *
+ * @author Lars Ködderitzsch
+ */
+final class MetadataSnapshot {
+
+  /** Version of the snapshot format. */
+  private static final int FORMAT_VERSION = 1;
+
+  /** The encoded rule groups, by group name. */
+  private final Map<String, byte[]> mGroupBlocks = new LinkedHashMap<>();
+
+  /** The names of the groups, by internal and alternative rule names. */
+  private final Map<String, String> mGroupsByRuleName = new HashMap<>();
+
+  private MetadataSnapshot() {
+  }
+
+  /**
+   * Reads a snapshot.
+   *
+   * @param file
+   *          the snapshot file
+   * @param key
+   *          the key the snapshot must have been written with
+   * @return the snapshot or <code>null</code> if there is no valid snapshot for the key
+   */
+  static MetadataSnapshot read(File file, String key) {
+
+    if (!file.isFile()) {
+      return null;
+    }
+
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file)))) {
+
+      if (in.readInt() != FORMAT_VERSION || !key.equals(readString(in))) {
+        return null;
+      }
+
+      MetadataSnapshot snapshot = new MetadataSnapshot();
+      for (int i = 0, groupCount = in.readInt(); i < groupCount; i++) {
+
+        String groupName = readString(in);
+        for (int j = 0, nameCount = in.readInt(); j < nameCount; j++) {
+          snapshot.mGroupsByRuleName.put(readString(in), groupName);
+        }
+
+        byte[] block = new byte[in.readInt()];
+        in.readFully(block);
+        snapshot.mGroupBlocks.put(groupName, block);
+      }
+      return snapshot;
+    } catch (IOException e) {
+      // unreadable snapshot, parse the metadata files
+      return null;
+    }
+  }
+
+  /**
+   * Writes a snapshot of the rule groups.
+   *
+   * @param file
+   *          the snapshot file
+   * @param key
+   *          the key of the snapshot
+   * @param groups
+   *          the rule groups
+   */
+  static void write(File file, String key, Collection<RuleGroupMetadata> groups) {
+
+    File tmpFile = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+    file.getParentFile().mkdirs();
+
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+
+      out.writeInt(FORMAT_VERSION);
+      writeString(out, key);
+      out.writeInt(groups.size());
+
+      for (RuleGroupMetadata group : groups) {
+
+        writeString(out, group.getGroupName());
+
+        Set<String> ruleNames = new LinkedHashSet<>();
+        for (RuleMetadata rule : group.getRuleMetadata()) {
+          ruleNames.add(rule.getInternalName());
+          ruleNames.addAll(rule.getAlternativeNames());
+        }
+        out.writeInt(ruleNames.size());
+        for (String ruleName : ruleNames) {
+          writeString(out, ruleName);
+        }
+
+        byte[] block = encodeGroup(group);
+        out.writeInt(block.length);
+        out.write(block);
+      }
+    } catch (IOException e) {
+      CheckstyleLog.log(e);
+      tmpFile.delete();
+      return;
+    }
+
+    // readers never see partially written snapshots
+    file.delete();
+    if (!tmpFile.renameTo(file)) {
+      tmpFile.delete();
+    }
+  }
+
+  /**
+   * Returns the names of the rule groups contained in the snapshot.
+   *
+   * @return the group names
+   */
+  Set<String> getGroupNames() {
+    return mGroupBlocks.keySet();
+  }
+
+  /**
+   * Returns the name of the group containing a rule.
+   *
+   * @param ruleName
+   *          the internal or an alternative name of the rule
+   * @return the group name or <code>null</code> if the snapshot does not contain the rule
+   */
+  String getGroupName(String ruleName) {
+    return mGroupsByRuleName.get(ruleName);
+  }
+
+  /**
+   * Decodes a rule group.
+   *
+   * @param groupName
+   *          the name of the group
+   * @return the group or <code>null</code> if the snapshot does not contain the group
+   * @throws IOException
+   *           the group could not be decoded
+   */
+  RuleGroupMetadata loadGroup(String groupName) throws IOException {
+
+    byte[] block = mGroupBlocks.get(groupName);
+    if (block == null) {
+      return null;
+    }
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+
+    String groupDescription = readString(in);
+    boolean groupHidden = in.readBoolean();
+    int priority = in.readInt();
+    RuleGroupMetadata group = new RuleGroupMetadata(groupName, groupDescription, groupHidden,
+            priority);
+
+    for (int i = 0, ruleCount = in.readInt(); i < ruleCount; i++) {
+
+      String name = readString(in);
+      String internalName = readString(in);
+      String parent = readString(in);
+      Severity severity = Severity.valueOf(readString(in));
+      boolean hidden = in.readBoolean();
+      boolean hasSeverity = in.readBoolean();
+      boolean deletable = in.readBoolean();
+      boolean isSingleton = in.readBoolean();
+
+      RuleMetadata rule = new RuleMetadata(name, internalName, parent, severity, hidden,
+              hasSeverity, deletable, isSingleton, group);
+      rule.setDescription(readString(in));
+
+      for (int j = 0, count = in.readInt(); j < count; j++) {
+        rule.addAlternativeName(readString(in));
+      }
+      for (int j = 0, count = in.readInt(); j < count; j++) {
+        rule.addQuickfix(readString(in));
+      }
+      for (int j = 0, count = in.readInt(); j < count; j++) {
+        rule.addMessageKey(readString(in));
+      }
+
+      for (int j = 0, count = in.readInt(); j < count; j++) {
+
+        ConfigPropertyType type = ConfigPropertyType.valueOf(readString(in));
+        String propertyName = readString(in);
+        String defaultValue = readString(in);
+        String overrideDefaultValue = readString(in);
+
+        ConfigPropertyMetadata property = new ConfigPropertyMetadata(type, propertyName,
+                defaultValue, overrideDefaultValue);
+        property.setDescription(readString(in));
+        for (int k = 0, optionCount = in.readInt(); k < optionCount; k++) {
+          property.getPropertyEnumeration().add(readString(in));
+        }
+        rule.getPropertyMetadata().add(property);
+      }
+
+      group.getRuleMetadata().add(rule);
+    }
+    return group;
+  }
+
+  private static byte[] encodeGroup(RuleGroupMetadata group) throws IOException {
+
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(buf);
+
+    writeString(out, group.getDescription());
+    out.writeBoolean(group.isHidden());
+    out.writeInt(group.getPriority());
+
+    out.writeInt(group.getRuleMetadata().size());
+    for (RuleMetadata rule : group.getRuleMetadata()) {
+
+      writeString(out, rule.getRuleName());
+      writeString(out, rule.getInternalName());
+      writeString(out, rule.getParentModule());
+      writeString(out, rule.getDefaultSeverityLevel().name());
+      out.writeBoolean(rule.isHidden());
+      out.writeBoolean(rule.hasSeverity());
+      out.writeBoolean(rule.isDeletable());
+      out.writeBoolean(rule.isSingleton());
+      writeString(out, rule.getDescription());
+
+      writeStrings(out, rule.getAlternativeNames());
+      writeStrings(out, rule.getQuickfixClassNames());
+      writeStrings(out, rule.getMessageKeys());
+
+      out.writeInt(rule.getPropertyMetadata().size());
+      for (ConfigPropertyMetadata property : rule.getPropertyMetadata()) {
+        writeString(out, property.getDatatype().name());
+        writeString(out, property.getName());
+        writeString(out, property.getDefaultValue());
+        writeString(out, property.getOverrideDefault());
+        writeString(out, property.getDescription());
+        writeStrings(out, property.getPropertyEnumeration());
+      }
+    }
+
+    out.flush();
+    return buf.toByteArray();
+  }
+
+  private static void writeStrings(DataOutputStream out, Collection<String> values)
+          throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(out, value);
+    }
+  }
+
+  /**
+   * Writes a string which may be <code>null</code>, without the length limit of
+   * {@link DataOutputStream#writeUTF(String)}.
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,210 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+package net.sf.eclipsecs.core.jobs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.eclipsecs.core.CheckstylePlugin;
+import net.sf.eclipsecs.core.CheckstylePluginPrefs;
+import net.sf.eclipsecs.core.Messages;
+import net.sf.eclipsecs.core.builder.CheckstyleBuilder;
+import net.sf.eclipsecs.core.builder.CheckstyleMarker;
+import net.sf.eclipsecs.core.config.ICheckConfiguration;
+import net.sf.eclipsecs.core.config.ModuleChanges;
+import net.sf.eclipsecs.core.config.Severity;
+import net.sf.eclipsecs.core.nature.CheckstyleNature;
+import net.sf.eclipsecs.core.projectconfig.FileSet;
+import net.sf.eclipsecs.core.projectconfig.IProjectConfiguration;
+import net.sf.eclipsecs.core.projectconfig.ProjectConfigurationFactory;
+import net.sf.eclipsecs.core.util.CheckstylePluginException;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Job which applies the changes of global check configurations to the markers of the projects
+ * using them. Markers of removed modules are deleted, markers of modules with a changed severity
+ * are updated in place and only modules with other changes are run again. Projects for which this
+ * is not possible are rebuilt.
+ *
+ * @author Lars Ködderitzsch
+ */
+public class ApplyModuleChangesJob extends WorkspaceJob {
+
+  /** The projects to update. */
+  private final IProject[] mProjects;
+
+  /** The module changes by check configuration name. */
+  private final Map<String, ModuleChanges> mModuleChanges;
+
+  /**
+   * Creates the job.
+   *
+   * @param projects
+   *          the projects to update
+   * @param moduleChanges
+   *          the module changes by check configuration name
+   */
+  public ApplyModuleChangesJob(IProject[] projects, Map<String, ModuleChanges> moduleChanges) {
+    super(Messages.ApplyModuleChangesJob_msgApplyChanges);
+    mProjects = projects;
+    mModuleChanges = moduleChanges;
+  }
+
+  @Override
+  public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+
+    // markers are only complete if they are not limited, otherwise rebuild
+    boolean limitMarkers = CheckstylePluginPrefs
+            .getBoolean(CheckstylePluginPrefs.PREF_LIMIT_MARKERS_PER_RESOURCE);
+
+    List<IProject> projectsToBuild = new ArrayList<>();
+
+    try {
+      for (IProject project : mProjects) {
+
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+
+        // update only if open and checkstyle active for the project
+        if (!project.isOpen() || !project.hasNature(CheckstyleNature.NATURE_ID)) {
+          continue;
+        }
+
+        IProjectConfiguration config = ProjectConfigurationFactory.getConfiguration(project);
+        ModuleChanges changes = getModuleChanges(config);
+
+        if (changes == null) {
+          continue;
+        } else if (limitMarkers || changes.isFullAuditRequired()) {
+          projectsToBuild.add(project);
+          continue;
+        }
+
+        applyToMarkers(project, changes);
+
+        if (!changes.getModulesToAudit().isEmpty()) {
+          CheckstyleBuilder builder = new CheckstyleBuilder();
+          builder.auditModules(project, config, changes.getModulesToAudit(), monitor);
+        }
+      }
+
+      if (!projectsToBuild.isEmpty()) {
+        CheckstyleBuilder.buildProjects(projectsToBuild);
+      }
+    } catch (CheckstylePluginException e) {
+      Status status = new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
+              e.getLocalizedMessage(), e);
+      throw new CoreException(status);
+    } finally {
+      monitor.done();
+    }
+    return Status.OK_STATUS;
+  }
+
+  /**
+   * Determines the changes relevant for a project, <code>null</code> if the project is not
+   * affected.
+   */
+  private ModuleChanges getModuleChanges(IProjectConfiguration config) {
+
+    Set<ICheckConfiguration> usedConfigs = new HashSet<>();
+    for (FileSet fileSet : config.getFileSets()) {
+      if (fileSet.isEnabled() && fileSet.getCheckConfig() != null) {
+        usedConfigs.add(fileSet.getCheckConfig());
+      }
+    }
+
+    ModuleChanges changes = null;
+    for (ICheckConfiguration checkConfig : usedConfigs) {
+      if (checkConfig.isGlobal() && mModuleChanges.containsKey(checkConfig.getName())) {
+        changes = mModuleChanges.get(checkConfig.getName());
+      }
+    }
+
+    // markers don't record the configuration that created them, so they can only be attributed
+    // to the changed modules if a single configuration is used
+    if (changes != null && usedConfigs.size() > 1) {
+      return ModuleChanges.fullAudit();
+    }
+    return changes;
+  }
+
+  /**
+   * Removes the markers of removed and changed modules and updates the severity of the others.
+   */
+  private static void applyToMarkers(final IProject project, final ModuleChanges changes)
+          throws CoreException {
+
+    IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+
+        IMarker[] markers = project.findMarkers(CheckstyleMarker.MARKER_ID, false,
+                IResource.DEPTH_INFINITE);
+        for (IMarker marker : markers) {
+
+          Object moduleName = marker.getAttribute(CheckstyleMarker.MODULE_NAME);
+          if (changes.getRemovedModules().contains(moduleName)
+                  || changes.getModulesToAudit().contains(moduleName)) {
+            marker.delete();
+          } else if (changes.getSeverityChanges().containsKey(moduleName)) {
+            Severity severity = changes.getSeverityChanges().get(moduleName);
+            marker.setAttribute(IMarker.SEVERITY, getSeverityValue(severity));
+          }
+        }
+      }
+    };
+
+    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    workspace.run(runnable, project, IWorkspace.AVOID_UPDATE, null);
+  }
+
+  private static int getSeverityValue(Severity severity) {
+    int result = IMarker.SEVERITY_WARNING;
+
+    if (Severity.info.equals(severity)) {
+      result = IMarker.SEVERITY_INFO;
+    } else if (Severity.warning.equals(severity)) {
+      result = IMarker.SEVERITY_WARNING;
+    } else if (Severity.error.equals(severity)) {
+      result = IMarker.SEVERITY_ERROR;
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,350 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.jobs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.eclipsecs.core.CheckstylePlugin;
+import net.sf.eclipsecs.core.Messages;
+import net.sf.eclipsecs.core.builder.Auditor;
+import net.sf.eclipsecs.core.builder.CheckstyleBuilder;
+import net.sf.eclipsecs.core.projectconfig.IProjectConfiguration;
+import net.sf.eclipsecs.core.projectconfig.ProjectConfigurationFactory;
+import net.sf.eclipsecs.core.projectconfig.filters.IFilter;
+import net.sf.eclipsecs.core.util.CheckstylePluginException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+/**
+ * Central scheduler for audits which don't run as part of a build. Requests are queued and run by
+ * a single job: files requested more than once are audited once, requests arriving in a short
+ * burst are merged into one batch, and files opened in editors are audited before other files.
+ * Audits of whole projects (background full builds) run only when no files are waiting.
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class AuditScheduler {
+
+  /**
+   * The priorities of file audits.
+   */
+  public enum Priority {
+
+    /** Files opened in editors, which the user is looking at. */
+    EDITOR,
+
+    /** Files changed or selected by the user. */
+    FILES
+  }
+
+  /** Delay to merge a burst of requests into one batch. */
+  private static final long BATCH_DELAY = 200;
+
+  /** The files waiting to be audited, with their highest requested priority. */
+  private static final Map<IFile, Priority> sPendingFiles = new LinkedHashMap<>();
+
+  /** The project audits waiting to run, by project and check configuration. */
+  private static final Map<String, ProjectAudit> sPendingAudits = new LinkedHashMap<>();
+
+  /** The job running the audits. */
+  private static final SchedulerJob sJob = new SchedulerJob();
+
+  /**
+   * Hidden utility class constructor.
+   */
+  private AuditScheduler() {
+    // noop
+  }
+
+  /**
+   * Requests the audit of files. Files which are already waiting are audited only once, with the
+   * higher of both priorities.
+   *
+   * @param files
+   *          the files to audit
+   * @param priority
+   *          the priority of the files
+   */
+  public static void auditFiles(Collection<IFile> files, Priority priority) {
+
+    if (files.isEmpty()) {
+      return;
+    }
+
+    synchronized (sPendingFiles) {
+      for (IFile file : files) {
+        Priority pending = sPendingFiles.get(file);
+        if (pending == null || priority.compareTo(pending) < 0) {
+          sPendingFiles.put(file, priority);
+        }
+      }
+    }
+    sJob.schedule(BATCH_DELAY);
+  }
+
+  /**
+   * Requests the audit of a whole project by a pre-configured auditor. A waiting audit of the same
+   * project and check configuration is replaced.
+   *
+   * @param project
+   *          the project
+   * @param auditor
+   *          the auditor containing the files of the project
+   */
+  public static void auditProject(IProject project, Auditor auditor) {
+
+    String key = project.getName() + "#" + auditor.getCheckConfiguration().getName(); //$NON-NLS-1$
+    synchronized (sPendingFiles) {
+      sPendingAudits.remove(key);
+      sPendingAudits.put(key, new ProjectAudit(project, auditor));
+    }
+    sJob.schedule(BATCH_DELAY);
+  }
+
+  /**
+   * Removes the waiting files with the highest priority from the queue.
+   *
+   * @return the files, empty if no files are waiting
+   */
+  private static List<IFile> takeFileBatch() {
+
+    List<IFile> batch = new ArrayList<>();
+    synchronized (sPendingFiles) {
+
+      Priority best = null;
+      for (Priority priority : sPendingFiles.values()) {
+        if (best == null || priority.compareTo(best) < 0) {
+          best = priority;
+        }
+      }
+
+      Iterator<Map.Entry<IFile, Priority>> it = sPendingFiles.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<IFile, Priority> entry = it.next();
+        if (entry.getValue() == best) {
+          batch.add(entry.getKey());
+          it.remove();
+        }
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Removes the oldest waiting project audit from the queue.
+   *
+   * @return the project audit or <code>null</code>
+   */
+  private static ProjectAudit takeProjectAudit() {
+
+    synchronized (sPendingFiles) {
+      Iterator<ProjectAudit> it = sPendingAudits.values().iterator();
+      if (!it.hasNext()) {
+        return null;
+      }
+      ProjectAudit audit = it.next();
+      it.remove();
+      return audit;
+    }
+  }
+
+  /**
+   * Runs Checkstyle on a list of workspace files, using the configurations of their projects.
+   *
+   * @param filesToCheck
+   *          the files to check
+   * @param monitor
+   *          the progress monitor
+   * @throws CoreException
+   *           if the audit fails
+   */
+  private static void checkFiles(final List<IFile> filesToCheck, final IProgressMonitor monitor)
+          throws CoreException {
+
+    try {
+
+      Map<IProject, List<IFile>> projectFilesMap = getFilesSortedToProject(filesToCheck);
+
+      for (Map.Entry<IProject, List<IFile>> entry : projectFilesMap.entrySet()) {
+
+        IProject project = entry.getKey();
+        List<IFile> files = entry.getValue();
+
+        IProjectConfiguration checkConfig = ProjectConfigurationFactory.getConfiguration(project);
+
+        filter(files, checkConfig);
+
+        CheckstyleBuilder builder = new CheckstyleBuilder();
+        builder.handleBuildSelection(files, checkConfig, monitor, project,
+                IncrementalProjectBuilder.INCREMENTAL_BUILD);
+      }
+    } catch (CheckstylePluginException e) {
+      Status status = new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
+              e.getLocalizedMessage(), e);
+      throw new CoreException(status);
+    }
+  }
+
+  private static Map<IProject, List<IFile>> getFilesSortedToProject(
+          final List<IFile> filesToCheck) {
+
+    Map<IProject, List<IFile>> projectFilesMap = new HashMap<IProject, List<IFile>>();
+
+    for (int i = 0, size = filesToCheck.size(); i < size; i++) {
+
+      IFile file = filesToCheck.get(i);
+      IProject project = file.getProject();
+
+      List<IFile> projectFiles = projectFilesMap.get(project);
+      if (projectFiles == null) {
+
+        projectFiles = new ArrayList<IFile>();
+        projectFilesMap.put(project, projectFiles);
+      }
+      projectFiles.add(file);
+    }
+
+    return projectFilesMap;
+  }
+
+  private static void filter(final List<IFile> files,
+          final IProjectConfiguration projectConfig) {
+
+    List<IFilter> filters = projectConfig.getFilters();
+    for (IFilter filter : filters) {
+
+      Iterator<IFile> filesIt = files.iterator();
+      while (filesIt.hasNext()) {
+
+        IFile file = filesIt.next();
+
+        if (filter.isEnabled() && !filter.accept(file)) {
+          filesIt.remove();
+        }
+      }
+    }
+  }
+
+  private static void clear() {
+    synchronized (sPendingFiles) {
+      sPendingFiles.clear();
+      sPendingAudits.clear();
+    }
+  }
+
+  /**
+   * A waiting audit of a whole project.
+   */
+  private static class ProjectAudit {
+
+    private final IProject mProject;
+
+    private final Auditor mAuditor;
+
+    ProjectAudit(IProject project, Auditor auditor) {
+      mProject = project;
+      mAuditor = auditor;
+    }
+  }
+
+  /**
+   * Job running the queued audits until the queues are empty.
+   */
+  static class SchedulerJob extends WorkspaceJob implements ISchedulingRule {
+
+    SchedulerJob() {
+      super(Messages.RunCheckstyleOnFilesJob_title);
+      setRule(this);
+    }
+
+    @Override
+    public boolean contains(ISchedulingRule rule) {
+      return rule == this;
+    }
+
+    @Override
+    public boolean isConflicting(ISchedulingRule rule) {
+      return rule == this;
+    }
+
+    @Override
+    public IStatus runInWorkspace(IProgressMonitor monitor) {
+
+      MultiStatus result = new MultiStatus(CheckstylePlugin.PLUGIN_ID, IStatus.OK,
+              Messages.RunCheckstyleOnFilesJob_title, null);
+
+      try {
+        while (!monitor.isCanceled()) {
+
+          // files first, ordered by priority
+          List<IFile> batch = takeFileBatch();
+          if (!batch.isEmpty()) {
+            try {
+              checkFiles(batch, monitor);
+            } catch (CoreException e) {
+              result.add(e.getStatus());
+            }
+            continue;
+          }
+
+          // whole projects last
+          ProjectAudit audit = takeProjectAudit();
+          if (audit == null) {
+            break;
+          }
+          try {
+            audit.mAuditor.runAudit(audit.mProject, monitor);
+          } catch (CheckstylePluginException e) {
+            result.add(new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
+                    e.getLocalizedMessage(), e));
+          }
+        }
+      } catch (OperationCanceledException e) {
+        // handled below
+      } finally {
+        monitor.done();
+      }
+
+      if (monitor.isCanceled()) {
+        clear();
+        return Status.CANCEL_STATUS;
+      }
+      return result.isOK() ? Status.OK_STATUS : result;
+    }
+  }
+}
@@ -21,18 +21,24 @@
 package net.sf.eclipsecs.core.jobs;
 
 import net.sf.eclipsecs.core.Messages;
+import net.sf.eclipsecs.core.builder.CheckstyleBuilder;
 import net.sf.eclipsecs.core.nature.CheckstyleNature;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.eclipse.osgi.util.NLS;
 
 /**
- * Operation which builds a project.
+ * Operation which audits projects like the Checkstyle builder. The projects are audited directly
+ * instead of being built through the workspace, which would require the workspace root as
+ * scheduling rule. The job locks only its projects, so that jobs of independent projects can run
+ * at the same time (see {@link BuildProjectJobGroup}).
  *
  * @author Lars Ködderitzsch
  */
@@ -44,6 +50,9 @@ public class BuildProjectJob extends Job {
   /** the build kind. */
   private int mKind;
 
+  /** the family of the job, or <code>null</code>. */
+  private Object mFamily;
+
   /**
    * Creates an operation which builds a project.
    *
@@ -56,10 +65,11 @@ public class BuildProjectJob extends Job {
     super(NLS.bind(Messages.BuildProjectJob_msgBuildProject, project.getName()));
     mProjects = new IProject[] { project };
     mKind = buildKind;
+    setRule(project);
   }
 
   /**
-   * Creates an operation which builds a set of project.
+   * Creates an operation which builds a set of project, one after another.
    *
    * @param projects
    *          the projects to build
@@ -71,6 +81,22 @@ public class BuildProjectJob extends Job {
 
     mProjects = projects;
     mKind = buildKind;
+    setRule(MultiRule.combine(projects));
+  }
+
+  /**
+   * Sets the family of the job, e.g. the group it belongs to.
+   *
+   * @param family
+   *          the family
+   */
+  void setFamily(Object family) {
+    mFamily = family;
+  }
+
+  @Override
+  public boolean belongsTo(Object family) {
+    return family != null && family == mFamily;
   }
 
   @Override
@@ -80,14 +106,18 @@ public class BuildProjectJob extends Job {
 
     try {
 
+      CheckstyleBuilder builder = new CheckstyleBuilder();
+
       for (int i = 0; i < mProjects.length; i++) {
 
         // build only if open and checkstyle active for the project
         if (mProjects[i].isOpen() && mProjects[i].hasNature(CheckstyleNature.NATURE_ID)) {
-          mProjects[i].build(mKind, monitor);
+          builder.auditProject(mProjects[i], mKind, monitor);
         }
       }
       status = Status.OK_STATUS;
+    } catch (OperationCanceledException e) {
+      status = Status.CANCEL_STATUS;
     } catch (CoreException e) {
       status = e.getStatus();
     } finally {
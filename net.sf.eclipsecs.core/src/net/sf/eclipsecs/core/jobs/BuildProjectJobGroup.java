@@ -0,0 +1,148 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.jobs;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+import net.sf.eclipsecs.core.Messages;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * Group of jobs auditing several projects like the Checkstyle builder. Each project is audited by
+ * its own {@link BuildProjectJob} with the project as scheduling rule, so independent projects are
+ * audited at the same time and other workspace jobs are not blocked for the whole build. The jobs
+ * share one progress group and cancelling one of them cancels the group.
+ *
+ * @author Lars Ködderitzsch
+ */
+public class BuildProjectJobGroup {
+
+  /** The progress ticks of each project within the progress group. */
+  private static final int TICKS_PER_PROJECT = 100;
+
+  /** The jobs not yet scheduled. */
+  private final Queue<BuildProjectJob> mPendingJobs = new LinkedList<>();
+
+  /** The maximum number of projects built at the same time. */
+  private final int mMaxRunningJobs;
+
+  /** The number of scheduled jobs, which are not done yet. */
+  private int mRunningJobs;
+
+  /** Flags if the group has been canceled. */
+  private boolean mCanceled;
+
+  /** The progress group of the jobs. */
+  private IProgressMonitor mProgressGroup;
+
+  /** Listener scheduling the next job once a job is done. */
+  private final JobChangeAdapter mJobListener = new JobChangeAdapter() {
+
+    @Override
+    public void done(IJobChangeEvent event) {
+      jobDone(event.getResult());
+    }
+  };
+
+  /**
+   * Creates the group.
+   *
+   * @param projects
+   *          the projects to build
+   * @param buildKind
+   *          the kind of build to do
+   */
+  public BuildProjectJobGroup(IProject[] projects, int buildKind) {
+
+    for (IProject project : projects) {
+      BuildProjectJob job = new BuildProjectJob(project, buildKind);
+      job.setFamily(this);
+      job.addJobChangeListener(mJobListener);
+      mPendingJobs.add(job);
+    }
+    mMaxRunningJobs = Math.max(1, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Schedules the jobs of the group.
+   */
+  public synchronized void schedule() {
+
+    if (mPendingJobs.isEmpty()) {
+      return;
+    }
+
+    mProgressGroup = Job.getJobManager().createProgressGroup();
+    mProgressGroup.beginTask(Messages.BuildProjectJob_msgBuildAllProjects,
+            mPendingJobs.size() * TICKS_PER_PROJECT);
+    for (BuildProjectJob job : mPendingJobs) {
+      job.setProgressGroup(mProgressGroup, TICKS_PER_PROJECT);
+    }
+
+    scheduleNext();
+  }
+
+  /**
+   * Cancels the jobs of the group. Jobs not yet scheduled are dropped.
+   */
+  public synchronized void cancel() {
+
+    mCanceled = true;
+    mPendingJobs.clear();
+    Job.getJobManager().cancel(this);
+    finishIfDone();
+  }
+
+  private synchronized void jobDone(IStatus result) {
+
+    mRunningJobs--;
+    if (result != null && result.getSeverity() == IStatus.CANCEL && !mCanceled) {
+      cancel();
+    } else {
+      scheduleNext();
+      finishIfDone();
+    }
+  }
+
+  private void scheduleNext() {
+
+    while (!mCanceled && mRunningJobs < mMaxRunningJobs && !mPendingJobs.isEmpty()) {
+      mRunningJobs++;
+      mPendingJobs.poll().schedule();
+    }
+  }
+
+  private void finishIfDone() {
+
+    if (mRunningJobs == 0 && mPendingJobs.isEmpty() && mProgressGroup != null) {
+      mProgressGroup.done();
+      mProgressGroup = null;
+    }
+  }
+}
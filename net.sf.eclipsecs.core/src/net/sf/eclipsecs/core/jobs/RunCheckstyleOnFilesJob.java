@@ -21,22 +21,11 @@
 package net.sf.eclipsecs.core.jobs;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
-import net.sf.eclipsecs.core.CheckstylePlugin;
 import net.sf.eclipsecs.core.Messages;
-import net.sf.eclipsecs.core.builder.CheckstyleBuilder;
-import net.sf.eclipsecs.core.projectconfig.IProjectConfiguration;
-import net.sf.eclipsecs.core.projectconfig.ProjectConfigurationFactory;
-import net.sf.eclipsecs.core.projectconfig.filters.IFilter;
-import net.sf.eclipsecs.core.util.CheckstylePluginException;
 
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -48,7 +37,11 @@ import org.eclipse.core.runtime.jobs.ISchedulingRule;
  * Job that invokes Checkstyle on a list of workspace files.
  * 
  * @author Lars Ködderitzsch
+ * @deprecated the files are passed to the {@link AuditScheduler}, use
+ *             {@link AuditScheduler#auditFiles(java.util.Collection, AuditScheduler.Priority)}
+ *             directly
  */
+@Deprecated
 public class RunCheckstyleOnFilesJob extends WorkspaceJob implements ISchedulingRule {
 
   private List<IFile> mFilesToCheck;
@@ -93,7 +86,7 @@ public class RunCheckstyleOnFilesJob extends WorkspaceJob implements IScheduling
    */
   @Override
   public boolean isConflicting(ISchedulingRule arg0) {
-    return arg0 instanceof RunCheckstyleOnFilesJob || arg0 instanceof AuditorJob;
+    return arg0 instanceof RunCheckstyleOnFilesJob;
   }
 
   /**
@@ -102,66 +95,7 @@ public class RunCheckstyleOnFilesJob extends WorkspaceJob implements IScheduling
   @Override
   public final IStatus runInWorkspace(final IProgressMonitor monitor) throws CoreException {
 
-    try {
-
-      Map<IProject, List<IFile>> projectFilesMap = getFilesSortedToProject(mFilesToCheck);
-
-      for (Map.Entry<IProject, List<IFile>> entry : projectFilesMap.entrySet()) {
-
-        IProject project = entry.getKey();
-        List<IFile> files = entry.getValue();
-
-        IProjectConfiguration checkConfig = ProjectConfigurationFactory.getConfiguration(project);
-
-        filter(files, checkConfig);
-
-        CheckstyleBuilder builder = new CheckstyleBuilder();
-        builder.handleBuildSelection(files, checkConfig, monitor, project,
-                IncrementalProjectBuilder.INCREMENTAL_BUILD);
-      }
-    } catch (CheckstylePluginException e) {
-      Status status = new Status(IStatus.ERROR, CheckstylePlugin.PLUGIN_ID, IStatus.ERROR,
-              e.getLocalizedMessage(), e);
-      throw new CoreException(status);
-    }
+    AuditScheduler.auditFiles(mFilesToCheck, AuditScheduler.Priority.FILES);
     return Status.OK_STATUS;
   }
-
-  private Map<IProject, List<IFile>> getFilesSortedToProject(final List<IFile> filesToCheck) {
-
-    Map<IProject, List<IFile>> projectFilesMap = new HashMap<IProject, List<IFile>>();
-
-    for (int i = 0, size = filesToCheck.size(); i < size; i++) {
-
-      IFile file = filesToCheck.get(i);
-      IProject project = file.getProject();
-
-      List<IFile> projectFiles = projectFilesMap.get(project);
-      if (projectFiles == null) {
-
-        projectFiles = new ArrayList<IFile>();
-        projectFilesMap.put(project, projectFiles);
-      }
-      projectFiles.add(file);
-    }
-
-    return projectFilesMap;
-  }
-
-  private void filter(final List<IFile> files, final IProjectConfiguration projectConfig) {
-
-    List<IFilter> filters = projectConfig.getFilters();
-    for (IFilter filter : filters) {
-
-      Iterator<IFile> filesIt = files.iterator();
-      while (filesIt.hasNext()) {
-
-        IFile file = filesIt.next();
-
-        if (filter.isEnabled() && !filter.accept(file)) {
-          filesIt.remove();
-        }
-      }
-    }
-  }
 }
@@ -0,0 +1,113 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.jobs;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import net.sf.eclipsecs.core.Messages;
+import net.sf.eclipsecs.core.builder.CheckerFactory;
+import net.sf.eclipsecs.core.config.ICheckConfiguration;
+import net.sf.eclipsecs.core.nature.CheckstyleNature;
+import net.sf.eclipsecs.core.projectconfig.FileSet;
+import net.sf.eclipsecs.core.projectconfig.IProjectConfiguration;
+import net.sf.eclipsecs.core.projectconfig.ProjectConfigurationFactory;
+import net.sf.eclipsecs.core.util.CheckstylePluginException;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Job which creates the checkers of the enabled file sets of all Checkstyle projects in advance,
+ * so the first audit after a start of the workbench does not have to wait for them. Errors are
+ * ignored, they are reported by the audits which need the checkers.
+ *
+ * @author Lars Ködderitzsch
+ */
+public class WarmUpCheckersJob extends Job {
+
+  /** The delay after startup, so the job does not compete with the startup of the workbench. */
+  public static final long STARTUP_DELAY = 5000;
+
+  /**
+   * Creates the job.
+   */
+  public WarmUpCheckersJob() {
+    super(Messages.WarmUpCheckersJob_title);
+    setSystem(true);
+    setPriority(DECORATE);
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+
+    IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+    monitor.beginTask(getName(), projects.length);
+    try {
+      for (IProject project : projects) {
+
+        if (monitor.isCanceled()) {
+          return Status.CANCEL_STATUS;
+        }
+
+        try {
+          if (project.isOpen() && project.hasNature(CheckstyleNature.NATURE_ID)) {
+            warmUp(project);
+          }
+        } catch (CoreException | CheckstylePluginException e) {
+          // the builder reports configuration problems
+        }
+        monitor.worked(1);
+      }
+    } finally {
+      monitor.done();
+    }
+    return Status.OK_STATUS;
+  }
+
+  private static void warmUp(IProject project) throws CheckstylePluginException {
+
+    IProjectConfiguration config = ProjectConfigurationFactory.getConfiguration(project);
+
+    Set<ICheckConfiguration> checkConfigs = new LinkedHashSet<>();
+    for (FileSet fileSet : config.getFileSets()) {
+      if (fileSet.isEnabled() && fileSet.getCheckConfig() != null) {
+        checkConfigs.add(fileSet.getCheckConfig());
+      }
+    }
+
+    for (ICheckConfiguration checkConfig : checkConfigs) {
+      try {
+        CheckerFactory.releaseChecker(CheckerFactory.createChecker(checkConfig, project));
+      } catch (CheckstyleException | CheckstylePluginException e) {
+        // the builder reports configuration problems
+      }
+    }
+  }
+}
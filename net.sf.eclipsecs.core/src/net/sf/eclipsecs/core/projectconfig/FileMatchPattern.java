@@ -23,6 +23,7 @@ package net.sf.eclipsecs.core.projectconfig;
 import com.google.common.base.MoreObjects;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -35,6 +36,9 @@ import net.sf.eclipsecs.core.util.CheckstylePluginException;
  */
 public class FileMatchPattern implements Cloneable {
 
+  /** Counts the modifications of all patterns, so compiled file set matchers can detect them. */
+  private static final AtomicLong sModificationCount = new AtomicLong();
+
   private boolean mIsIncludePattern = true;
 
   private Pattern mRegexPattern;
@@ -77,6 +81,7 @@ public class FileMatchPattern implements Cloneable {
     try {
       mRegexPattern = Pattern.compile(pattern);
       mPatternString = pattern;
+      sModificationCount.incrementAndGet();
     } catch (PatternSyntaxException e) {
       CheckstylePluginException.rethrow(e); // wrap the exception
     }
@@ -115,6 +120,16 @@ public class FileMatchPattern implements Cloneable {
    */
   public void setIsIncludePattern(boolean isIncludePattern) {
     mIsIncludePattern = isIncludePattern;
+    sModificationCount.incrementAndGet();
+  }
+
+  /**
+   * Returns the number of modifications of any pattern so far.
+   *
+   * @return the modification count
+   */
+  static long getModificationCount() {
+    return sModificationCount.get();
   }
 
   /**
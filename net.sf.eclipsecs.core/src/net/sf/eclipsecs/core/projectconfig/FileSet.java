@@ -22,6 +22,7 @@ package net.sf.eclipsecs.core.projectconfig;
 
 import com.google.common.base.MoreObjects;
 
+import java.util.AbstractList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -41,7 +42,14 @@ public class FileSet implements Cloneable {
 
   private boolean mEnabled = true;
 
-  private List<FileMatchPattern> mFileMatchPatterns = new LinkedList<>();
+  private List<FileMatchPattern> mFileMatchPatterns = new FileMatchPatternList(
+          new LinkedList<FileMatchPattern>());
+
+  /** The compiled matcher of the file match patterns, created on demand. */
+  private FileSetMatcher mMatcher;
+
+  /** The modification count of the patterns at the time the matcher has been compiled. */
+  private long mMatcherModificationCount;
 
   /**
    * Default constructor.
@@ -80,7 +88,8 @@ public class FileSet implements Cloneable {
    *          The new list of pattern objects.
    */
   public void setFileMatchPatterns(List<FileMatchPattern> list) {
-    mFileMatchPatterns = list;
+    mFileMatchPatterns = new FileMatchPatternList(list);
+    invalidateMatcher();
   }
 
   /**
@@ -149,21 +158,26 @@ public class FileSet implements Cloneable {
    *         is not included in the file set.
    */
   public boolean includesFile(IFile file) {
-    boolean result = false;
-    String filePath = file.getProjectRelativePath().toString();
-
-    for (FileMatchPattern pattern : mFileMatchPatterns) {
-      boolean matches = pattern.isMatch(filePath);
-      if (matches) {
-        if (pattern.isIncludePattern()) {
-          result = true;
-        } else {
-          result = false;
-        }
-      }
+    return getMatcher().matches(file.getProjectRelativePath().toString());
+  }
+
+  /**
+   * Returns the compiled matcher of the file match patterns. The matcher is compiled again if the
+   * list of patterns or any pattern has been modified since.
+   *
+   * @return the matcher
+   */
+  public synchronized FileSetMatcher getMatcher() {
+    long modificationCount = FileMatchPattern.getModificationCount();
+    if (mMatcher == null || mMatcherModificationCount != modificationCount) {
+      mMatcher = FileSetMatcher.compile(mFileMatchPatterns);
+      mMatcherModificationCount = modificationCount;
     }
+    return mMatcher;
+  }
 
-    return result;
+  private synchronized void invalidateMatcher() {
+    mMatcher = null;
   }
 
   @Override
@@ -176,7 +190,8 @@ public class FileSet implements Cloneable {
       for (FileMatchPattern pattern : mFileMatchPatterns) {
         clonedPatterns.add(pattern.clone());
       }
-      clone.mFileMatchPatterns = clonedPatterns;
+      clone.mFileMatchPatterns = clone.new FileMatchPatternList(clonedPatterns);
+      clone.mMatcher = null;
 
       return clone;
     } catch (CloneNotSupportedException e) {
@@ -210,4 +225,48 @@ public class FileSet implements Cloneable {
             .add("fileMatchPatterns", mFileMatchPatterns).add("checkConfig", mCheckConfig)
             .toString();
   }
+
+  /**
+   * List of the file match patterns discarding the compiled matcher on modification.
+   */
+  private class FileMatchPatternList extends AbstractList<FileMatchPattern> {
+
+    private final List<FileMatchPattern> mDelegate;
+
+    FileMatchPatternList(List<FileMatchPattern> delegate) {
+      mDelegate = delegate;
+    }
+
+    @Override
+    public FileMatchPattern get(int index) {
+      return mDelegate.get(index);
+    }
+
+    @Override
+    public int size() {
+      return mDelegate.size();
+    }
+
+    @Override
+    public FileMatchPattern set(int index, FileMatchPattern element) {
+      FileMatchPattern previous = mDelegate.set(index, element);
+      invalidateMatcher();
+      return previous;
+    }
+
+    @Override
+    public void add(int index, FileMatchPattern element) {
+      mDelegate.add(index, element);
+      modCount++;
+      invalidateMatcher();
+    }
+
+    @Override
+    public FileMatchPattern remove(int index) {
+      FileMatchPattern removed = mDelegate.remove(index);
+      modCount++;
+      invalidateMatcher();
+      return removed;
+    }
+  }
 }
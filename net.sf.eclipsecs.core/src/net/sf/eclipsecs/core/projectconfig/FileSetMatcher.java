@@ -0,0 +1,448 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.projectconfig;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled form of the file match patterns of a file set. As with the patterns themselves, the
+ * last matching pattern decides if a file is included, so the patterns are evaluated from last to
+ * first and evaluation stops at the first match.
+ * <p>
+ * Patterns consisting of literal characters only (optionally anchored, like
+ * <code>^src/main/</code> or <code>.*\.java$</code>) are evaluated without regular expressions,
+ * prefix and suffix literals through a trie each. All other patterns are additionally combined
+ * into one regular expression, so files not matched by any of them are detected with a single
+ * scan. Instances are immutable and may be shared between threads.
+ * </p>
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class FileSetMatcher {
+
+  /** Kind of patterns evaluated as regular expression. */
+  private static final int REGEX = 0;
+
+  /** Kind of literal patterns anchored at the start of the path. */
+  private static final int PREFIX = 1;
+
+  /** Kind of literal patterns anchored at the end of the path. */
+  private static final int SUFFIX = 2;
+
+  /** Kind of literal patterns matching anywhere in the path. */
+  private static final int CONTAINS = 3;
+
+  /** Kind of literal patterns anchored at both ends of the path. */
+  private static final int EXACT = 4;
+
+  /** Characters with special meaning in regular expressions. */
+  private static final String META_CHARS = ".[]{}()*+?^$|"; //$NON-NLS-1$
+
+  /** The regular expressions of the patterns. */
+  private final String[] mPatternStrings;
+
+  /** The compiled patterns. */
+  private final Pattern[] mPatterns;
+
+  /** The include flags of the patterns. */
+  private final boolean[] mIncludes;
+
+  /** The kinds of the patterns. */
+  private final int[] mKinds;
+
+  /** The literals of literal patterns, <code>null</code> for the others. */
+  private final String[] mLiterals;
+
+  /** Flags the regular expression patterns contained in the combined expression. */
+  private final boolean[] mCombined;
+
+  /** The combined expression of the regular expression patterns, or <code>null</code>. */
+  private final Pattern mCombinedPattern;
+
+  /** Trie of the prefix literals. */
+  private final TrieNode mPrefixes = new TrieNode();
+
+  /** Trie of the reversed suffix literals. */
+  private final TrieNode mSuffixes = new TrieNode();
+
+  private FileSetMatcher(List<FileMatchPattern> patterns) {
+
+    int size = patterns.size();
+    mPatternStrings = new String[size];
+    mPatterns = new Pattern[size];
+    mIncludes = new boolean[size];
+    mKinds = new int[size];
+    mLiterals = new String[size];
+    mCombined = new boolean[size];
+
+    StringBuilder combined = new StringBuilder();
+    int combinedCount = 0;
+
+    for (int i = 0; i < size; i++) {
+      FileMatchPattern pattern = patterns.get(i);
+      mPatternStrings[i] = pattern.getMatchPattern();
+      mPatterns[i] = Pattern.compile(mPatternStrings[i]);
+      mIncludes[i] = pattern.isIncludePattern();
+
+      StringBuilder literal = new StringBuilder();
+      mKinds[i] = classify(mPatternStrings[i], literal);
+
+      if (mKinds[i] == PREFIX) {
+        mPrefixes.add(literal, i);
+      } else if (mKinds[i] == SUFFIX) {
+        mSuffixes.add(new StringBuilder(literal).reverse(), i);
+      } else if (mKinds[i] == REGEX && isCombinable(mPatterns[i])) {
+        combined.append(combinedCount > 0 ? "|(?:" : "(?:").append(mPatternStrings[i]) //$NON-NLS-1$ //$NON-NLS-2$
+                .append(')');
+        mCombined[i] = true;
+        combinedCount++;
+      }
+      mLiterals[i] = mKinds[i] != REGEX ? literal.toString() : null;
+    }
+
+    // a single expression is not worth a separate scan
+    Pattern combinedPattern = null;
+    if (combinedCount > 1) {
+      try {
+        combinedPattern = Pattern.compile(combined.toString());
+      } catch (PatternSyntaxException e) {
+        combinedPattern = null;
+      }
+    }
+    if (combinedPattern == null) {
+      for (int i = 0; i < size; i++) {
+        mCombined[i] = false;
+      }
+    }
+    mCombinedPattern = combinedPattern;
+  }
+
+  /**
+   * Compiles a list of file match patterns.
+   *
+   * @param patterns
+   *          the file match patterns
+   * @return the compiled matcher
+   */
+  public static FileSetMatcher compile(List<FileMatchPattern> patterns) {
+    return new FileSetMatcher(patterns);
+  }
+
+  /**
+   * Tests if a project relative path is included by the patterns.
+   *
+   * @param path
+   *          the project relative path
+   * @return <code>true</code> if the path is included
+   */
+  public boolean matches(String path) {
+    return evaluate(path, null);
+  }
+
+  /**
+   * Creates a memo for matching many files, e.g. during a build. The memo remembers for each
+   * folder which patterns are already decided by the folder alone, so files of the same folder
+   * are only tested against the remaining patterns. Memos are not thread-safe.
+   *
+   * @return the memo
+   */
+  public FolderMemo newFolderMemo() {
+    return new FolderMemo();
+  }
+
+  private boolean evaluate(String path, FolderState folder) {
+
+    // anchors behave differently around line terminators, leave these to the regular expressions
+    if (hasLineTerminator(path)) {
+      for (int i = mPatterns.length - 1; i >= 0; i--) {
+        if (mPatterns[i].matcher(path).find()) {
+          return mIncludes[i];
+        }
+      }
+      return false;
+    }
+
+    BitSet literalMatches = null;
+    Boolean combinedMatch = null;
+
+    for (int i = mPatterns.length - 1; i >= 0; i--) {
+
+      if (folder != null) {
+        if (folder.mMatching.get(i)) {
+          return mIncludes[i];
+        } else if (folder.mNotMatching.get(i)) {
+          continue;
+        }
+      }
+
+      boolean match;
+      if (mKinds[i] != REGEX) {
+        if (literalMatches == null) {
+          literalMatches = matchLiterals(path);
+        }
+        match = literalMatches.get(i);
+      } else if (mCombined[i]) {
+        if (combinedMatch == null) {
+          combinedMatch = Boolean.valueOf(mCombinedPattern.matcher(path).find());
+        }
+        match = combinedMatch.booleanValue() && mPatterns[i].matcher(path).find();
+      } else {
+        match = mPatterns[i].matcher(path).find();
+      }
+
+      if (match) {
+        return mIncludes[i];
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determines which literal patterns match a path.
+   */
+  private BitSet matchLiterals(String path) {
+
+    BitSet matches = new BitSet(mPatterns.length);
+
+    TrieNode node = mPrefixes;
+    for (int i = 0, length = path.length(); i < length && node != null; i++) {
+      node = node.mChildren.get(Character.valueOf(path.charAt(i)));
+      if (node != null) {
+        node.collect(matches);
+      }
+    }
+
+    node = mSuffixes;
+    for (int i = path.length() - 1; i >= 0 && node != null; i--) {
+      node = node.mChildren.get(Character.valueOf(path.charAt(i)));
+      if (node != null) {
+        node.collect(matches);
+      }
+    }
+
+    for (int i = 0; i < mKinds.length; i++) {
+      if (mKinds[i] == CONTAINS && path.contains(mLiterals[i])
+              || mKinds[i] == EXACT && path.equals(mLiterals[i])) {
+        matches.set(i);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Determines the patterns decided by the folder part of a path alone. The file name part of a
+   * path never contains a separator.
+   */
+  private FolderState computeFolderState(String folder) {
+
+    FolderState state = new FolderState();
+    for (int i = 0; i < mKinds.length; i++) {
+      String literal = mLiterals[i];
+
+      switch (mKinds[i]) {
+        case PREFIX:
+          if (literal.length() <= folder.length()) {
+            (folder.startsWith(literal) ? state.mMatching : state.mNotMatching).set(i);
+          } else if (!literal.startsWith(folder)) {
+            state.mNotMatching.set(i);
+          }
+          break;
+        case CONTAINS:
+          if (folder.contains(literal)) {
+            state.mMatching.set(i);
+          }
+          break;
+        case EXACT:
+          if (!literal.startsWith(folder) || literal.indexOf('/', folder.length()) >= 0) {
+            state.mNotMatching.set(i);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Classifies a regular expression and extracts the literal of literal patterns.
+   */
+  private static int classify(String regex, StringBuilder literal) {
+
+    int start = 0;
+    int end = regex.length();
+    boolean anchoredStart = false;
+    boolean anchoredEnd = false;
+
+    if (regex.startsWith("^")) { //$NON-NLS-1$
+      anchoredStart = true;
+      start = 1;
+    }
+    if (regex.startsWith(".*", start)) { //$NON-NLS-1$
+      anchoredStart = false;
+      start += 2;
+    }
+    if (end - start >= 1 && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+      anchoredEnd = true;
+      end--;
+    }
+    if (end - start >= 2 && regex.startsWith(".*", end - 2) && !isEscaped(regex, end - 2)) { //$NON-NLS-1$
+      anchoredEnd = false;
+      end -= 2;
+    }
+
+    for (int i = start; i < end; i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+
+        // only escaped punctuation stands for itself
+        if (i + 1 >= end || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+          return REGEX;
+        }
+        literal.append(regex.charAt(++i));
+      } else if (META_CHARS.indexOf(c) >= 0) {
+        return REGEX;
+      } else {
+        literal.append(c);
+      }
+    }
+
+    if (literal.length() == 0) {
+      return REGEX;
+    } else if (anchoredStart) {
+      return anchoredEnd ? EXACT : PREFIX;
+    } else {
+      return anchoredEnd ? SUFFIX : CONTAINS;
+    }
+  }
+
+  private static boolean isEscaped(String regex, int index) {
+    int backslashes = 0;
+    for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  /**
+   * Checks if a pattern can be part of the combined expression. Groups would shift the numbers of
+   * back references, quotes and inline flags could extend beyond the enclosing group.
+   */
+  private static boolean isCombinable(Pattern pattern) {
+    String regex = pattern.pattern();
+    return pattern.matcher("").groupCount() == 0 && !regex.contains("\\Q") //$NON-NLS-1$ //$NON-NLS-2$
+            && !regex.contains("(?"); //$NON-NLS-1$
+  }
+
+  private static boolean hasLineTerminator(String path) {
+    for (int i = 0, length = path.length(); i < length; i++) {
+      char c = path.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Memo of the patterns decided by the folders of the matched paths.
+   */
+  public final class FolderMemo {
+
+    /** The states of the folders seen so far, by folder path. */
+    private final Map<String, FolderState> mFolders = new HashMap<>();
+
+    private FolderMemo() {
+      // created through the matcher
+    }
+
+    /**
+     * Tests if a project relative path is included by the patterns.
+     *
+     * @param path
+     *          the project relative path
+     * @return <code>true</code> if the path is included
+     */
+    public boolean matches(String path) {
+
+      if (hasLineTerminator(path)) {
+        return evaluate(path, null);
+      }
+
+      // the folder part including the trailing separator
+      String folder = path.substring(0, path.lastIndexOf('/') + 1);
+      FolderState state = mFolders.get(folder);
+      if (state == null) {
+        state = computeFolderState(folder);
+        mFolders.put(folder, state);
+      }
+      return evaluate(path, state);
+    }
+  }
+
+  /**
+   * The patterns decided by a folder.
+   */
+  private static class FolderState {
+
+    /** The patterns matching all files of the folder. */
+    private final BitSet mMatching = new BitSet();
+
+    /** The patterns matching no file of the folder. */
+    private final BitSet mNotMatching = new BitSet();
+  }
+
+  /**
+   * Node of a trie of literals.
+   */
+  private static class TrieNode {
+
+    /** The child nodes by character. */
+    private final Map<Character, TrieNode> mChildren = new HashMap<>();
+
+    /** The patterns whose literal ends in this node. */
+    private final BitSet mPatterns = new BitSet();
+
+    void add(CharSequence literal, int patternIndex) {
+      TrieNode node = this;
+      for (int i = 0, length = literal.length(); i < length; i++) {
+        Character c = Character.valueOf(literal.charAt(i));
+        TrieNode child = node.mChildren.get(c);
+        if (child == null) {
+          child = new TrieNode();
+          node.mChildren.put(c, child);
+        }
+        node = child;
+      }
+      node.mPatterns.set(patternIndex);
+    }
+
+    void collect(BitSet matches) {
+      matches.or(mPatterns);
+    }
+  }
+}
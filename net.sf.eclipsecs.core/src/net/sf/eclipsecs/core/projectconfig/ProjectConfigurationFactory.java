@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.eclipsecs.core.Messages;
 import net.sf.eclipsecs.core.config.CheckConfiguration;
@@ -45,10 +46,15 @@ import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.osgi.util.NLS;
 
 /**
@@ -58,17 +64,32 @@ public final class ProjectConfigurationFactory {
 
   static final String PROJECT_CONFIGURATION_FILE = ".checkstyle"; //$NON-NLS-1$
 
+  /** Name of the classpath file of Java projects. */
+  private static final String CLASSPATH_FILE = ".classpath"; //$NON-NLS-1$
+
   static final String CURRENT_FILE_FORMAT_VERSION = "1.2.0"; //$NON-NLS-1$
 
   /** constant list of supported file versions. */
   private static final List<String> SUPPORTED_VERSIONS = Arrays.asList("1.0.0", //$NON-NLS-1$
           "1.1.0", CURRENT_FILE_FORMAT_VERSION);
 
+  /** Map containing the loaded project configurations by project. */
+  private static final Map<IProject, IProjectConfiguration> sConfigurations =
+          new ConcurrentHashMap<>();
+
+  /** Listener invalidating cached project configurations when their file changes. */
+  private static IResourceChangeListener sConfigFileListener;
+
+  /** Counts the invalidations, to detect invalidations while a configuration is loaded. */
+  private static long sInvalidationCount;
+
   private ProjectConfigurationFactory() {
   }
 
   /**
-   * Get the <code>ProjectConfiguration</code> object for the specified project.
+   * Get the <code>ProjectConfiguration</code> object for the specified project. Configurations
+   * are cached until the <code>.checkstyle</code> file of the project or the global check
+   * configurations change.
    *
    * @param project
    *          The project to get <code>FileSet</code>'s for.
@@ -78,7 +99,47 @@ public final class ProjectConfigurationFactory {
    */
   public static IProjectConfiguration getConfiguration(IProject project)
           throws CheckstylePluginException {
-    return loadFromPersistence(project);
+
+    IProjectConfiguration configuration = sConfigurations.get(project);
+    if (configuration != null) {
+      return configuration;
+    }
+
+    long invalidationCount;
+    synchronized (ProjectConfigurationFactory.class) {
+      registerConfigFileListener();
+      invalidationCount = sInvalidationCount;
+    }
+
+    configuration = loadFromPersistence(project);
+
+    synchronized (ProjectConfigurationFactory.class) {
+      // don't cache configurations which might have been outdated while loading
+      if (invalidationCount == sInvalidationCount) {
+        sConfigurations.put(project, configuration);
+      }
+    }
+    return configuration;
+  }
+
+  /**
+   * Removes the cached configuration of a project.
+   *
+   * @param project
+   *          the project
+   */
+  static synchronized void invalidate(IProject project) {
+    sInvalidationCount++;
+    sConfigurations.remove(project);
+  }
+
+  /**
+   * Removes all cached project configurations, e.g. because the global check configurations they
+   * refer to have changed.
+   */
+  public static synchronized void invalidateAll() {
+    sInvalidationCount++;
+    sConfigurations.clear();
   }
 
   /**
@@ -151,6 +212,17 @@ public final class ProjectConfigurationFactory {
     return new ProjectConfiguration(project, null, fileSets, defaultFilters, true, false);
   }
 
+  /**
+   * Registers the listener invalidating cached configurations, if not already done.
+   */
+  private static void registerConfigFileListener() {
+    if (sConfigFileListener == null) {
+      sConfigFileListener = new ConfigFileListener();
+      ResourcesPlugin.getWorkspace().addResourceChangeListener(sConfigFileListener,
+              IResourceChangeEvent.POST_CHANGE);
+    }
+  }
+
   /**
    * Load the audit configurations from the persistent state storage.
    */
@@ -334,4 +406,37 @@ public final class ProjectConfigurationFactory {
 
     return filters;
   }
+
+  /**
+   * Resource change listener invalidating the cached configuration of a project when its
+   * <code>.checkstyle</code> file changes or the project is opened, closed or removed. Changes of
+   * the <code>.classpath</code> or <code>.project</code> file also invalidate the configuration,
+   * since filters like the non-source-directory filter keep state derived from them.
+   */
+  private static class ConfigFileListener implements IResourceChangeListener {
+
+    @Override
+    public void resourceChanged(IResourceChangeEvent event) {
+
+      IResourceDelta rootDelta = event.getDelta();
+      if (rootDelta == null) {
+        return;
+      }
+
+      for (IResourceDelta projectDelta : rootDelta.getAffectedChildren()) {
+
+        if (projectDelta.getKind() != IResourceDelta.CHANGED
+                || (projectDelta.getFlags() & IResourceDelta.OPEN) != 0
+                || hasChanged(projectDelta, PROJECT_CONFIGURATION_FILE)
+                || hasChanged(projectDelta, CLASSPATH_FILE)
+                || hasChanged(projectDelta, IProjectDescription.DESCRIPTION_FILE_NAME)) {
+          invalidate((IProject) projectDelta.getResource());
+        }
+      }
+    }
+
+    private static boolean hasChanged(IResourceDelta projectDelta, String fileName) {
+      return projectDelta.findMember(new Path(fileName)) != null;
+    }
+  }
 }
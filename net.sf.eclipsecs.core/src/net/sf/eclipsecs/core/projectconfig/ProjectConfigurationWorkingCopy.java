@@ -234,6 +234,9 @@ public class ProjectConfigurationWorkingCopy implements Cloneable, IProjectConfi
    */
   public void store() throws CheckstylePluginException {
     storeToPersistence(this);
+
+    // don't wait for the resource change notification, which might be deferred
+    ProjectConfigurationFactory.invalidate(getProject());
   }
 
   @Override
@@ -20,6 +20,7 @@
 
 package net.sf.eclipsecs.core.projectconfig.filters;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IResource;
 
 /**
@@ -27,7 +28,7 @@ import org.eclipse.core.resources.IResource;
  *
  * @author Lars Ködderitzsch
  */
-public class DerivedFilesFilter extends AbstractFilter {
+public class DerivedFilesFilter extends AbstractFilter implements IContainerFilter {
 
   /**
    * {@inheritDoc}
@@ -42,4 +43,12 @@ public class DerivedFilesFilter extends AbstractFilter {
     }
     return goesThrough;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean excludesContainer(IContainer container) {
+    return container.isDerived(IResource.CHECK_ANCESTORS);
+  }
 }
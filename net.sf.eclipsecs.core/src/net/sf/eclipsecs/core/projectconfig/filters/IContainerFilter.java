@@ -0,0 +1,42 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.core.projectconfig.filters;
+
+import org.eclipse.core.resources.IContainer;
+
+/**
+ * Optional interface for filters which can tell that no resource within a container passes the
+ * filter, so that the container does not need to be traversed at all.
+ *
+ * @author Lars Ködderitzsch
+ */
+public interface IContainerFilter {
+
+  /**
+   * Determines whether the filter rejects the container and every resource within it.
+   *
+   * @param container
+   *          the container to check
+   * @return true - no resource within the container passes the filter
+   */
+  boolean excludesContainer(IContainer container);
+}
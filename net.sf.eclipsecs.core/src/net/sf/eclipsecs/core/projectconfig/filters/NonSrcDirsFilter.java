@@ -25,6 +25,7 @@ import java.util.List;
 
 import net.sf.eclipsecs.core.util.CheckstyleLog;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
@@ -39,7 +40,7 @@ import org.eclipse.jdt.core.JavaModelException;
  * 
  * @author Lars Ködderitzsch
  */
-public class NonSrcDirsFilter extends AbstractFilter {
+public class NonSrcDirsFilter extends AbstractFilter implements IContainerFilter {
 
   /** the current project. */
   private IProject mCurrentProject;
@@ -74,6 +75,28 @@ public class NonSrcDirsFilter extends AbstractFilter {
     return goesThrough;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean excludesContainer(IContainer container) {
+
+    IProject project = container.getProject();
+    if (mCurrentProject != project) {
+      mCurrentSourcePaths = getSourceDirPaths(project);
+      mCurrentProject = project;
+    }
+
+    // containers within or above a source folder may contain source files
+    IPath containerPath = container.getFullPath();
+    for (IPath sourcePath : mCurrentSourcePaths) {
+      if (sourcePath.isPrefixOf(containerPath) || containerPath.isPrefixOf(sourcePath)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Gets all source paths of a project.
    * 
@@ -35,7 +35,7 @@ import org.eclipse.core.runtime.Path;
  *
  * @author Lars Ködderitzsch
  */
-public class PackageFilter extends AbstractFilter {
+public class PackageFilter extends AbstractFilter implements IContainerFilter {
 
   /**
    * Marker string in the filter data, if present the subpackes of a filtered package are not
@@ -91,6 +91,26 @@ public class PackageFilter extends AbstractFilter {
     return goesThrough;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean excludesContainer(IContainer container) {
+
+    // without sub packages only the files directly within a package are excluded
+    if (!mExcludeSubPackages || mData == null) {
+      return false;
+    }
+
+    IPath projRelativPath = container.getProjectRelativePath();
+    for (String el : mData) {
+      if (!RECURSE_OFF_MARKER.equals(el) && new Path(el).isPrefixOf(projRelativPath)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * {@inheritDoc}
    */
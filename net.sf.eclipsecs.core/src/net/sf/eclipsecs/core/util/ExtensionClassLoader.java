@@ -25,23 +25,76 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.osgi.util.ManifestElement;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
 
 /**
  * Classloader implementation which can load classes and resources from bundles implementing a
  * specific extension point.
+ * <p>
+ * Classes of packages exported by the contributing bundles are looked up in the exporting bundles
+ * first. Other classes, and classes not found in the exporting bundles, are looked up in all
+ * bundles, in the order of contribution. Class names which could not be found are remembered, since
+ * Checkstyle probes many candidate names when it creates modules. The index and the remembered
+ * names are discarded when the contributions to the extension point change.
+ * </p>
  *
  * @author Lars Ködderitzsch
  */
 public class ExtensionClassLoader extends ClassLoader {
 
-  private List<Bundle> mBundles;
+  /** The source bundle defining the extension point. */
+  private final Bundle mSourceBundle;
+
+  /** The id of the extension point. */
+  private final String mExtensionPointId;
+
+  /** The bundles to load from, with the index of their exported packages. */
+  private volatile BundleIndex mIndex;
+
+  /** Counter of the changes to the contributions of the extension point. */
+  private volatile int mGeneration;
+
+  /** The names of the classes which could not be found. */
+  private final Set<String> mMissingClasses = Collections
+          .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /** Listener discarding the index when contributions to the extension point change. */
+  private final IRegistryEventListener mRegistryListener = new IRegistryEventListener() {
+
+    @Override
+    public void added(IExtension[] extensions) {
+      invalidate();
+    }
+
+    @Override
+    public void removed(IExtension[] extensions) {
+      invalidate();
+    }
+
+    @Override
+    public void added(IExtensionPoint[] extensionPoints) {
+      invalidate();
+    }
+
+    @Override
+    public void removed(IExtensionPoint[] extensionPoints) {
+      invalidate();
+    }
+  };
 
   /**
    * Creates the extension classloader.
@@ -52,44 +105,63 @@ public class ExtensionClassLoader extends ClassLoader {
    *          the extension point id
    */
   public ExtensionClassLoader(Bundle sourceBundle, String extensionPointId) {
+    mSourceBundle = sourceBundle;
+    mExtensionPointId = extensionPointId;
 
-    mBundles = new ArrayList<>();
-
-    mBundles.add(sourceBundle);
-
-    IExtensionRegistry pluginRegistry = Platform.getExtensionRegistry();
-    IExtensionPoint extPt = pluginRegistry.getExtensionPoint(extensionPointId);
+    Platform.getExtensionRegistry().addListener(mRegistryListener, extensionPointId);
+  }
 
-    IExtension[] extensions = extPt.getExtensions();
+  /**
+   * Stops listening to changes of the extension registry.
+   */
+  public void dispose() {
+    Platform.getExtensionRegistry().removeListener(mRegistryListener);
+  }
 
-    for (IExtension ext : extensions) {
-      String contributorId = ext.getContributor().getName();
-      Bundle extensionBundle = Platform.getBundle(contributorId);
+  /**
+   * Returns the generation of the contributions to the extension point, which changes whenever
+   * bundles contribute to the extension point or stop contributing. Data derived from the
+   * contributing bundles can be cached as long as the generation is unchanged.
+   *
+   * @return the generation
+   */
+  public int getGeneration() {
+    return mGeneration;
+  }
 
-      if (extensionBundle != null) {
-        mBundles.add(extensionBundle);
-      }
-    }
+  /**
+   * Returns the bundles classes and resources are loaded from.
+   *
+   * @return the bundles, the source bundle first
+   */
+  public List<Bundle> getBundles() {
+    return Collections.unmodifiableList(getIndex().mBundles);
   }
 
   @Override
   public Class<?> loadClass(String name) throws ClassNotFoundException {
 
-    Class<?> cl = null;
+    if (mMissingClasses.contains(name)) {
+      throw new ClassNotFoundException(name);
+    }
 
-    for (Bundle bundle : mBundles) {
+    BundleIndex index = getIndex();
 
-      try {
-        cl = bundle.loadClass(name);
-        if (cl != null) {
-          break;
-        }
-      } catch (ClassNotFoundException e) {
-        // try next
-      }
+    int lastDot = name.lastIndexOf('.');
+    List<Bundle> exporters = lastDot > 0 ? index.mExporters.get(name.substring(0, lastDot))
+            : null;
+
+    Class<?> cl = null;
+    if (exporters != null) {
+      cl = loadClass(name, exporters);
     }
 
+    // split packages or bundles exporting a package without declaring it are not indexed
     if (cl == null) {
+      cl = loadClass(name, index.mBundles);
+    }
+    if (cl == null) {
+      mMissingClasses.add(name);
       throw new ClassNotFoundException(name);
     }
 
@@ -101,7 +173,7 @@ public class ExtensionClassLoader extends ClassLoader {
 
     URL resource = null;
 
-    for (Bundle bundle : mBundles) {
+    for (Bundle bundle : getIndex().mBundles) {
       resource = bundle.getResource(name);
       if (resource != null) {
         break;
@@ -115,7 +187,7 @@ public class ExtensionClassLoader extends ClassLoader {
 
     List<URL> resources = new ArrayList<>();
 
-    for (Bundle bundle : mBundles) {
+    for (Bundle bundle : getIndex().mBundles) {
       Enumeration<URL> bundleResources = bundle.getResources(name);
       if (bundleResources != null) {
         resources.addAll(Collections.list(bundleResources));
@@ -124,4 +196,97 @@ public class ExtensionClassLoader extends ClassLoader {
     return Collections.enumeration(resources);
 
   }
+
+  private static Class<?> loadClass(String name, List<Bundle> bundles) {
+
+    for (Bundle bundle : bundles) {
+      try {
+        Class<?> cl = bundle.loadClass(name);
+        if (cl != null) {
+          return cl;
+        }
+      } catch (ClassNotFoundException e) {
+        // try next
+      }
+    }
+    return null;
+  }
+
+  private BundleIndex getIndex() {
+
+    BundleIndex index = mIndex;
+    if (index == null) {
+      index = new BundleIndex(mSourceBundle, mExtensionPointId);
+      mIndex = index;
+    }
+    return index;
+  }
+
+  private synchronized void invalidate() {
+    mIndex = null;
+    mMissingClasses.clear();
+    mGeneration++;
+  }
+
+  /**
+   * The bundles contributing to the extension point, with the index of their exported packages.
+   */
+  private static class BundleIndex {
+
+    /** The bundles, the source bundle first. */
+    private final List<Bundle> mBundles = new ArrayList<>();
+
+    /** The bundles exporting a package, by package name. */
+    private final Map<String, List<Bundle>> mExporters = new HashMap<>();
+
+    BundleIndex(Bundle sourceBundle, String extensionPointId) {
+
+      mBundles.add(sourceBundle);
+
+      IExtensionRegistry pluginRegistry = Platform.getExtensionRegistry();
+      IExtensionPoint extPt = pluginRegistry.getExtensionPoint(extensionPointId);
+
+      IExtension[] extensions = extPt.getExtensions();
+
+      for (IExtension ext : extensions) {
+        String contributorId = ext.getContributor().getName();
+        Bundle extensionBundle = Platform.getBundle(contributorId);
+
+        if (extensionBundle != null && !mBundles.contains(extensionBundle)) {
+          mBundles.add(extensionBundle);
+        }
+      }
+
+      for (Bundle bundle : mBundles) {
+        indexExportedPackages(bundle);
+      }
+    }
+
+    private void indexExportedPackages(Bundle bundle) {
+
+      String exportHeader = bundle.getHeaders("").get(Constants.EXPORT_PACKAGE); //$NON-NLS-1$
+      if (exportHeader == null) {
+        return;
+      }
+
+      try {
+        ManifestElement[] elements = ManifestElement.parseHeader(Constants.EXPORT_PACKAGE,
+                exportHeader);
+        for (ManifestElement element : elements) {
+          for (String packageName : element.getValueComponents()) {
+
+            List<Bundle> exporters = mExporters.get(packageName);
+            if (exporters == null) {
+              exporters = new ArrayList<>();
+              mExporters.put(packageName, exporters);
+            }
+            exporters.add(bundle);
+          }
+        }
+      } catch (BundleException e) {
+        // unparsable header, classes of the bundle are looked up in all bundles
+        CheckstyleLog.log(e);
+      }
+    }
+  }
 }
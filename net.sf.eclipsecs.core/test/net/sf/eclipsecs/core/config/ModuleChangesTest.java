@@ -0,0 +1,164 @@
+package net.sf.eclipsecs.core.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.eclipsecs.core.config.meta.RuleMetadata;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModuleChangesTest {
+
+  private static final RuleMetadata LINE_LENGTH = new RuleMetadata("Line Length", "LineLength",
+          XMLTags.TREEWALKER_MODULE, Severity.warning, false, true, true, false, null);
+
+  private static final RuleMetadata MAGIC_NUMBER = new RuleMetadata("Magic Number", "MagicNumber",
+          XMLTags.TREEWALKER_MODULE, Severity.inherit, false, true, true, false, null);
+
+  private static final RuleMetadata SUPPRESSION_FILTER = new RuleMetadata("Suppression Filter",
+          "SuppressionCommentFilter", XMLTags.TREEWALKER_MODULE, null, false, false, true, false,
+          null);
+
+  @Test
+  public void testUnchanged() {
+    ModuleChanges changes = ModuleChanges.compare(
+            modules(module(LINE_LENGTH, Severity.error, "max", "100")),
+            modules(module(LINE_LENGTH, Severity.error, "max", "100")));
+
+    Assert.assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  public void testRemovedModule() {
+    ModuleChanges changes = ModuleChanges.compare(
+            modules(module(LINE_LENGTH, Severity.error), module(MAGIC_NUMBER, Severity.warning)),
+            modules(module(MAGIC_NUMBER, Severity.warning)));
+
+    Assert.assertFalse(changes.isFullAuditRequired());
+    Assert.assertEquals(Collections.singleton("LineLength"), changes.getRemovedModules());
+    Assert.assertTrue(changes.getModulesToAudit().isEmpty());
+    Assert.assertTrue(changes.getSeverityChanges().isEmpty());
+  }
+
+  @Test
+  public void testIgnoredModule() {
+    ModuleChanges changes = ModuleChanges.compare(modules(module(LINE_LENGTH, Severity.error)),
+            modules(module(LINE_LENGTH, Severity.ignore)));
+
+    Assert.assertFalse(changes.isFullAuditRequired());
+    Assert.assertEquals(Collections.singleton("LineLength"), changes.getRemovedModules());
+    Assert.assertTrue(changes.getModulesToAudit().isEmpty());
+  }
+
+  @Test
+  public void testAddedModule() {
+    ModuleChanges changes = ModuleChanges.compare(modules(module(MAGIC_NUMBER, Severity.error)),
+            modules(module(MAGIC_NUMBER, Severity.error), module(LINE_LENGTH, Severity.error)));
+
+    Assert.assertFalse(changes.isFullAuditRequired());
+    Assert.assertEquals(Collections.singleton("LineLength"), changes.getModulesToAudit());
+    Assert.assertTrue(changes.getRemovedModules().isEmpty());
+  }
+
+  @Test
+  public void testSeverityOnlyChange() {
+    ModuleChanges changes = ModuleChanges.compare(
+            modules(module(LINE_LENGTH, Severity.error, "max", "100")),
+            modules(module(LINE_LENGTH, Severity.info, "max", "100")));
+
+    Assert.assertFalse(changes.isFullAuditRequired());
+    Assert.assertEquals(Collections.singletonMap("LineLength", Severity.info),
+            changes.getSeverityChanges());
+    Assert.assertTrue(changes.getModulesToAudit().isEmpty());
+    Assert.assertTrue(changes.getRemovedModules().isEmpty());
+  }
+
+  @Test
+  public void testInheritedSeverityChange() {
+    ModuleChanges changes = ModuleChanges.compare(modules(module(MAGIC_NUMBER, Severity.inherit)),
+            modules(module(MAGIC_NUMBER, Severity.error)));
+
+    Assert.assertFalse(changes.isFullAuditRequired());
+    Assert.assertTrue(changes.getSeverityChanges().isEmpty());
+    Assert.assertEquals(Collections.singleton("MagicNumber"), changes.getModulesToAudit());
+  }
+
+  @Test
+  public void testPreviouslyIgnoredModule() {
+    ModuleChanges changes = ModuleChanges.compare(modules(module(LINE_LENGTH, Severity.ignore)),
+            modules(module(LINE_LENGTH, Severity.error)));
+
+    Assert.assertTrue(changes.getSeverityChanges().isEmpty());
+    Assert.assertEquals(Collections.singleton("LineLength"), changes.getModulesToAudit());
+  }
+
+  @Test
+  public void testPropertyChange() {
+    ModuleChanges changes = ModuleChanges.compare(
+            modules(module(LINE_LENGTH, Severity.error, "max", "100")),
+            modules(module(LINE_LENGTH, Severity.error, "max", "120")));
+
+    Assert.assertFalse(changes.isFullAuditRequired());
+    Assert.assertEquals(Collections.singleton("LineLength"), changes.getModulesToAudit());
+    Assert.assertTrue(changes.getSeverityChanges().isEmpty());
+  }
+
+  @Test
+  public void testPropertyAndSeverityChange() {
+    ModuleChanges changes = ModuleChanges.compare(
+            modules(module(LINE_LENGTH, Severity.error, "max", "100")),
+            modules(module(LINE_LENGTH, Severity.info, "max", "120")));
+
+    Assert.assertTrue(changes.getSeverityChanges().isEmpty());
+    Assert.assertEquals(Collections.singleton("LineLength"), changes.getModulesToAudit());
+  }
+
+  @Test
+  public void testModuleInstancesGroupedByName() {
+    ModuleChanges changes = ModuleChanges.compare(
+            modules(module(LINE_LENGTH, Severity.error, "max", "100"),
+                    module(LINE_LENGTH, Severity.error, "max", "120")),
+            modules(module(LINE_LENGTH, Severity.info, "max", "100"),
+                    module(LINE_LENGTH, Severity.info, "max", "120")));
+
+    // severities of several instances cannot be updated in place
+    Assert.assertTrue(changes.getSeverityChanges().isEmpty());
+    Assert.assertEquals(Collections.singleton("LineLength"), changes.getModulesToAudit());
+  }
+
+  @Test
+  public void testFilterChangeRequiresFullAudit() {
+    ModuleChanges changes = ModuleChanges.compare(
+            modules(module(LINE_LENGTH, Severity.error),
+                    module(SUPPRESSION_FILTER, null, "offCommentFormat", "OFF")),
+            modules(module(LINE_LENGTH, Severity.error),
+                    module(SUPPRESSION_FILTER, null, "offCommentFormat", "CHECKSTYLE:OFF")));
+
+    Assert.assertTrue(changes.isFullAuditRequired());
+  }
+
+  @Test
+  public void testUnknownModuleRequiresFullAudit() {
+    ModuleChanges changes = ModuleChanges.compare(modules(module(LINE_LENGTH, Severity.error)),
+            modules(module(LINE_LENGTH, Severity.error), new Module("com.example.CustomCheck")));
+
+    Assert.assertTrue(changes.isFullAuditRequired());
+  }
+
+  private static List<Module> modules(Module... modules) {
+    return Arrays.asList(modules);
+  }
+
+  private static Module module(RuleMetadata metadata, Severity severity, String... properties) {
+    Module module = new Module(metadata, false);
+    if (severity != null) {
+      module.setSeverity(severity);
+    }
+    for (int i = 0; i < properties.length; i += 2) {
+      module.getProperties().add(new ConfigProperty(properties[i], properties[i + 1]));
+    }
+    return module;
+  }
+}
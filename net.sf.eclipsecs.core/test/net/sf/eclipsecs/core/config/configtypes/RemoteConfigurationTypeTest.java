@@ -0,0 +1,163 @@
+package net.sf.eclipsecs.core.config.configtypes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RemoteConfigurationTypeTest {
+
+  private static final String LAST_MODIFIED = "Tue, 15 Nov 1994 12:45:26 GMT";
+
+  private HttpServer mServer;
+
+  private ConfigHandler mHandler;
+
+  @Before
+  public void setUp() throws IOException {
+    mHandler = new ConfigHandler();
+    mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    mServer.createContext("/", mHandler);
+    mServer.start();
+  }
+
+  @After
+  public void tearDown() {
+    mServer.stop(0);
+  }
+
+  @Test
+  public void testFreshContentNeedsNoRequest() throws Exception {
+    mHandler.mCacheControl = "max-age=3600";
+
+    URL url = getUrl("/fresh.xml");
+    Assert.assertEquals("v1", fetch(url));
+    Assert.assertEquals("v1", fetch(url));
+    Assert.assertEquals("v1", fetch(url));
+
+    Assert.assertEquals(1, mHandler.mRequests.get());
+  }
+
+  @Test
+  public void testRevalidatesWithETag() throws Exception {
+    mHandler.mCacheControl = "no-cache";
+
+    URL url = getUrl("/etag.xml");
+    Assert.assertEquals("v1", fetch(url));
+    Assert.assertEquals("v1", fetch(url));
+
+    Assert.assertEquals(2, mHandler.mRequests.get());
+    Assert.assertEquals(1, mHandler.mNotModified.get());
+  }
+
+  @Test
+  public void testRevalidatesWithLastModified() throws Exception {
+    mHandler.mUseETag = false;
+
+    URL url = getUrl("/lastmodified.xml");
+    Assert.assertEquals("v1", fetch(url));
+    Assert.assertEquals("v1", fetch(url));
+
+    Assert.assertEquals(2, mHandler.mRequests.get());
+    Assert.assertEquals(1, mHandler.mNotModified.get());
+  }
+
+  @Test
+  public void testChangedContentIsFetchedAgain() throws Exception {
+    mHandler.mCacheControl = "no-cache";
+
+    URL url = getUrl("/changed.xml");
+    Assert.assertEquals("v1", fetch(url));
+
+    mHandler.mContent = "v2";
+    Assert.assertEquals("v2", fetch(url));
+    Assert.assertEquals("v2", fetch(url));
+
+    Assert.assertEquals(3, mHandler.mRequests.get());
+    Assert.assertEquals(1, mHandler.mNotModified.get());
+  }
+
+  @Test
+  public void testNoStoreIsNotCached() throws Exception {
+    mHandler.mCacheControl = "no-store";
+
+    URL url = getUrl("/nostore.xml");
+    Assert.assertEquals("v1", fetch(url));
+    Assert.assertEquals("v1", fetch(url));
+
+    Assert.assertEquals(2, mHandler.mRequests.get());
+    Assert.assertEquals(0, mHandler.mNotModified.get());
+  }
+
+  private URL getUrl(String path) throws IOException {
+    // the response cache is static, make the URLs unique per test run
+    return new URL("http", "localhost", mServer.getAddress().getPort(),
+            path + "?" + System.nanoTime());
+  }
+
+  private static String fetch(URL url) throws IOException {
+    return new String(new RemoteConfigurationType().getBytesFromURLConnection(url.openConnection()),
+            UTF_8);
+  }
+
+  /**
+   * Stand-in for a web server hosting a configuration file.
+   */
+  private static class ConfigHandler implements HttpHandler {
+
+    private final AtomicInteger mRequests = new AtomicInteger();
+
+    private final AtomicInteger mNotModified = new AtomicInteger();
+
+    private volatile String mContent = "v1";
+
+    private volatile String mCacheControl;
+
+    private volatile boolean mUseETag = true;
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      mRequests.incrementAndGet();
+
+      String etag = "\"" + mContent + "\"";
+      if (mUseETag) {
+        exchange.getResponseHeaders().add("ETag", etag);
+      } else {
+        exchange.getResponseHeaders().add("Last-Modified",
+                "v1".equals(mContent) ? LAST_MODIFIED : "Wed, 16 Nov 1994 12:45:26 GMT");
+      }
+      if (mCacheControl != null) {
+        exchange.getResponseHeaders().add("Cache-Control", mCacheControl);
+      }
+
+      String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+      String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+      if (mUseETag && etag.equals(ifNoneMatch)
+              || !mUseETag && LAST_MODIFIED.equals(ifModifiedSince) && "v1".equals(mContent)) {
+        mNotModified.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+
+      byte[] body = mContent.getBytes(UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package net.sf.eclipsecs.core.jobs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+
+import net.sf.eclipsecs.core.builder.CheckstyleMarker;
+import net.sf.eclipsecs.core.nature.CheckstyleNature;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Schedules the build jobs in a running workspace, the test is skipped outside of the platform.
+ */
+public class BuildProjectJobTest {
+
+  private static final String SOURCE = "public class Foo {\n\tpublic int x;\n}\n";
+
+  private IProject mProject1;
+
+  private IProject mProject2;
+
+  private boolean mAutoBuilding;
+
+  @Before
+  public void setUp() throws CoreException {
+    Assume.assumeTrue(Platform.isRunning());
+
+    // the jobs should do the auditing, not the auto build
+    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    IWorkspaceDescription description = workspace.getDescription();
+    mAutoBuilding = description.isAutoBuilding();
+    description.setAutoBuilding(false);
+    workspace.setDescription(description);
+
+    mProject1 = createProject("BuildProjectJobTest1");
+    mProject2 = createProject("BuildProjectJobTest2");
+  }
+
+  @After
+  public void tearDown() throws CoreException {
+    if (!Platform.isRunning()) {
+      return;
+    }
+
+    mProject1.delete(true, true, null);
+    mProject2.delete(true, true, null);
+
+    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    IWorkspaceDescription description = workspace.getDescription();
+    description.setAutoBuilding(mAutoBuilding);
+    workspace.setDescription(description);
+  }
+
+  @Test
+  public void testBuildProjectJob() throws Exception {
+    BuildProjectJob job = new BuildProjectJob(mProject1, IncrementalProjectBuilder.FULL_BUILD);
+    job.schedule();
+    job.join();
+
+    Assert.assertEquals(job.getResult().toString(), IStatus.OK, job.getResult().getSeverity());
+    Assert.assertTrue(getMarkerCount(mProject1) > 0);
+    Assert.assertEquals(0, getMarkerCount(mProject2));
+  }
+
+  @Test
+  public void testBuildProjectJobOfSeveralProjects() throws Exception {
+    BuildProjectJob job = new BuildProjectJob(new IProject[] { mProject1, mProject2 },
+            IncrementalProjectBuilder.FULL_BUILD);
+    job.schedule();
+    job.join();
+
+    Assert.assertEquals(job.getResult().toString(), IStatus.OK, job.getResult().getSeverity());
+    Assert.assertTrue(getMarkerCount(mProject1) > 0);
+    Assert.assertTrue(getMarkerCount(mProject2) > 0);
+  }
+
+  @Test
+  public void testBuildProjectJobGroup() throws Exception {
+    BuildProjectJobGroup group = new BuildProjectJobGroup(
+            new IProject[] { mProject1, mProject2 }, IncrementalProjectBuilder.FULL_BUILD);
+    group.schedule();
+    Job.getJobManager().join(group, null);
+
+    Assert.assertTrue(getMarkerCount(mProject1) > 0);
+    Assert.assertTrue(getMarkerCount(mProject2) > 0);
+  }
+
+  private static IProject createProject(String name) throws CoreException {
+    IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+    if (project.exists()) {
+      project.delete(true, true, null);
+    }
+    project.create(null);
+    project.open(null);
+
+    IProjectDescription description = project.getDescription();
+    description.setNatureIds(new String[] { CheckstyleNature.NATURE_ID });
+    project.setDescription(description, null);
+
+    IFile file = project.getFile("Foo.java");
+    file.create(new ByteArrayInputStream(SOURCE.getBytes(UTF_8)), true, null);
+    return project;
+  }
+
+  private static int getMarkerCount(IProject project) throws CoreException {
+    return project.findMarkers(CheckstyleMarker.MARKER_ID, true, IResource.DEPTH_INFINITE).length;
+  }
+}
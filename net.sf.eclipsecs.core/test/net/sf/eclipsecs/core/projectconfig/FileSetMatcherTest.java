@@ -0,0 +1,158 @@
+package net.sf.eclipsecs.core.projectconfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.eclipsecs.core.util.CheckstylePluginException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FileSetMatcherTest {
+
+  /** Prefix marking an exclude pattern in the pattern lists below. */
+  private static final String EXCLUDE = "!";
+
+  private static final String[] PATHS = { "", "Foo.java", "src/Foo.java",
+    "src/main/java/Foo.java", "src/main/java/foo/Bar.java", "src/main/resources/x.xml",
+    "src/test/java/FooTest.java", "test/Foo.java", "Foo.JAVA", "src/Foo.java.bak", ".project",
+    "lib/a.jar", "lib/sub/b.jar", "aa/Foo.java", "src/Foo.java\nbar", "src\nmain/Foo.java",
+    "a\r\nb.java", "bar\nsrc/Foo.java", " src/Foo.java", "src/Foo.java\u0085", "src.main/X",
+    "src/main2/Y.java", "x/src/main/Z.java", "Qsrc/E.java", "1/Foo.java" };
+
+  private static final String[][] PATTERN_LISTS = {
+    {},
+    { ".*\\.java$" },
+    { "." },
+    { "^src/", EXCLUDE + "^src/main/" },
+    { "^src/main/java/Foo\\.java$", "Foo\\.java$", EXCLUDE + "\\.java" },
+    { ".*", EXCLUDE + "^src/.*", "^src/main/.*$" },
+    { "^bar", "java$", EXCLUDE + "(?m)^bar$", "^src" },
+    { "\\.java\\z", EXCLUDE + "\\Asrc" },
+    { "(src|test)/.*\\.java$", EXCLUDE + "(a)\\1", "src/(?:main)/" },
+    { "\\Qsrc/\\E", EXCLUDE + "\\Q.java\\E$", "\\Qsrc.main\\E" },
+    { "(?i)\\.JAVA$", EXCLUDE + "(?i)foo", "(?s)src.main" },
+    { "src/.*/Foo", "[a-z]+\\.xml$", EXCLUDE + "lib/.+\\.jar", "lib/sub/", "\\d" },
+    { "\\.project$", "\\w+/\\w+\\.java", EXCLUDE + "^\\w/" },
+    { "src.main", EXCLUDE + "src\\.main", "^src/main2/Y\\.java$", "main/" } };
+
+  @Test
+  public void testMatchesLikePatternLoop() throws CheckstylePluginException {
+    for (String[] patternList : PATTERN_LISTS) {
+      assertEquivalent(patterns(patternList));
+    }
+  }
+
+  @Test
+  public void testMatchesLikePatternLoopForAllPatterns() throws CheckstylePluginException {
+    List<String> all = new ArrayList<>();
+    for (String[] patternList : PATTERN_LISTS) {
+      for (String pattern : patternList) {
+        all.add(pattern);
+      }
+    }
+    assertEquivalent(patterns(all.toArray(new String[all.size()])));
+  }
+
+  @Test
+  public void testFileSetRecompilesOnPatternListChange() throws CheckstylePluginException {
+    FileSet fileSet = new FileSet();
+    fileSet.getFileMatchPatterns().add(new FileMatchPattern(".*\\.java$"));
+    Assert.assertTrue(fileSet.getMatcher().matches("src/Foo.java"));
+
+    fileSet.getFileMatchPatterns().add(exclude("^src/"));
+    Assert.assertFalse(fileSet.getMatcher().matches("src/Foo.java"));
+
+    fileSet.getFileMatchPatterns().remove(1);
+    Assert.assertTrue(fileSet.getMatcher().matches("src/Foo.java"));
+
+    fileSet.getFileMatchPatterns().set(0, new FileMatchPattern("\\.xml$"));
+    Assert.assertFalse(fileSet.getMatcher().matches("src/Foo.java"));
+
+    fileSet.getFileMatchPatterns().clear();
+    Assert.assertFalse(fileSet.getMatcher().matches("x.xml"));
+
+    List<FileMatchPattern> patterns = new ArrayList<>();
+    patterns.add(new FileMatchPattern("."));
+    fileSet.setFileMatchPatterns(patterns);
+    Assert.assertTrue(fileSet.getMatcher().matches("x.xml"));
+  }
+
+  @Test
+  public void testFileSetRecompilesOnPatternChange() throws CheckstylePluginException {
+    FileSet fileSet = new FileSet();
+    FileMatchPattern pattern = new FileMatchPattern(".*\\.java$");
+    fileSet.getFileMatchPatterns().add(pattern);
+    Assert.assertTrue(fileSet.getMatcher().matches("src/Foo.java"));
+
+    pattern.setIsIncludePattern(false);
+    Assert.assertFalse(fileSet.getMatcher().matches("src/Foo.java"));
+
+    pattern.setIsIncludePattern(true);
+    pattern.setMatchPattern("\\.xml$");
+    Assert.assertFalse(fileSet.getMatcher().matches("src/Foo.java"));
+    Assert.assertTrue(fileSet.getMatcher().matches("x.xml"));
+  }
+
+  @Test
+  public void testMatcherIsReused() throws CheckstylePluginException {
+    FileSet fileSet = new FileSet();
+    fileSet.getFileMatchPatterns().add(new FileMatchPattern("."));
+    Assert.assertSame(fileSet.getMatcher(), fileSet.getMatcher());
+  }
+
+  @Test
+  public void testCloneHasOwnMatcher() throws CheckstylePluginException {
+    FileSet fileSet = new FileSet();
+    fileSet.getFileMatchPatterns().add(new FileMatchPattern(".*\\.java$"));
+    fileSet.getMatcher();
+
+    FileSet clone = fileSet.clone();
+    clone.getFileMatchPatterns().add(exclude("^src/"));
+    Assert.assertFalse(clone.getMatcher().matches("src/Foo.java"));
+    Assert.assertTrue(fileSet.getMatcher().matches("src/Foo.java"));
+    Assert.assertEquals(1, fileSet.getFileMatchPatterns().size());
+  }
+
+  private static void assertEquivalent(List<FileMatchPattern> patterns) {
+    FileSetMatcher matcher = FileSetMatcher.compile(patterns);
+    FileSetMatcher.FolderMemo memo = matcher.newFolderMemo();
+
+    for (String path : PATHS) {
+      boolean expected = matchesByLoop(patterns, path);
+      String message = patterns + " on " + path;
+      Assert.assertEquals(message, expected, matcher.matches(path));
+      Assert.assertEquals(message, expected, memo.matches(path));
+    }
+  }
+
+  /**
+   * The evaluation of the patterns before they have been compiled: the last matching pattern
+   * decides.
+   */
+  private static boolean matchesByLoop(List<FileMatchPattern> patterns, String path) {
+    boolean result = false;
+    for (FileMatchPattern pattern : patterns) {
+      if (pattern.isMatch(path)) {
+        result = pattern.isIncludePattern();
+      }
+    }
+    return result;
+  }
+
+  private static List<FileMatchPattern> patterns(String... regexes)
+          throws CheckstylePluginException {
+    List<FileMatchPattern> patterns = new ArrayList<>();
+    for (String regex : regexes) {
+      patterns.add(regex.startsWith(EXCLUDE) ? exclude(regex.substring(EXCLUDE.length()))
+              : new FileMatchPattern(regex));
+    }
+    return patterns;
+  }
+
+  private static FileMatchPattern exclude(String regex) throws CheckstylePluginException {
+    FileMatchPattern pattern = new FileMatchPattern(regex);
+    pattern.setIsIncludePattern(false);
+    return pattern;
+  }
+}
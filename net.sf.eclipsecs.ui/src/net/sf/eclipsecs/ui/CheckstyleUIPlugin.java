@@ -24,9 +24,12 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Locale;
 
+import net.sf.eclipsecs.core.jobs.WarmUpCheckersJob;
 import net.sf.eclipsecs.core.util.CheckstyleLog;
 import net.sf.eclipsecs.core.util.ExtensionClassLoader;
+import net.sf.eclipsecs.ui.editor.DocumentAuditPartListener;
 import net.sf.eclipsecs.ui.properties.filter.CheckFileOnOpenPartListener;
+import net.sf.eclipsecs.ui.stats.data.MarkerStatsAggregator;
 
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -62,7 +65,7 @@ public class CheckstyleUIPlugin extends AbstractUIPlugin {
 
   private static Boolean sIsE3;
 
-  private ClassLoader mQuickfixExtensionClassLoader;
+  private ExtensionClassLoader mQuickfixExtensionClassLoader;
 
   /**
    * The constructor.
@@ -112,13 +115,24 @@ public class CheckstyleUIPlugin extends AbstractUIPlugin {
             // register the same listener twice accidently
             window.getPartService().removePartListener(mPartListener);
             window.getPartService().addPartListener(mPartListener);
+
+            // follow the active editor for the check of unsaved changes
+            window.getPartService().removePartListener(mDocumentAuditListener);
+            window.getPartService().addPartListener(mDocumentAuditListener);
           }
         }
 
+        IWorkbenchWindow activeWindow = workbench.getActiveWorkbenchWindow();
+        if (activeWindow != null && activeWindow.getActivePage() != null) {
+          mDocumentAuditListener.editorActivated(activeWindow.getActivePage().getActiveEditor());
+        }
+
         workbench.addWindowListener(mWindowListener);
       }
     });
 
+    // create the checkers before the first audit needs them
+    new WarmUpCheckersJob().schedule(WarmUpCheckersJob.STARTUP_DELAY);
   }
 
   @Override
@@ -126,6 +140,8 @@ public class CheckstyleUIPlugin extends AbstractUIPlugin {
 
     // free cached images
     CheckstyleUIPluginImages.clearCachedImages();
+    mQuickfixExtensionClassLoader.dispose();
+    MarkerStatsAggregator.dispose();
     super.stop(context);
   }
 
@@ -255,11 +271,14 @@ public class CheckstyleUIPlugin extends AbstractUIPlugin {
 
   private final CheckFileOnOpenPartListener mPartListener = new CheckFileOnOpenPartListener();
 
+  private final DocumentAuditPartListener mDocumentAuditListener = new DocumentAuditPartListener();
+
   private final IWindowListener mWindowListener = new IWindowListener() {
 
     @Override
     public void windowOpened(IWorkbenchWindow window) {
       window.getPartService().addPartListener(mPartListener);
+      window.getPartService().addPartListener(mDocumentAuditListener);
     }
 
     @Override
@@ -269,7 +288,7 @@ public class CheckstyleUIPlugin extends AbstractUIPlugin {
     @Override
     public void windowClosed(IWorkbenchWindow window) {
       window.getPartService().removePartListener(mPartListener);
-
+      window.getPartService().removePartListener(mDocumentAuditListener);
     }
 
     @Override
@@ -87,6 +87,12 @@ public class CheckstyleUIPluginPrefs extends AbstractPreferenceInitializer {
    */
   public static final String PREF_STATS_SHOW_ALL_CATEGORIES = "show_all_categories"; //$NON-NLS-1$
 
+  /**
+   * Preference name indicating if the unsaved changes of the active editor
+   * should be checked while typing.
+   */
+  public static final String PREF_AUDIT_AS_YOU_TYPE = "audit.as.you.type"; //$NON-NLS-1$
+
   /**
    * {@inheritDoc}
    */
@@ -102,6 +108,7 @@ public class CheckstyleUIPluginPrefs extends AbstractPreferenceInitializer {
     prefs.putBoolean(PREF_OPEN_MODULE_EDITOR, true);
     prefs.putInt(PREF_DUPLICATED_CODE_MIN_LINES, DUPLICATED_CODE_MIN_LINES);
     prefs.putBoolean(PREF_STATS_SHOW_ALL_CATEGORIES, false);
+    prefs.putBoolean(PREF_AUDIT_AS_YOU_TYPE, true);
 
     try {
       prefs.flush();
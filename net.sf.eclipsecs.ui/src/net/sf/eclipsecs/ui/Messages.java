@@ -132,6 +132,14 @@ public final class Messages extends NLS {
 
   public static String CheckConfigurationPropertiesDialog_CopyOfAddition;
 
+  public static String CheckstylePreferencePage_lblAuditAsYouType;
+
+  public static String CheckstylePreferencePage_lblAuditInstrumentation;
+
+  public static String CheckstylePreferencePage_lblAuditResultCache;
+
+  public static String CheckstylePreferencePage_lblAuditThreads;
+
   public static String CheckstylePreferencePage_lblDescription;
 
   public static String CheckstylePreferencePage_lblDisableClassloader;
@@ -232,6 +240,8 @@ public final class Messages extends NLS {
 
   public static String DeactivateProjectsPrintAction_msgDeactivateSelectedProjects;
 
+  public static String DocumentAuditJob_title;
+
   public static String DuplicatedCodeView_openSourceAction;
 
   public static String DuplicatedCodeView_openSourceActionTooltip;
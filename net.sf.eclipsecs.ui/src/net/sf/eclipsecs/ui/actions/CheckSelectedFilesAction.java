@@ -24,7 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import net.sf.eclipsecs.core.jobs.RunCheckstyleOnFilesJob;
+import net.sf.eclipsecs.core.jobs.AuditScheduler;
 import net.sf.eclipsecs.ui.CheckstyleUIPlugin;
 
 import org.eclipse.core.resources.IContainer;
@@ -79,9 +79,7 @@ public class CheckSelectedFilesAction implements IObjectActionDelegate {
     try {
       addFileResources(mSelection.toList(), filesToCheck);
 
-      RunCheckstyleOnFilesJob job = new RunCheckstyleOnFilesJob(filesToCheck);
-      job.setRule(job);
-      job.schedule();
+      AuditScheduler.auditFiles(filesToCheck, AuditScheduler.Priority.FILES);
     } catch (CoreException e) {
       CheckstyleUIPlugin.errorDialog(mPart.getSite().getShell(), e, true);
     }
@@ -0,0 +1,322 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.ui.editor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.eclipsecs.core.builder.CheckstyleBuilder;
+import net.sf.eclipsecs.core.builder.CheckstyleMarker;
+import net.sf.eclipsecs.core.util.CheckstyleLog;
+import net.sf.eclipsecs.ui.CheckstyleUIPluginPrefs;
+import net.sf.eclipsecs.ui.Messages;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelExtension;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.texteditor.ITextEditor;
+import org.eclipse.ui.texteditor.MarkerAnnotation;
+
+/**
+ * Job auditing the unsaved content of an editor. The content is passed to the checker directly and
+ * the results are shown as transient annotations, which take the place of the Checkstyle marker
+ * annotations until the editor is saved and the markers are updated by the builder.
+ *
+ * @author Lars Ködderitzsch
+ */
+public class DocumentAuditJob extends Job {
+
+  /** Annotation type for errors, as declared in the plugin.xml. */
+  private static final String TYPE_ERROR = "net.sf.eclipsecs.error"; //$NON-NLS-1$
+
+  /** Annotation type for warnings, as declared in the plugin.xml. */
+  private static final String TYPE_WARNING = "net.sf.eclipsecs.warning"; //$NON-NLS-1$
+
+  /** Annotation type for infos, as declared in the plugin.xml. */
+  private static final String TYPE_INFO = "net.sf.eclipsecs.info"; //$NON-NLS-1$
+
+  /** The editor whose content is audited. */
+  private final ITextEditor mEditor;
+
+  /** The document of the editor. */
+  private final IDocument mDocument;
+
+  /** The file edited by the editor. */
+  private final IFile mFile;
+
+  /** The message of the last logged failure, so that a broken configuration is logged once. */
+  private String mLastFailure;
+
+  /** Flags if the editor is no longer followed, so the results must not be shown anymore. */
+  private volatile boolean mOrphaned;
+
+  /**
+   * Creates the job.
+   *
+   * @param editor
+   *          the editor
+   * @param document
+   *          the document of the editor
+   * @param file
+   *          the file edited by the editor
+   */
+  public DocumentAuditJob(ITextEditor editor, IDocument document, IFile file) {
+    super(Messages.DocumentAuditJob_title);
+    mEditor = editor;
+    mDocument = document;
+    mFile = file;
+    setSystem(true);
+    setPriority(Job.SHORT);
+  }
+
+  /**
+   * Cancels the job for good, because its editor is no longer followed. Results of a currently
+   * running audit are dropped. Must be called from the ui thread, before the annotations are
+   * removed from the editor.
+   */
+  public void orphan() {
+    mOrphaned = true;
+    cancel();
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+
+    if (!CheckstyleUIPluginPrefs.getBoolean(CheckstyleUIPluginPrefs.PREF_AUDIT_AS_YOU_TYPE)) {
+      return Status.OK_STATUS;
+    }
+
+    final Display display = Display.getDefault();
+    if (display.isDisposed()) {
+      return Status.OK_STATUS;
+    }
+
+    // take a snapshot of the content, the document must only be accessed from the ui thread
+    final String[] content = new String[1];
+    final long[] stamp = new long[1];
+    display.syncExec(new Runnable() {
+      @Override
+      public void run() {
+        if (!mOrphaned && mEditor.isDirty()) {
+          content[0] = mDocument.get();
+          stamp[0] = getModificationStamp(mDocument);
+        }
+      }
+    });
+
+    if (content[0] == null || monitor.isCanceled()) {
+      return Status.CANCEL_STATUS;
+    }
+
+    final List<Map<String, Object>> markers;
+    try {
+      markers = CheckstyleBuilder.auditDocument(mFile, content[0], monitor);
+      mLastFailure = null;
+    } catch (OperationCanceledException e) {
+      return Status.CANCEL_STATUS;
+    } catch (CoreException e) {
+      if (!String.valueOf(e.getMessage()).equals(mLastFailure)) {
+        mLastFailure = String.valueOf(e.getMessage());
+        CheckstyleLog.log(e);
+      }
+      return Status.OK_STATUS;
+    }
+
+    if (monitor.isCanceled()) {
+      return Status.CANCEL_STATUS;
+    }
+
+    display.asyncExec(new Runnable() {
+      @Override
+      public void run() {
+
+        // results of outdated content are dropped, the next audit is already scheduled
+        if (!mOrphaned && mEditor.isDirty() && getModificationStamp(mDocument) == stamp[0]) {
+          showAnnotations(mEditor, mDocument, markers);
+        }
+      }
+    });
+    return Status.OK_STATUS;
+  }
+
+  /**
+   * Removes the annotations of the last audit from an editor and shows the Checkstyle marker
+   * annotations again. Must be called from the ui thread.
+   *
+   * @param editor
+   *          the editor
+   */
+  public static void removeAnnotations(ITextEditor editor) {
+
+    IAnnotationModel model = getAnnotationModel(editor);
+    if (model != null) {
+      replaceAnnotations(model, new HashMap<Annotation, Position>(), false);
+    }
+  }
+
+  private static void showAnnotations(ITextEditor editor, IDocument document,
+          List<Map<String, Object>> markers) {
+
+    IAnnotationModel model = getAnnotationModel(editor);
+    if (model == null) {
+      return;
+    }
+
+    Map<Annotation, Position> annotations = new HashMap<>();
+    for (Map<String, Object> markerAttributes : markers) {
+
+      Position position = getPosition(document, markerAttributes);
+      if (position != null) {
+        annotations.put(new DocumentAuditAnnotation(getAnnotationType(markerAttributes),
+                (String) markerAttributes.get(IMarker.MESSAGE)), position);
+      }
+    }
+    replaceAnnotations(model, annotations, true);
+  }
+
+  /**
+   * Replaces the annotations of the last audit, and hides or shows the Checkstyle marker
+   * annotations, which are outdated as long as the audit results are shown.
+   */
+  private static void replaceAnnotations(IAnnotationModel model,
+          Map<Annotation, Position> annotations, boolean hideMarkerAnnotations) {
+
+    List<Annotation> oldAnnotations = new ArrayList<>();
+    boolean markerAnnotationsChanged = false;
+    Iterator<?> it = model.getAnnotationIterator();
+    while (it.hasNext()) {
+      Annotation annotation = (Annotation) it.next();
+      if (annotation instanceof DocumentAuditAnnotation) {
+        oldAnnotations.add(annotation);
+      } else if (annotation instanceof MarkerAnnotation) {
+        IMarker marker = ((MarkerAnnotation) annotation).getMarker();
+        try {
+          if (annotation.isMarkedDeleted() != hideMarkerAnnotations && marker.exists()
+                  && marker.isSubtypeOf(CheckstyleMarker.MARKER_ID)) {
+            annotation.markDeleted(hideMarkerAnnotations);
+            markerAnnotationsChanged = true;
+          }
+        } catch (CoreException e) {
+          CheckstyleLog.log(e);
+        }
+      }
+    }
+
+    if (oldAnnotations.isEmpty() && annotations.isEmpty() && !markerAnnotationsChanged) {
+      return;
+    }
+
+    // the replacement also repaints the marker annotations whose visibility has changed
+
+    if (model instanceof IAnnotationModelExtension) {
+      ((IAnnotationModelExtension) model).replaceAnnotations(
+              oldAnnotations.toArray(new Annotation[oldAnnotations.size()]), annotations);
+    } else {
+      for (Annotation annotation : oldAnnotations) {
+        model.removeAnnotation(annotation);
+      }
+      for (Map.Entry<Annotation, Position> entry : annotations.entrySet()) {
+        model.addAnnotation(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private static IAnnotationModel getAnnotationModel(ITextEditor editor) {
+    if (editor.getDocumentProvider() == null) {
+      return null;
+    }
+    return editor.getDocumentProvider().getAnnotationModel(editor.getEditorInput());
+  }
+
+  /**
+   * Determines the position of an annotation from the marker attributes, falling back to the
+   * whole line if no offsets could be calculated.
+   */
+  private static Position getPosition(IDocument document, Map<String, Object> markerAttributes) {
+
+    Integer charStart = (Integer) markerAttributes.get(IMarker.CHAR_START);
+    Integer charEnd = (Integer) markerAttributes.get(IMarker.CHAR_END);
+    if (charStart != null && charEnd != null) {
+      return new Position(charStart.intValue(),
+              Math.max(0, charEnd.intValue() - charStart.intValue()));
+    }
+
+    Integer line = (Integer) markerAttributes.get(IMarker.LINE_NUMBER);
+    try {
+      IRegion lineInformation = document
+              .getLineInformation(line == null || line.intValue() == 0 ? 0 : line.intValue() - 1);
+      return new Position(lineInformation.getOffset(), lineInformation.getLength());
+    } catch (BadLocationException e) {
+      return null;
+    }
+  }
+
+  private static String getAnnotationType(Map<String, Object> markerAttributes) {
+
+    Integer severity = (Integer) markerAttributes.get(IMarker.SEVERITY);
+    if (severity == null) {
+      return TYPE_WARNING;
+    }
+    switch (severity.intValue()) {
+      case IMarker.SEVERITY_ERROR:
+        return TYPE_ERROR;
+      case IMarker.SEVERITY_INFO:
+        return TYPE_INFO;
+      default:
+        return TYPE_WARNING;
+    }
+  }
+
+  private static long getModificationStamp(IDocument document) {
+    if (document instanceof IDocumentExtension4) {
+      return ((IDocumentExtension4) document).getModificationStamp();
+    }
+    return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+  }
+
+  /**
+   * Transient annotation showing a violation in the unsaved content of an editor.
+   */
+  private static class DocumentAuditAnnotation extends Annotation {
+
+    DocumentAuditAnnotation(String type, String text) {
+      super(type, false, text);
+    }
+  }
+}
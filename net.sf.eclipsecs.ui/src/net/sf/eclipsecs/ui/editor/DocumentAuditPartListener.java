@@ -0,0 +1,236 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.ui.editor;
+
+import net.sf.eclipsecs.ui.CheckstyleUIPluginPrefs;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IFileEditorInput;
+import org.eclipse.ui.IPartListener2;
+import org.eclipse.ui.IPropertyListener;
+import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.IWorkbenchPartReference;
+import org.eclipse.ui.texteditor.ITextEditor;
+
+/**
+ * PartListener implementation that follows the active text editor and audits its unsaved content
+ * a short idle delay after typing stops. The results are shown as transient annotations, which are
+ * removed again once the editor is saved or reverted.
+ *
+ * @author Lars Ködderitzsch
+ */
+public class DocumentAuditPartListener implements IPartListener2 {
+
+  /** The idle delay after the last change, before the content is audited. */
+  private static final long AUDIT_DELAY = 500;
+
+  /** The active editor, or <code>null</code>. */
+  private ITextEditor mEditor;
+
+  /** The document of the active editor. */
+  private IDocument mDocument;
+
+  /** The job auditing the content of the active editor. */
+  private DocumentAuditJob mJob;
+
+  /** Listener rescheduling the audit on each change of the document. */
+  private final IDocumentListener mDocumentListener = new IDocumentListener() {
+
+    @Override
+    public void documentAboutToBeChanged(DocumentEvent event) {
+      // NOOP
+    }
+
+    @Override
+    public void documentChanged(DocumentEvent event) {
+      scheduleAudit();
+    }
+  };
+
+  /** Listener removing the annotations when the editor is saved or reverted. */
+  private final IPropertyListener mDirtyListener = new IPropertyListener() {
+
+    @Override
+    public void propertyChanged(Object source, int propId) {
+      if (propId == IEditorPart.PROP_DIRTY && mEditor != null && !mEditor.isDirty()) {
+        mJob.cancel();
+        DocumentAuditJob.removeAnnotations(mEditor);
+      }
+    }
+  };
+
+  /**
+   * Starts following the given editor, if it is the active part.
+   *
+   * @param editor
+   *          the active editor or <code>null</code>
+   */
+  public void editorActivated(IEditorPart editor) {
+
+    if (editor == mEditor) {
+      return;
+    }
+    detach();
+
+    if (!(editor instanceof ITextEditor)) {
+      return;
+    }
+
+    ITextEditor textEditor = (ITextEditor) editor;
+    IEditorInput input = textEditor.getEditorInput();
+    if (!(input instanceof IFileEditorInput) || textEditor.getDocumentProvider() == null) {
+      return;
+    }
+
+    IDocument document = textEditor.getDocumentProvider().getDocument(input);
+    if (document == null) {
+      return;
+    }
+
+    IFile file = ((IFileEditorInput) input).getFile();
+
+    mEditor = textEditor;
+    mDocument = document;
+    mJob = new DocumentAuditJob(textEditor, document, file);
+
+    mDocument.addDocumentListener(mDocumentListener);
+    mEditor.addPropertyListener(mDirtyListener);
+
+    // the editor might contain unsaved changes already
+    if (mEditor.isDirty()) {
+      scheduleAudit();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partActivated(IWorkbenchPartReference partRef) {
+
+    IWorkbenchPart part = partRef.getPart(false);
+    if (part instanceof IEditorPart) {
+      editorActivated((IEditorPart) part);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partClosed(IWorkbenchPartReference partRef) {
+
+    if (mEditor != null && partRef.getPart(false) == mEditor) {
+      detach();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partInputChanged(IWorkbenchPartReference partRef) {
+
+    IWorkbenchPart part = partRef.getPart(false);
+    if (mEditor != null && part == mEditor) {
+      detach();
+      editorActivated((IEditorPart) part);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partBroughtToTop(IWorkbenchPartReference partRef) {
+    // NOOP
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partDeactivated(IWorkbenchPartReference partRef) {
+    // NOOP, the editor is followed until another editor gets activated
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partHidden(IWorkbenchPartReference partRef) {
+    // NOOP
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partOpened(IWorkbenchPartReference partRef) {
+    // NOOP
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void partVisible(IWorkbenchPartReference partRef) {
+    // NOOP
+  }
+
+  /**
+   * Stops following the current editor and removes the annotations of its last audit.
+   */
+  public void detach() {
+
+    if (mEditor == null) {
+      return;
+    }
+
+    // results of a running audit must not show up in the editor after it has been left
+    mJob.orphan();
+    mDocument.removeDocumentListener(mDocumentListener);
+    mEditor.removePropertyListener(mDirtyListener);
+    DocumentAuditJob.removeAnnotations(mEditor);
+
+    mEditor = null;
+    mDocument = null;
+    mJob = null;
+  }
+
+  /**
+   * (Re-)schedules the audit, so that it runs once typing has stopped for the idle delay.
+   */
+  private void scheduleAudit() {
+
+    if (mJob != null
+            && CheckstyleUIPluginPrefs.getBoolean(CheckstyleUIPluginPrefs.PREF_AUDIT_AS_YOU_TYPE)) {
+      mJob.cancel();
+      mJob.schedule(AUDIT_DELAY);
+    }
+  }
+}
@@ -26,7 +26,7 @@ import net.sf.eclipsecs.core.CheckstylePluginPrefs;
 import net.sf.eclipsecs.core.builder.CheckerFactory;
 import net.sf.eclipsecs.core.builder.CheckstyleBuilder;
 import net.sf.eclipsecs.core.config.CheckConfigurationFactory;
-import net.sf.eclipsecs.core.config.ICheckConfigurationWorkingSet;
+import net.sf.eclipsecs.core.config.GlobalCheckConfigurationWorkingSet;
 import net.sf.eclipsecs.core.util.CheckstylePluginException;
 import net.sf.eclipsecs.ui.CheckstyleUIPlugin;
 import net.sf.eclipsecs.ui.CheckstyleUIPluginImages;
@@ -79,6 +79,8 @@ public class CheckstylePreferencePage extends PreferencePage implements IWorkben
 
   private Button mWarnBeforeLosingFilesets;
 
+  private Button mAuditAsYouType;
+
   private Button mIncludeRuleNamesButton;
 
   private Button mIncludeModuleIdButton;
@@ -89,13 +91,19 @@ public class CheckstylePreferencePage extends PreferencePage implements IWorkben
 
   private Button mBackgroundFullBuild;
 
+  private Text mTxtAuditThreads;
+
+  private Button mAuditResultCache;
+
+  private Button mAuditInstrumentation;
+
   private CheckConfigurationWorkingSetEditor mWorkingSetEditor;
 
   private final PageController mController = new PageController();
 
   private boolean mRebuildAll = false;
 
-  private final ICheckConfigurationWorkingSet mWorkingSet;
+  private final GlobalCheckConfigurationWorkingSet mWorkingSet;
 
   /**
    * Constructor.
@@ -213,6 +221,14 @@ public class CheckstylePreferencePage extends PreferencePage implements IWorkben
     mWarnBeforeLosingFilesets.setSelection(
             CheckstyleUIPluginPrefs.getBoolean(CheckstyleUIPluginPrefs.PREF_FILESET_WARNING));
 
+    //
+    // Create the "Check unsaved changes while typing" check box.
+    //
+    mAuditAsYouType = new Button(generalComposite, SWT.CHECK);
+    mAuditAsYouType.setText(Messages.CheckstylePreferencePage_lblAuditAsYouType);
+    mAuditAsYouType.setSelection(
+            CheckstyleUIPluginPrefs.getBoolean(CheckstyleUIPluginPrefs.PREF_AUDIT_AS_YOU_TYPE));
+
     //
     // Create the "Include rule name" check box.
     //
@@ -294,6 +310,44 @@ public class CheckstylePreferencePage extends PreferencePage implements IWorkben
     mBackgroundFullBuild.setSelection(
             CheckstylePluginPrefs.getBoolean(CheckstylePluginPrefs.PREF_BACKGROUND_FULL_BUILD));
 
+    //
+    // Create the "Restore results of unchanged files" check box.
+    //
+    mAuditResultCache = new Button(generalComposite, SWT.CHECK);
+    mAuditResultCache.setText(Messages.CheckstylePreferencePage_lblAuditResultCache);
+    mAuditResultCache.setSelection(
+            CheckstylePluginPrefs.getBoolean(CheckstylePluginPrefs.PREF_AUDIT_RESULT_CACHE));
+
+    //
+    // Create the "Record audit metrics" check box.
+    //
+    mAuditInstrumentation = new Button(generalComposite, SWT.CHECK);
+    mAuditInstrumentation.setText(Messages.CheckstylePreferencePage_lblAuditInstrumentation);
+    mAuditInstrumentation.setSelection(
+            CheckstylePluginPrefs.getBoolean(CheckstylePluginPrefs.PREF_AUDIT_INSTRUMENTATION));
+
+    //
+    // Create the "audit threads" label and text field combination
+    //
+    final Composite auditThreadsComposite = new Composite(generalComposite, SWT.NULL);
+    gridLayout = new GridLayout(2, false);
+    gridLayout.marginHeight = 0;
+    gridLayout.marginWidth = 0;
+    auditThreadsComposite.setLayout(gridLayout);
+
+    Label lblAuditThreads = new Label(auditThreadsComposite, SWT.NULL);
+    lblAuditThreads.setText(Messages.CheckstylePreferencePage_lblAuditThreads);
+
+    mTxtAuditThreads = new Text(auditThreadsComposite, SWT.SINGLE | SWT.BORDER);
+    mTxtAuditThreads.setTextLimit(2);
+    SWTUtil.addOnlyDigitInputSupport(mTxtAuditThreads);
+
+    mTxtAuditThreads.setText(Integer.toString(
+            CheckstylePluginPrefs.getInt(CheckstylePluginPrefs.PREF_AUDIT_THREADS)));
+    gd = new GridData();
+    gd.widthHint = 30;
+    mTxtAuditThreads.setLayoutData(gd);
+
     return generalComposite;
   }
 
@@ -357,6 +411,12 @@ public class CheckstylePreferencePage extends PreferencePage implements IWorkben
       CheckstyleUIPluginPrefs.setBoolean(CheckstyleUIPluginPrefs.PREF_FILESET_WARNING,
               warnFileSetsNow);
 
+      //
+      // check while typing preference
+      //
+      CheckstyleUIPluginPrefs.setBoolean(CheckstyleUIPluginPrefs.PREF_AUDIT_AS_YOU_TYPE,
+              mAuditAsYouType.getSelection());
+
       //
       // Include rule names preference.
       //
@@ -397,6 +457,24 @@ public class CheckstylePreferencePage extends PreferencePage implements IWorkben
       CheckstylePluginPrefs.setBoolean(CheckstylePluginPrefs.PREF_BACKGROUND_FULL_BUILD,
               runInBackgroundNow);
 
+      //
+      // Audit result cache preference.
+      //
+      CheckstylePluginPrefs.setBoolean(CheckstylePluginPrefs.PREF_AUDIT_RESULT_CACHE,
+              mAuditResultCache.getSelection());
+
+      //
+      // Audit instrumentation preference.
+      //
+      CheckstylePluginPrefs.setBoolean(CheckstylePluginPrefs.PREF_AUDIT_INSTRUMENTATION,
+              mAuditInstrumentation.getSelection());
+
+      //
+      // Audit threads preference.
+      //
+      int auditThreadsNow = Math.max(1, Integer.parseInt(mTxtAuditThreads.getText()));
+      CheckstylePluginPrefs.setInt(CheckstylePluginPrefs.PREF_AUDIT_THREADS, auditThreadsNow);
+
       // See if all projects need rebuild
       boolean needRebuildAllProjects = (includeRuleNamesNow != includeRuleNamesOriginal)
               || (includeModuleIdNow != includeModuleIdOriginal)
@@ -433,7 +511,7 @@ public class CheckstylePreferencePage extends PreferencePage implements IWorkben
           if (needRebuildAllProjects) {
             CheckstyleBuilder.buildAllProjects();
           } else {
-            CheckstyleBuilder.buildProjects(projectsToBuild);
+            CheckstyleBuilder.buildProjects(projectsToBuild, mWorkingSet.getModuleChanges());
           }
 
         } catch (CheckstylePluginException e) {
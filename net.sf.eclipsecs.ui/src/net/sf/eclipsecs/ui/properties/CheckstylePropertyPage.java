@@ -532,7 +532,6 @@ public class CheckstylePropertyPage extends PropertyPage {
 
           BuildProjectJob rebuildOperation = new BuildProjectJob(project,
                   IncrementalProjectBuilder.FULL_BUILD);
-          rebuildOperation.setRule(ResourcesPlugin.getWorkspace().getRoot());
           rebuildOperation.schedule();
         }
       }
@@ -31,7 +31,7 @@ import java.util.Map;
 
 import net.sf.eclipsecs.core.Messages;
 import net.sf.eclipsecs.core.builder.CheckstyleMarker;
-import net.sf.eclipsecs.core.jobs.RunCheckstyleOnFilesJob;
+import net.sf.eclipsecs.core.jobs.AuditScheduler;
 import net.sf.eclipsecs.core.nature.CheckstyleNature;
 import net.sf.eclipsecs.core.projectconfig.IProjectConfiguration;
 import net.sf.eclipsecs.core.projectconfig.ProjectConfigurationFactory;
@@ -123,8 +123,7 @@ public class CheckFileOnOpenPartListener implements IPartListener2 {
         }
       }
 
-      RunCheckstyleOnFilesJob job = new RunCheckstyleOnFilesJob(filesToCheck);
-      job.schedule();
+      AuditScheduler.auditFiles(filesToCheck, AuditScheduler.Priority.EDITOR);
 
       return Status.OK_STATUS;
     }
@@ -20,11 +20,15 @@
 
 package net.sf.eclipsecs.ui.stats.data;
 
+import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
+import net.sf.eclipsecs.core.CheckstylePlugin;
 import net.sf.eclipsecs.core.builder.CheckstyleMarker;
 import net.sf.eclipsecs.core.config.meta.MetadataFactory;
 import net.sf.eclipsecs.core.util.CheckstyleLog;
@@ -33,8 +37,6 @@ import net.sf.eclipsecs.ui.stats.Messages;
 import net.sf.eclipsecs.ui.stats.views.internal.CheckstyleMarkerFilter;
 
 import org.eclipse.core.resources.IMarker;
-import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -54,6 +56,9 @@ public class CreateStatsJob extends Job {
   /** Regexp to find suites of ' character. */
   private static final Pattern REGEXP_QUOTE = Pattern.compile("'+"); //$NON-NLS-1$
 
+  /** Placeholder for message arguments differing between the markers of a group. */
+  private static final String VARYING_ARGUMENT = "X"; //$NON-NLS-1$
+
   /** The filter to analyze. */
   private final CheckstyleMarkerFilter mFilter;
 
@@ -93,22 +98,43 @@ public class CreateStatsJob extends Job {
   protected IStatus run(IProgressMonitor monitor) {
     try {
 
-      int wholeAmountOfMarkers = ResourcesPlugin.getWorkspace().getRoot()
-              .findMarkers(CheckstyleMarker.MARKER_ID, true, IResource.DEPTH_INFINITE).length;
+      MarkerStatsAggregator aggregator = MarkerStatsAggregator.getInstance();
+
+      // statistics over all markers are maintained incrementally
+      if (mFilter.selectsAllMarkers()) {
+        mStats = aggregator.getStats();
+        return Status.OK_STATUS;
+      }
+
+      int wholeAmountOfMarkers = aggregator.getMarkerCount();
 
       IMarker[] markers = mFilter.findMarkers(monitor);
 
+      // group by the module and message key stored with the markers, without touching the text
+      Map<String, List<IMarker>> markersByKey = new HashMap<>();
+      for (IMarker marker : markers) {
+        String groupKey = MarkerStatsAggregator.getGroupKey(marker);
+        List<IMarker> group = markersByKey.get(groupKey);
+        if (group == null) {
+          group = new ArrayList<>();
+          markersByKey.put(groupKey, group);
+        }
+        group.add(marker);
+      }
+
       Map<String, MarkerStat> markerStats = new HashMap<String, MarkerStat>();
 
-      for (int i = 0, size = markers.length; i < size; i++) {
+      for (List<IMarker> group : markersByKey.values()) {
 
-        String message = null;
-        try {
-          message = getUnlocalizedMessage(markers[i]);
-          message = cleanMessage(message);
-        } catch (CoreException e) {
-          CheckstyleLog.log(e, Messages.CreateStatsJob_errorAnalyzingMarkers);
+        // the message is localized only once per group
+        List<String[]> arguments = new ArrayList<>();
+        for (IMarker marker : group) {
+          arguments.add(getArguments(marker));
         }
+        IMarker first = group.get(0);
+        String message = getLabel(first.getAttribute(CheckstyleMarker.MODULE_NAME, null),
+                first.getAttribute(CheckstyleMarker.MESSAGE_KEY, null),
+                first.getAttribute(IMarker.MESSAGE, null), arguments);
 
         // check that the message is not empty
         if (message == null || message.trim().length() == 0) {
@@ -117,16 +143,14 @@ public class CreateStatsJob extends Job {
           continue;
         }
 
-        // puis on recherche
+        // groups of different modules might share the same message
         MarkerStat stat = markerStats.get(message);
         if (stat == null) {
-          // 1ere fois qu'on rencontre un marqueur de ce type
-          MarkerStat newMarkerStat = new MarkerStat(message);
-          newMarkerStat.addMarker(markers[i]);
-          markerStats.put(newMarkerStat.getIdentifiant(), newMarkerStat);
-        } else {
-          // on augmente juste le nombre d'occurence
-          stat.addMarker(markers[i]);
+          stat = new MarkerStat(message);
+          markerStats.put(stat.getIdentifiant(), stat);
+        }
+        for (IMarker marker : group) {
+          stat.addMarker(marker);
         }
       }
 
@@ -170,6 +194,71 @@ public class CreateStatsJob extends Job {
     return standardMessage;
   }
 
+  /**
+   * Returns the message arguments stored with a Checkstyle marker.
+   *
+   * @param marker
+   *          the marker
+   * @return the string values of the arguments, empty if none are stored
+   */
+  static String[] getArguments(IMarker marker) {
+    return CheckstyleMarker.decodeArguments(
+            marker.getAttribute(CheckstyleMarker.MESSAGE_ARGUMENTS, null));
+  }
+
+  /**
+   * Renders the label of markers sharing a module and message key. The localized message of the
+   * key is formatted with the arguments common to all markers, arguments differing between the
+   * markers are shown as X. Markers without a known message key are labeled by their cleaned
+   * message.
+   *
+   * @param moduleName
+   *          the module name
+   * @param messageKey
+   *          the message key
+   * @param message
+   *          the message of the markers, used if the message key is unknown
+   * @param arguments
+   *          the message arguments of each marker
+   * @return the label
+   */
+  static String getLabel(String moduleName, String messageKey, String message,
+          Iterable<String[]> arguments) {
+
+    String standardMessage = MetadataFactory.getStandardMessage(messageKey, moduleName);
+    if (standardMessage == null) {
+      return message != null ? cleanMessage(message) : null;
+    }
+
+    String[] commonArgs = null;
+    for (String[] args : arguments) {
+      if (commonArgs == null) {
+        commonArgs = args.clone();
+      } else {
+        for (int i = 0; i < commonArgs.length; i++) {
+          if (i >= args.length || !args[i].equals(commonArgs[i])) {
+            commonArgs[i] = null;
+          }
+        }
+      }
+    }
+
+    try {
+      MessageFormat format = new MessageFormat(standardMessage,
+              CheckstylePlugin.getPlatformLocale());
+      Object[] formatArgs = new Object[format.getFormatsByArgumentIndex().length];
+      for (int i = 0; i < formatArgs.length; i++) {
+        formatArgs[i] = commonArgs != null && i < commonArgs.length && commonArgs[i] != null
+                ? commonArgs[i]
+                : VARYING_ARGUMENT;
+      }
+      return format.format(formatArgs);
+    } catch (IllegalArgumentException e) {
+      // the stored string values do not fit the format, like for number formats
+      return cleanMessage(standardMessage);
+    }
+  }
+
   /**
    * Cleans the unlocalized message so that it is more readable.
    *
@@ -22,6 +22,7 @@ package net.sf.eclipsecs.ui.stats.data;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.ui.texteditor.MarkerUtilities;
@@ -49,6 +50,11 @@ public class MarkerStat implements Comparable<MarkerStat> {
    */
   private int mMaxSeverity;
 
+  /**
+   * Flags if the markers are a collection shared with the aggregator, which must not be modified.
+   */
+  private boolean mShared;
+
   /**
    * Crée un MarkerStat pour un marqueur Checkstyle correspondant à
    * l'identifiant passé en paramètre.
@@ -69,6 +75,10 @@ public class MarkerStat implements Comparable<MarkerStat> {
    *          : the marker to add to this category
    */
   public void addMarker(IMarker marker) {
+    if (mShared) {
+      mMarkers = new ArrayList<>(mMarkers);
+      mShared = false;
+    }
     mMarkers.add(marker);
 
     int severity = MarkerUtilities.getSeverity(marker);
@@ -77,6 +87,30 @@ public class MarkerStat implements Comparable<MarkerStat> {
     }
   }
 
+  /**
+   * Adds the markers of an aggregated group to this category.
+   * 
+   * @param markers
+   *          the markers, which are not modified afterwards
+   * @param maxSeverity
+   *          the maximum severity of the markers
+   */
+  void addMarkers(Collection<IMarker> markers, int maxSeverity) {
+    if (mMarkers.isEmpty()) {
+      mMarkers = markers;
+      mShared = true;
+    } else {
+      List<IMarker> allMarkers = new ArrayList<>(mMarkers);
+      allMarkers.addAll(markers);
+      mMarkers = allMarkers;
+      mShared = false;
+    }
+
+    if (maxSeverity > mMaxSeverity) {
+      mMaxSeverity = maxSeverity;
+    }
+  }
+
   /**
    * {@inheritDoc}
    * 
@@ -0,0 +1,480 @@
+//============================================================================
+//
+// Copyright (C) 2002-2016  David Schneider, Lars Ködderitzsch
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//============================================================================
+
+
+package net.sf.eclipsecs.ui.stats.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.eclipsecs.core.builder.CheckstyleMarker;
+import net.sf.eclipsecs.core.util.CheckstyleLog;
+import net.sf.eclipsecs.ui.stats.Messages;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IMarkerDelta;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ListenerList;
+
+/**
+ * Long-lived aggregation of all Checkstyle markers in the workspace, maintained incrementally from
+ * marker deltas. Markers are counted by message group (module and message key), by resource and
+ * by severity, so that the unfiltered statistics can be provided without searching the workspace
+ * for markers again.
+ * <p>
+ * The workspace is scanned once, when the data is first requested. Afterwards only the markers
+ * reported by resource change events are processed.
+ * </p>
+ *
+ * @author Lars Ködderitzsch
+ */
+public final class MarkerStatsAggregator {
+
+  /** The shared instance. */
+  private static MarkerStatsAggregator sInstance;
+
+  /** The listener processing the marker deltas. */
+  private final IResourceChangeListener mResourceListener;
+
+  /** Listeners notified after Checkstyle markers have changed. */
+  private final ListenerList mListeners = new ListenerList();
+
+  /** The aggregated markers by resource and marker id. */
+  private final Map<IResource, Map<Long, Entry>> mEntries = new HashMap<>();
+
+  /** The message groups by group key. */
+  private final Map<String, Group> mGroups = new HashMap<>();
+
+  /** The marker counts by marker severity. */
+  private final int[] mSeverityCounts = new int[IMarker.SEVERITY_ERROR + 1];
+
+  /** The number of all Checkstyle markers. */
+  private int mMarkerCount;
+
+  /** Flags if the workspace has been scanned for markers. */
+  private boolean mInitialized;
+
+  /** The statistics of the current state, or <code>null</code> if they need to be built. */
+  private Stats mStats;
+
+  /**
+   * Listener notified after Checkstyle markers in the workspace have changed.
+   */
+  public interface IStatsListener {
+
+    /**
+     * Called after the aggregated data has been updated with changed Checkstyle markers.
+     */
+    void statsChanged();
+  }
+
+  private MarkerStatsAggregator() {
+    mResourceListener = new IResourceChangeListener() {
+      @Override
+      public void resourceChanged(IResourceChangeEvent event) {
+        handleResourceChanged(event);
+      }
+    };
+    ResourcesPlugin.getWorkspace().addResourceChangeListener(mResourceListener,
+            IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE
+                    | IResourceChangeEvent.PRE_DELETE);
+  }
+
+  /**
+   * Returns the shared aggregator, which starts tracking marker changes on first access.
+   *
+   * @return the aggregator
+   */
+  public static synchronized MarkerStatsAggregator getInstance() {
+    if (sInstance == null) {
+      sInstance = new MarkerStatsAggregator();
+    }
+    return sInstance;
+  }
+
+  /**
+   * Stops tracking marker changes and drops the aggregated data.
+   */
+  public static synchronized void dispose() {
+    if (sInstance != null) {
+      ResourcesPlugin.getWorkspace().removeResourceChangeListener(sInstance.mResourceListener);
+      sInstance.mListeners.clear();
+      sInstance = null;
+    }
+  }
+
+  /**
+   * Adds a listener notified after Checkstyle markers have changed.
+   *
+   * @param listener
+   *          the listener
+   */
+  public void addListener(IStatsListener listener) {
+    mListeners.add(listener);
+  }
+
+  /**
+   * Removes a listener.
+   *
+   * @param listener
+   *          the listener
+   */
+  public void removeListener(IStatsListener listener) {
+    mListeners.remove(listener);
+  }
+
+  /**
+   * Returns the statistics of all Checkstyle markers in the workspace. The statistics are only
+   * rebuilt if markers have changed since the last call, and then only the message groups which
+   * changed need to copy their markers.
+   *
+   * @return the statistics
+   */
+  public synchronized Stats getStats() {
+
+    ensureInitialized();
+
+    if (mStats == null) {
+
+      // groups of different modules might share the same message
+      Map<String, MarkerStat> markerStats = new HashMap<>();
+      for (Group group : mGroups.values()) {
+
+        String label = group.getLabel();
+        if (label == null || label.trim().length() == 0) {
+          CheckstyleLog.log(null, Messages.CreateStatsJob_markerMessageShouldntBeEmpty);
+          continue;
+        }
+
+        MarkerStat stat = markerStats.get(label);
+        if (stat == null) {
+          stat = new MarkerStat(label);
+          markerStats.put(label, stat);
+        }
+        stat.addMarkers(group.getMarkers(), group.getMaxSeverity());
+      }
+      mStats = new Stats(markerStats.values(), mMarkerCount, mMarkerCount);
+    }
+    return mStats;
+  }
+
+  /**
+   * Returns the number of all Checkstyle markers in the workspace.
+   *
+   * @return the number of markers
+   */
+  public synchronized int getMarkerCount() {
+    ensureInitialized();
+    return mMarkerCount;
+  }
+
+  /**
+   * Returns the number of Checkstyle markers of a given severity.
+   *
+   * @param severity
+   *          the marker severity, e.g. {@link IMarker#SEVERITY_ERROR}
+   * @return the number of markers
+   */
+  public synchronized int getMarkerCount(int severity) {
+    ensureInitialized();
+    return severity >= 0 && severity < mSeverityCounts.length ? mSeverityCounts[severity] : 0;
+  }
+
+  /**
+   * Returns the number of Checkstyle markers directly on a resource.
+   *
+   * @param resource
+   *          the resource
+   * @return the number of markers
+   */
+  public synchronized int getMarkerCount(IResource resource) {
+    ensureInitialized();
+    Map<Long, Entry> entries = mEntries.get(resource);
+    return entries != null ? entries.size() : 0;
+  }
+
+  /**
+   * Returns the key by which markers are grouped, built from the module name and message key
+   * stored with the marker. Markers without this information are grouped by their message.
+   *
+   * @param marker
+   *          the marker
+   * @return the group key
+   */
+  static String getGroupKey(IMarker marker) {
+    return getGroupKey(marker.getAttribute(CheckstyleMarker.MODULE_NAME, null),
+            marker.getAttribute(CheckstyleMarker.MESSAGE_KEY, null),
+            marker.getAttribute(IMarker.MESSAGE, "")); //$NON-NLS-1$
+  }
+
+  private static String getGroupKey(String moduleName, String messageKey, String message) {
+    if (moduleName != null && messageKey != null) {
+      return moduleName + "#" + messageKey; //$NON-NLS-1$
+    }
+    return "#" + message; //$NON-NLS-1$
+  }
+
+  private void ensureInitialized() {
+
+    if (mInitialized) {
+      return;
+    }
+    mInitialized = true;
+    addMarkers(ResourcesPlugin.getWorkspace().getRoot());
+  }
+
+  private void handleResourceChanged(IResourceChangeEvent event) {
+
+    boolean changed = false;
+    synchronized (this) {
+      if (!mInitialized) {
+        // the scan on first access picks up the current state
+        return;
+      }
+
+      if (event.getType() == IResourceChangeEvent.POST_CHANGE) {
+
+        IMarkerDelta[] markerDeltas = event.findMarkerDeltas(CheckstyleMarker.MARKER_ID, true);
+        for (IMarkerDelta markerDelta : markerDeltas) {
+
+          switch (markerDelta.getKind()) {
+            case IResourceDelta.ADDED:
+            case IResourceDelta.CHANGED:
+              addMarker(markerDelta.getMarker());
+              break;
+            case IResourceDelta.REMOVED:
+              removeMarker(markerDelta.getResource(), markerDelta.getId());
+              break;
+            default:
+              break;
+          }
+        }
+        changed = markerDeltas.length > 0;
+
+        // markers of reopened projects are not necessarily reported as deltas
+        IResourceDelta delta = event.getDelta();
+        if (delta != null) {
+          for (IResourceDelta projectDelta : delta.getAffectedChildren(IResourceDelta.CHANGED)) {
+            if ((projectDelta.getFlags() & IResourceDelta.OPEN) != 0
+                    && projectDelta.getResource().isAccessible()) {
+              addMarkers(projectDelta.getResource());
+              changed = true;
+            }
+          }
+        }
+      } else if (event.getResource() instanceof IProject) {
+
+        // project is closed or deleted
+        changed = removeMarkers((IProject) event.getResource());
+      }
+
+      if (changed) {
+        mStats = null;
+      }
+    }
+
+    if (changed) {
+      for (Object listener : mListeners.getListeners()) {
+        ((IStatsListener) listener).statsChanged();
+      }
+    }
+  }
+
+  private void addMarkers(IResource resource) {
+    try {
+      for (IMarker marker : resource.findMarkers(CheckstyleMarker.MARKER_ID, true,
+              IResource.DEPTH_INFINITE)) {
+        addMarker(marker);
+      }
+    } catch (CoreException e) {
+      CheckstyleLog.log(e, Messages.CreateStatsJob_errorAnalyzingMarkers);
+    }
+  }
+
+  private void addMarker(IMarker marker) {
+
+    // changed markers are re-added with their current attributes
+    removeMarker(marker.getResource(), marker.getId());
+
+    if (!marker.exists()) {
+      return;
+    }
+
+    String moduleName = marker.getAttribute(CheckstyleMarker.MODULE_NAME, null);
+    String messageKey = marker.getAttribute(CheckstyleMarker.MESSAGE_KEY, null);
+    String message = marker.getAttribute(IMarker.MESSAGE, ""); //$NON-NLS-1$
+    int severity = Math.max(0, Math.min(IMarker.SEVERITY_ERROR,
+            marker.getAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING)));
+
+    String groupKey = getGroupKey(moduleName, messageKey, message);
+    Group group = mGroups.get(groupKey);
+    if (group == null) {
+      group = new Group(moduleName, messageKey, message);
+      mGroups.put(groupKey, group);
+    }
+    group.add(marker, CreateStatsJob.getArguments(marker), severity);
+
+    Map<Long, Entry> entries = mEntries.get(marker.getResource());
+    if (entries == null) {
+      entries = new HashMap<>();
+      mEntries.put(marker.getResource(), entries);
+    }
+    entries.put(Long.valueOf(marker.getId()), new Entry(marker, groupKey, severity));
+
+    mSeverityCounts[severity]++;
+    mMarkerCount++;
+  }
+
+  private void removeMarker(IResource resource, long id) {
+
+    Map<Long, Entry> entries = mEntries.get(resource);
+    Entry entry = entries != null ? entries.remove(Long.valueOf(id)) : null;
+    if (entry == null) {
+      return;
+    }
+    if (entries.isEmpty()) {
+      mEntries.remove(resource);
+    }
+
+    Group group = mGroups.get(entry.mGroupKey);
+    group.remove(entry.mMarker, entry.mSeverity);
+    if (group.isEmpty()) {
+      mGroups.remove(entry.mGroupKey);
+    }
+
+    mSeverityCounts[entry.mSeverity]--;
+    mMarkerCount--;
+  }
+
+  private boolean removeMarkers(IProject project) {
+
+    List<Entry> removed = new ArrayList<>();
+    for (Map.Entry<IResource, Map<Long, Entry>> resourceEntries : mEntries.entrySet()) {
+      if (project.equals(resourceEntries.getKey().getProject())) {
+        removed.addAll(resourceEntries.getValue().values());
+      }
+    }
+
+    for (Entry entry : removed) {
+      removeMarker(entry.mMarker.getResource(), entry.mMarker.getId());
+    }
+    return !removed.isEmpty();
+  }
+
+  /**
+   * An aggregated marker.
+   */
+  private static class Entry {
+
+    private final IMarker mMarker;
+
+    private final String mGroupKey;
+
+    private final int mSeverity;
+
+    Entry(IMarker marker, String groupKey, int severity) {
+      mMarker = marker;
+      mGroupKey = groupKey;
+      mSeverity = severity;
+    }
+  }
+
+  /**
+   * The markers of a module and message key.
+   */
+  private static class Group {
+
+    private final String mModuleName;
+
+    private final String mMessageKey;
+
+    private final String mMessage;
+
+    /** The label of the group, rendered on demand. */
+    private String mLabel;
+
+    /** The markers with their message arguments. */
+    private final Map<IMarker, String[]> mMarkers = new LinkedHashMap<>();
+
+    private final int[] mSeverityCounts = new int[IMarker.SEVERITY_ERROR + 1];
+
+    /** Copy of the markers handed out, or <code>null</code> if the markers changed since. */
+    private Collection<IMarker> mSnapshot;
+
+    Group(String moduleName, String messageKey, String message) {
+      mModuleName = moduleName;
+      mMessageKey = messageKey;
+      mMessage = message;
+    }
+
+    void add(IMarker marker, String[] arguments, int severity) {
+      mMarkers.put(marker, arguments);
+      mSeverityCounts[severity]++;
+      mSnapshot = null;
+      mLabel = null;
+    }
+
+    void remove(IMarker marker, int severity) {
+      mMarkers.remove(marker);
+      mSeverityCounts[severity]--;
+      mSnapshot = null;
+      mLabel = null;
+    }
+
+    boolean isEmpty() {
+      return mMarkers.isEmpty();
+    }
+
+    Collection<IMarker> getMarkers() {
+      if (mSnapshot == null) {
+        mSnapshot = Collections.unmodifiableList(new ArrayList<>(mMarkers.keySet()));
+      }
+      return mSnapshot;
+    }
+
+    int getMaxSeverity() {
+      for (int severity = mSeverityCounts.length - 1; severity > 0; severity--) {
+        if (mSeverityCounts[severity] > 0) {
+          return severity;
+        }
+      }
+      return 0;
+    }
+
+    String getLabel() {
+      if (mLabel == null) {
+        // the arguments common to the markers might change with the markers
+        mLabel = CreateStatsJob.getLabel(mModuleName, mMessageKey, mMessage, mMarkers.values());
+      }
+      return mLabel;
+    }
+  }
+}
@@ -26,20 +26,17 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
-import net.sf.eclipsecs.core.builder.CheckstyleMarker;
 import net.sf.eclipsecs.ui.CheckstyleUIPlugin;
 import net.sf.eclipsecs.ui.stats.Messages;
 import net.sf.eclipsecs.ui.stats.data.CreateStatsJob;
+import net.sf.eclipsecs.ui.stats.data.MarkerStatsAggregator;
 import net.sf.eclipsecs.ui.stats.data.Stats;
 import net.sf.eclipsecs.ui.stats.views.internal.CheckstyleMarkerFilter;
 import net.sf.eclipsecs.ui.stats.views.internal.CheckstyleMarkerFilterDialog;
 
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.resources.IMarkerDelta;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceChangeEvent;
-import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -92,8 +89,8 @@ public abstract class AbstractStatsView extends ViewPart {
   /** The listener reacting to selection changes in the workspace. */
   private ISelectionListener mFocusListener;
 
-  /** The listener reacting on resource changes. */
-  private IResourceChangeListener mResourceListener;
+  /** The listener reacting on marker changes. */
+  private MarkerStatsAggregator.IStatsListener mStatsListener;
 
   //
   // methods
@@ -120,20 +117,16 @@ public abstract class AbstractStatsView extends ViewPart {
     getSite().getPage().addSelectionListener(mFocusListener);
     focusSelectionChanged(getSite().getPage().getActivePart(), getSite().getPage().getSelection());
 
-    // create and register the listener for resource changes
-    mResourceListener = new IResourceChangeListener() {
+    // create and register the listener for marker changes, notified after the aggregated
+    // statistics have been updated
+    mStatsListener = new MarkerStatsAggregator.IStatsListener() {
       @Override
-      public void resourceChanged(IResourceChangeEvent event) {
-
-        IMarkerDelta[] markerDeltas = event.findMarkerDeltas(CheckstyleMarker.MARKER_ID, true);
-
-        if (markerDeltas.length > 0) {
-          refresh();
-        }
+      public void statsChanged() {
+        refresh();
       }
     };
 
-    ResourcesPlugin.getWorkspace().addResourceChangeListener(mResourceListener);
+    MarkerStatsAggregator.getInstance().addListener(mStatsListener);
 
     makeActions();
     initActionBars(getViewSite().getActionBars());
@@ -154,7 +147,7 @@ public abstract class AbstractStatsView extends ViewPart {
   public void dispose() {
     // IMPORTANT: Deregister listeners
     getSite().getPage().removeSelectionListener(mFocusListener);
-    ResourcesPlugin.getWorkspace().removeResourceChangeListener(mResourceListener);
+    MarkerStatsAggregator.getInstance().removeListener(mStatsListener);
 
     super.dispose();
   }
@@ -257,6 +257,16 @@ public class CheckstyleMarkerFilter implements Cloneable {
     this.mEnabled = enabled;
   }
 
+  /**
+   * Returns if the filter passes all Checkstyle markers in the workspace.
+   *
+   * @return <code>true</code> if no markers are filtered out
+   */
+  public boolean selectsAllMarkers() {
+    return (!mEnabled || mOnResource == ON_ANY_RESOURCE) && !mSelectBySeverity
+            && !mFilterByRegex;
+  }
+
   /**
    * Returns the current working set.
    *